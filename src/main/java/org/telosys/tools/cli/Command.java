@@ -89,6 +89,10 @@ public abstract class Command {
 		return environment ;
 	}
 
+	protected ConsoleReader getConsoleReader() {
+		return consoleReader ;
+	}
+
 	protected void appendLine(StringBuilder sb, String s) {
 		sb.append(s);
 		sb.append(Environment.LINE_SEPARATOR);
@@ -103,6 +103,7 @@ public class CommandProvider {
 		register(new BundleCommand(consoleReader, environment)); // b set/print current bundle
 		register(new EditBundleCommand(consoleReader, environment)); // eb : edit bundle
 		register(new DeleteBundleCommand(consoleReader, environment)); // db : delete bundle
+		register(new CheckBundleCommand(consoleReader, environment)); // cb : check bundle
 
 		// Templates commands
 		register(new ListTemplatesCommand(consoleReader, environment)); // lt : list templates				
@@ -112,6 +113,7 @@ public class CommandProvider {
 		
 		// Generation management
 		register(new GenerateCommand(consoleReader, environment)); // gen : generates entities with templates				
+		register(new TemplateProfileCommand(consoleReader, environment)); // tprof : templates hot spots
 		
 		
 		// Launcher management
@@ -16,12 +16,15 @@
 package org.telosys.tools.cli;
 
 import java.io.File;
+import java.io.IOException;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Callable;
 
 import jline.console.ConsoleReader;
 
+import org.telosys.tools.api.ApiUtil;
 import org.telosys.tools.api.TelosysModelException;
 import org.telosys.tools.api.TelosysProject;
 import org.telosys.tools.commons.TelosysToolsException;
@@ -120,15 +123,83 @@ public abstract class CommandWithModel extends Command {
 		}
 	}
 	
+	/**
+	 * Returns the given model from the session cache <br>
+	 * ( the model is loaded if not yet in the cache or if its files have changed )
+	 * @param modelFile
+	 * @return
+	 * @throws TelosysToolsException if the model cannot be loaded
+	 */
+	protected Model getCachedModel(File modelFile) throws TelosysToolsException {
+		try {
+			return getEnvironment().getModelCache().getModel(modelFile, newModelLoader(modelFile));
+		} catch (TelosysToolsException | RuntimeException e) {
+			throw e ;
+		} catch (Exception e) {
+			throw new TelosysToolsException("Cannot load model '" + modelFile.getName() + "'", e);
+		}
+	}
+
+	/**
+	 * Starts the loading of the given model in background ( kept in the session cache ) <br>
+	 * The errors are reported by the first command using the model
+	 * @param modelFile
+	 */
+	protected void preloadModel(File modelFile) {
+		getEnvironment().getModelCache().preload(modelFile, newModelLoader(modelFile));
+	}
+
+	private Callable<Model> newModelLoader(final File modelFile) {
+		final TelosysProject telosysProject = getTelosysProject();
+		return new Callable<Model>() {
+			@Override
+			public Model call() throws TelosysToolsException {
+				ModelSnapshot snapshot = new ModelSnapshot(modelFile);
+				if ( snapshot.exists() ) {
+					Model model = snapshot.read();
+					if ( model == null ) {
+						// obsolete snapshot => rebuilt
+						model = parseModel(telosysProject, modelFile);
+						try {
+							snapshot.write(model);
+						} catch (IOException e) {
+							// not blocking : the model will be parsed again next time
+						}
+					}
+					return model ;
+				}
+				return parseModel(telosysProject, modelFile);
+			}
+		};
+	}
+
+	/**
+	 * Parses the given model file ( the snapshot is not used )
+	 * @param telosysProject
+	 * @param modelFile
+	 * @return
+	 * @throws TelosysToolsException
+	 */
+	protected Model parseModel(TelosysProject telosysProject, File modelFile) throws TelosysToolsException {
+		if ( isDslModel(modelFile.getName()) && modelFile.isFile() ) {
+			// entities files parsed concurrently
+			return new DslModelLoader(Runtime.getRuntime().availableProcessors()).loadModel(modelFile);
+		}
+		else if ( ApiUtil.isDbModelFile(modelFile) && modelFile.isFile() ) {
+			// streaming : the XML document is not kept in memory
+			return new DbModelLoader(DbModelLoader.DEFAULT_BATCH_SIZE).loadModel(modelFile);
+		}
+		return telosysProject.loadModel(modelFile);
+	}
+
 	/**
 	 * Loads the given model file (and print errors if any)
 	 * @param modelFile
 	 * @return the model loaded (or null if cannot be loaded)
 	 */
 	protected Model loadModel(File modelFile) {
-		TelosysProject telosysProject = getTelosysProject();
 		try {
-			return telosysProject.loadModel(modelFile);
+			return getCachedModel(modelFile);
 		} catch (TelosysToolsException ex) {
 			if ( ex instanceof TelosysModelException ) {
 				printError("Invalid model !");
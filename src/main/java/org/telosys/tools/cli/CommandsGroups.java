@@ -129,6 +129,7 @@ public class CommandsGroups {
 		commands.add("lb");
 		commands.add("eb");
 		commands.add("db");
+		commands.add("cb");
 
 		return new CommandsGroup(name, commands);
 	}
@@ -150,6 +151,7 @@ public class CommandsGroups {
 		
 		String name = "Generation commands" ;
 		commands.add("gen");
+		commands.add("tprof");
 		
 		return new CommandsGroup(name, commands);
 	}
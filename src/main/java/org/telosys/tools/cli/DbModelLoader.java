@@ -0,0 +1,193 @@
+/**
+ *  Copyright (C) 2015-2017  Telosys project org. ( http://www.telosys.org/ )
+ *
+ *  Licensed under the GNU LESSER GENERAL PUBLIC LICENSE, Version 3.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *          http://www.gnu.org/licenses/lgpl.html
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.telosys.tools.cli;
+
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+import org.telosys.tools.commons.TelosysToolsException;
+import org.telosys.tools.commons.logger.SilentLogger;
+import org.telosys.tools.repository.ForeignKeyTypeManager;
+import org.telosys.tools.repository.conversion.XmlConverter;
+import org.telosys.tools.repository.model.EntityInDbModel;
+import org.telosys.tools.repository.model.RepositoryModel;
+import org.telosys.tools.repository.persistence.util.RepositoryConst;
+import org.telosys.tools.repository.persistence.util.Xml;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+
+/**
+ * Streaming loader for the database models ( '.dbrep' files ) <br>
+ * The XML file is read with StAX, the tables are copied by batches in a small DOM document <br>
+ * converted with the standard converter ( the whole file is never kept in memory ) <br>
+ * The foreign keys information is set at the end as with the standard loader
+ *
+ */
+public class DbModelLoader {
+
+	public static final int DEFAULT_BATCH_SIZE = 100 ;
+
+	private final int batchSize ;
+
+	/**
+	 * Constructor
+	 * @param batchSize number of tables converted at the same time
+	 */
+	public DbModelLoader(int batchSize) {
+		super();
+		this.batchSize = batchSize > 0 ? batchSize : DEFAULT_BATCH_SIZE ;
+	}
+
+	/**
+	 * Loads the given database model
+	 * @param modelFile the '.dbrep' file
+	 * @return
+	 * @throws TelosysToolsException
+	 */
+	public RepositoryModel loadModel(File modelFile) throws TelosysToolsException {
+		XMLInputFactory factory = XMLInputFactory.newInstance();
+		factory.setProperty(XMLInputFactory.SUPPORT_DTD, Boolean.FALSE);
+		factory.setProperty(XMLInputFactory.IS_COALESCING, Boolean.TRUE);
+		try ( InputStream in = new BufferedInputStream(new FileInputStream(modelFile)) ) {
+			XMLStreamReader reader = factory.createXMLStreamReader(in);
+			try {
+				return readModel(reader);
+			}
+			finally {
+				reader.close();
+			}
+		} catch (IOException | XMLStreamException e) {
+			throw new TelosysToolsException("Cannot load model file '" + modelFile.getName() + "'", e);
+		}
+	}
+
+	private RepositoryModel readModel(XMLStreamReader reader) throws XMLStreamException, TelosysToolsException {
+		RepositoryModel model = null ;
+		String rootName = null ;
+		Map<String, String> tableListAttributes = null ;
+		Batch batch = null ;
+		while ( reader.hasNext() ) {
+			int event = reader.next();
+			if ( event == XMLStreamConstants.START_ELEMENT ) {
+				String name = reader.getLocalName();
+				if ( rootName == null ) {
+					rootName = name ;
+				}
+				else if ( RepositoryConst.TABLELIST.equals(name) && tableListAttributes == null ) {
+					tableListAttributes = new LinkedHashMap<>();
+					for ( int i = 0 ; i < reader.getAttributeCount() ; i++ ) {
+						tableListAttributes.put(reader.getAttributeLocalName(i), reader.getAttributeValue(i));
+					}
+					batch = new Batch(rootName, tableListAttributes);
+				}
+				else if ( RepositoryConst.TABLE.equals(name) && batch != null ) {
+					batch.addTable(reader);
+					if ( batch.size >= batchSize ) {
+						model = merge(model, batch.convert());
+						batch = new Batch(rootName, tableListAttributes);
+					}
+				}
+			}
+			else if ( event == XMLStreamConstants.END_ELEMENT && batch != null
+					&& RepositoryConst.TABLELIST.equals(reader.getLocalName()) ) {
+				if ( batch.size > 0 || model == null ) {
+					model = merge(model, batch.convert());
+				}
+				batch = null ;
+			}
+		}
+		if ( model == null ) {
+			throw new TelosysToolsException("Invalid model file (no '" + RepositoryConst.TABLELIST + "')");
+		}
+		new ForeignKeyTypeManager().setAttributesForeignKeyInformation(model);
+		return model ;
+	}
+
+	private RepositoryModel merge(RepositoryModel model, RepositoryModel batchModel) {
+		if ( model == null ) {
+			return batchModel ;
+		}
+		for ( EntityInDbModel entity : batchModel.getEntitiesArraySortedByTableName() ) {
+			model.storeEntity(entity);
+		}
+		return model ;
+	}
+
+	/**
+	 * DOM document with a batch of tables ( same structure as the model file )
+	 */
+	private static class Batch {
+		private final Document document ;
+		private final Element tableList ;
+		private int size = 0 ;
+
+		private Batch(String rootName, Map<String, String> tableListAttributes) throws TelosysToolsException {
+			document = Xml.createDomDocument();
+			Element root = document.createElement(rootName);
+			document.appendChild(root);
+			tableList = document.createElement(RepositoryConst.TABLELIST);
+			for ( Map.Entry<String, String> e : tableListAttributes.entrySet() ) {
+				tableList.setAttribute(e.getKey(), e.getValue());
+			}
+			root.appendChild(tableList);
+		}
+
+		private void addTable(XMLStreamReader reader) throws XMLStreamException {
+			tableList.appendChild(readElement(reader));
+			size++ ;
+		}
+
+		/**
+		 * Copies the current element of the reader ( and all its content )
+		 * @param reader
+		 * @return
+		 * @throws XMLStreamException
+		 */
+		private Element readElement(XMLStreamReader reader) throws XMLStreamException {
+			Element element = document.createElement(reader.getLocalName());
+			for ( int i = 0 ; i < reader.getAttributeCount() ; i++ ) {
+				element.setAttribute(reader.getAttributeLocalName(i), reader.getAttributeValue(i));
+			}
+			while ( true ) {
+				int event = reader.next();
+				if ( event == XMLStreamConstants.START_ELEMENT ) {
+					element.appendChild(readElement(reader));
+				}
+				else if ( ( event == XMLStreamConstants.CHARACTERS || event == XMLStreamConstants.CDATA )
+						&& ! reader.isWhiteSpace() ) {
+					element.appendChild(document.createTextNode(reader.getText()));
+				}
+				else if ( event == XMLStreamConstants.END_ELEMENT ) {
+					return element ;
+				}
+			}
+		}
+
+		private RepositoryModel convert() throws TelosysToolsException {
+			return new XmlConverter(new SilentLogger()).xmlDocumentToModel(document);
+		}
+	}
+}
@@ -0,0 +1,147 @@
+/**
+ *  Copyright (C) 2015-2017  Telosys project org. ( http://www.telosys.org/ )
+ *
+ *  Licensed under the GNU LESSER GENERAL PUBLIC LICENSE, Version 3.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *          http://www.gnu.org/licenses/lgpl.html
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.telosys.tools.cli;
+
+import java.io.File;
+import java.util.Hashtable;
+import java.util.LinkedHashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.telosys.tools.api.TelosysModelException;
+import org.telosys.tools.commons.PropertiesManager;
+import org.telosys.tools.commons.TelosysToolsException;
+import org.telosys.tools.dsl.DslModelUtil;
+import org.telosys.tools.dsl.EntityParserException;
+import org.telosys.tools.dsl.generic.converter.Converter;
+import org.telosys.tools.dsl.parser.EntityParser;
+import org.telosys.tools.dsl.parser.model.DomainEntity;
+import org.telosys.tools.dsl.parser.model.DomainModel;
+import org.telosys.tools.generic.model.Model;
+
+/**
+ * DSL model loader parsing the entities files concurrently <br>
+ * The entities are declared in the model before the parsing ( the parsers only read the model ) <br>
+ * then the parsed fields are set and the links are resolved in a single final pass ( conversion to the generic model ) <br>
+ * The parsing errors are reported as with the standard loader ( 'TelosysModelException' with the errors by file )
+ *
+ */
+public class DslModelLoader {
+
+	private final int threads ;
+
+	/**
+	 * Constructor
+	 * @param threads maximum number of entities parsed at the same time
+	 */
+	public DslModelLoader(int threads) {
+		super();
+		this.threads = threads > 0 ? threads : 1 ;
+	}
+
+	/**
+	 * Loads the given DSL model
+	 * @param modelFile the '.model' file
+	 * @return
+	 * @throws TelosysToolsException if the model is invalid ( 'TelosysModelException' for the parsing errors )
+	 */
+	public Model loadModel(File modelFile) throws TelosysToolsException {
+		Properties properties = new PropertiesManager(modelFile).load();
+		final DomainModel domainModel = new DomainModel(properties);
+		List<String> entitiesFiles = DslModelUtil.getEntitiesAbsoluteFileNames(modelFile);
+		for ( String entityFile : entitiesFiles ) {
+			domainModel.addEntity(new DomainEntity(DslModelUtil.getEntityName(new File(entityFile))));
+		}
+
+		// Entities parsing
+		Map<String, DomainEntity> entities = parseEntities(modelFile, domainModel, entitiesFiles);
+
+		// Final pass : fields and links
+		for ( DomainEntity entity : entities.values() ) {
+			domainModel.populateEntityFileds(entity.getName(), entity.getFields());
+		}
+		try {
+			return new Converter().convertToGenericModel(domainModel);
+		} catch (Exception e) {
+			String message = "Converter error : " + e.getMessage() ;
+			Map<String, String> errors = new Hashtable<>();
+			errors.put("", message);
+			throw new TelosysModelException(modelFile, message, errors);
+		}
+	}
+
+	/**
+	 * Parses the given entities files concurrently
+	 * @param modelFile
+	 * @param domainModel the model with all the entities declared
+	 * @param entitiesFiles
+	 * @return the parsed entities by file ( in the order of the given files )
+	 * @throws TelosysToolsException
+	 */
+	private Map<String, DomainEntity> parseEntities(File modelFile, final DomainModel domainModel,
+			List<String> entitiesFiles) throws TelosysToolsException {
+		Map<String, DomainEntity> entities = new LinkedHashMap<>();
+		if ( entitiesFiles.isEmpty() ) {
+			return entities ;
+		}
+		Map<String, String> errors = new Hashtable<>();
+		ExecutorService executor = Executors.newFixedThreadPool(Math.min(threads, entitiesFiles.size()));
+		try {
+			List<Future<DomainEntity>> futures = new LinkedList<>();
+			for ( final String entityFile : entitiesFiles ) {
+				futures.add(executor.submit(new Callable<DomainEntity>() {
+					@Override
+					public DomainEntity call() {
+						// one parser for each file ( the parsers are not thread safe )
+						return new EntityParser(domainModel).parse(entityFile);
+					}
+				}));
+			}
+			int i = 0 ;
+			for ( Future<DomainEntity> future : futures ) {
+				String entityFile = entitiesFiles.get(i++);
+				try {
+					entities.put(entityFile, future.get());
+				} catch (ExecutionException e) {
+					if ( e.getCause() instanceof EntityParserException ) {
+						errors.put(new File(entityFile).getName(), e.getCause().getMessage());
+					}
+					else {
+						throw new TelosysToolsException("Cannot parse entity file '" + entityFile + "'", e.getCause());
+					}
+				}
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new TelosysToolsException("Model loading interrupted", e);
+		}
+		finally {
+			executor.shutdownNow();
+		}
+		if ( ! errors.isEmpty() ) {
+			throw new TelosysModelException(modelFile,
+					"Parsing error(s) : " + errors.size() + " invalid entity(ies)", errors);
+		}
+		return entities ;
+	}
+}
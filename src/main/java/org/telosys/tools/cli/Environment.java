@@ -22,6 +22,8 @@ import java.net.URL;
 import java.util.Properties;
 
 import org.telosys.tools.api.TelosysProject;
+import org.telosys.tools.cli.generation.TemplateCache;
+import org.telosys.tools.cli.generation.TemplateProfiler;
 import org.telosys.tools.commons.FileUtil;
 import org.telosys.tools.commons.PropertiesManager;
 import org.telosys.tools.commons.TelosysToolsException;
@@ -48,6 +50,9 @@ public class Environment {
 	private final OSType osType ;
 	private final String editorCommand ;
 	private final String originalDirectory ;
+	private final TemplateCache templateCache ;
+	private final TemplateProfiler templateProfiler ;
+	private final ModelCache modelCache ;
 
 	// alterable attributes
 	private       String homeDirectory ;
@@ -73,6 +78,9 @@ public class Environment {
 		this.osName = System.getProperty("os.name");
 		this.osType = findOSType(this.osName); 
 		this.editorCommand = findEditorCommand(this.osType);
+		this.templateCache = new TemplateCache(TemplateCache.DEFAULT_MAX_SIZE);
+		this.templateProfiler = new TemplateProfiler();
+		this.modelCache = new ModelCache(ModelCache.DEFAULT_MAX_SIZE);
 
 		// alterable attributes
 		this.currentDirectory   = originalDirectory ;
@@ -287,6 +295,33 @@ public class Environment {
 		return commandsGroups;
 	}
 
+	//---------------------------------------------------------------------------------
+	/**
+	 * Returns the session cache of the parsed templates
+	 * @return
+	 */
+	public TemplateCache getTemplateCache() {
+		return templateCache;
+	}
+
+	//---------------------------------------------------------------------------------
+	/**
+	 * Returns the session profiler of the templates lines and directives ( see 'tprof' )
+	 * @return
+	 */
+	public TemplateProfiler getTemplateProfiler() {
+		return templateProfiler;
+	}
+
+	//---------------------------------------------------------------------------------
+	/**
+	 * Returns the session cache of the loaded models
+	 * @return
+	 */
+	public ModelCache getModelCache() {
+		return modelCache;
+	}
+
 
 	//---------------------------------------------------------------------------------
 	// HOME directory
@@ -22,6 +22,10 @@ import java.nio.file.FileSystems;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.ArrayList;
+import java.util.List;
+
+import org.telosys.tools.cli.commands.GenerateCommand;
+import org.telosys.tools.cli.observer.GenerationThroughputObserver;
 
 /**
  * Application entry point for CLI
@@ -57,6 +61,21 @@ public class LaunchArgumentsProcessor {
 		}
 	}
 	
+	/**
+	 * Returns true if the generated archive is written on the standard output ( "-archive -" or "-tar -" ) <br>
+	 * ( the console must not use the standard output )
+	 * @param args the launch arguments
+	 * @return
+	 */
+	public static boolean isStandardOutputArchive(String[] args) {
+		for ( int i = 0 ; i + 1 < args.length ; i++ ) {
+			if ( ( "-archive".equals(args[i]) || "-tar".equals(args[i]) ) && "-".equals(args[i + 1]) ) {
+				return true ;
+			}
+		}
+		return false ;
+	}
+
 	private void print(String message) {
 		out.println(message);
 		out.flush();
@@ -134,7 +153,7 @@ public class LaunchArgumentsProcessor {
 			print("");
 			// Set current model
 			Command genCommand = commandProvider.getCommand("gen");
-			print(genCommand.execute( buildArgs(genCommand, "*", "*", "-r")));
+			executeGenCommand(genCommand, buildGenArgs(genCommand, args), isStandardOutputArchive(args));
 			if (genCommand.hasCommandErrors()) {
 				print("!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!");
 				print("  Generation has errors - please check ");
@@ -149,6 +168,33 @@ public class LaunchArgumentsProcessor {
 		}
 	}
 
+	/**
+	 * Executes the 'gen' command in batch mode : no live progress line, throughput logged
+	 * @param genCommand
+	 * @param genArgs
+	 * @param standardOutputArchive true if the console uses the error output ( archive on the standard output )
+	 */
+	private void executeGenCommand(Command genCommand, String[] genArgs, boolean standardOutputArchive) {
+		if ( genCommand instanceof GenerateCommand ) {
+			GenerateCommand generateCommand = (GenerateCommand) genCommand ;
+			GenerationThroughputObserver observer = new GenerationThroughputObserver(out);
+			generateCommand.setProgressLine(false);
+			generateCommand.setStandardOutputArchive(standardOutputArchive);
+			generateCommand.setThroughputObserver(observer);
+			try {
+				print(generateCommand.execute(genArgs));
+			}
+			finally {
+				generateCommand.setThroughputObserver(null);
+				generateCommand.setProgressLine(true);
+				generateCommand.setStandardOutputArchive(false);
+			}
+		}
+		else {
+			print(genCommand.execute(genArgs));
+		}
+	}
+
 	private String[] buildArgs(Command command) {
 		String[] args = new String[1];
 		args[0] = command.getName();
@@ -176,6 +222,66 @@ public class LaunchArgumentsProcessor {
 		return args;
 	}
 
+	/**
+	 * Builds the 'gen' command arguments ( "gen * * -r" + options from launch arguments if any )
+	 * @param command
+	 * @param args the launch arguments
+	 * @return
+	 */
+	private String[] buildGenArgs(Command command, String[] args) {
+		List<String> genArgs = new ArrayList<>();
+		genArgs.add(command.getName());
+		genArgs.add("*");
+		genArgs.add("*");
+		genArgs.add("-r");
+		// Is there a "-j N" argument ?
+		String workers = getStringArg("-j", args);
+		if ( workers != null ) {
+			genArgs.add("-j");
+			genArgs.add(workers);
+		}
+		// Is there a "-inc on" argument ?
+		String incremental = getStringArg("-inc", args);
+		if ( incremental != null && "on".equalsIgnoreCase(incremental.trim()) ) {
+			genArgs.add("--incremental");
+		}
+		// Is there a "-shard i/n" argument ?
+		String shard = getStringArg("-shard", args);
+		if ( shard != null ) {
+			genArgs.add("--shard");
+			genArgs.add(shard);
+		}
+		// Is there a "-stage on" argument ?
+		String staged = getStringArg("-stage", args);
+		if ( staged != null && "on".equalsIgnoreCase(staged.trim()) ) {
+			genArgs.add("--staged");
+		}
+		// Is there a "-archive file" or "-tar file" argument ?
+		String archive = getStringArg("-archive", args);
+		if ( archive != null ) {
+			genArgs.add("--archive");
+			genArgs.add(archive);
+		}
+		String tar = getStringArg("-tar", args);
+		if ( tar != null ) {
+			genArgs.add("--tar");
+			genArgs.add(tar);
+		}
+		// Is there a "-models *" argument ? ( all the models or the given models : "-models shop,crm" )
+		String models = getStringArg("-models", args);
+		if ( models != null ) {
+			genArgs.add("--models");
+			genArgs.add(models);
+		}
+		// Is there a "-chunk N" argument ?
+		String chunk = getStringArg("-chunk", args);
+		if ( chunk != null ) {
+			genArgs.add("--chunk");
+			genArgs.add(chunk);
+		}
+		return genArgs.toArray(new String[genArgs.size()]);
+	}
+
 	private void printArguments(String[] args) {
 		StringBuilder sb = new StringBuilder();
 		sb.append("args : ");
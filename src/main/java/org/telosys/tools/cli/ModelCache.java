@@ -0,0 +1,228 @@
+/**
+ *  Copyright (C) 2015-2017  Telosys project org. ( http://www.telosys.org/ )
+ *
+ *  Licensed under the GNU LESSER GENERAL PUBLIC LICENSE, Version 3.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *          http://www.gnu.org/licenses/lgpl.html
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.telosys.tools.cli;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.telosys.tools.cli.generation.HashUtil;
+import org.telosys.tools.dsl.DslModelUtil;
+import org.telosys.tools.generic.model.Model;
+
+/**
+ * Session cache of the loaded models ( LRU cache with a maximum size ) <br>
+ * An entry is identified by the model file canonical path, it is valid for a given "stamp" : <br>
+ * model file size and last modification time, and the content hash of the entities files for a DSL model <br>
+ * A model requested by several threads at the same time is loaded only once <br>
+ * ( a model can be preloaded in background, the next request waits for the end of this loading ) <br>
+ * An invalid model is removed from the cache by the request getting the error <br>
+ * ( a preloading error is kept until the next request : the model is not parsed twice for the same error )
+ *
+ */
+public class ModelCache {
+
+	public static final int DEFAULT_MAX_SIZE = 4 ;
+
+	private final int maxSize ;
+
+	private final Map<String, CachedModel> entries ;
+
+	private final AtomicLong hits = new AtomicLong();
+
+	private final AtomicLong misses = new AtomicLong();
+
+	private final AtomicLong evictions = new AtomicLong();
+
+	private static class CachedModel {
+		private final String stamp ;
+		private final FutureTask<Model> future ;
+
+		private CachedModel(String stamp, FutureTask<Model> future) {
+			this.stamp = stamp ;
+			this.future = future ;
+		}
+	}
+
+	/**
+	 * Constructor
+	 * @param maxSize maximum number of models kept in the cache
+	 */
+	public ModelCache(int maxSize) {
+		super();
+		this.maxSize = maxSize > 0 ? maxSize : DEFAULT_MAX_SIZE ;
+		this.entries = new LinkedHashMap<String, CachedModel>(16, 0.75f, true) {
+			private static final long serialVersionUID = 1L;
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<String, CachedModel> eldest) {
+				if ( size() > ModelCache.this.maxSize ) {
+					evictions.incrementAndGet();
+					return true ;
+				}
+				return false ;
+			}
+		};
+	}
+
+	/**
+	 * Returns the model for the given model file <br>
+	 * ( the model is loaded with the given loader if not in the cache or if the model files have changed )
+	 * @param modelFile
+	 * @param loader
+	 * @return
+	 * @throws Exception the exception thrown by the loader
+	 */
+	public Model getModel(File modelFile, Callable<Model> loader) throws Exception {
+		return getModel(modelFile, loader, false);
+	}
+
+	private Model getModel(File modelFile, Callable<Model> loader, boolean preloading) throws Exception {
+		String key = getKey(modelFile);
+		String stamp = getStamp(modelFile);
+		CachedModel entry ;
+		boolean load = false ;
+		synchronized (entries) {
+			entry = entries.get(key);
+			if ( entry == null || ! entry.stamp.equals(stamp) ) {
+				entry = new CachedModel(stamp, new FutureTask<>(loader));
+				entries.put(key, entry);
+				load = true ;
+			}
+		}
+		if ( load ) {
+			misses.incrementAndGet();
+			entry.future.run();
+		}
+		else {
+			hits.incrementAndGet();
+		}
+		try {
+			return entry.future.get();
+		} catch (ExecutionException e) {
+			// invalid model : not kept in the cache ( once the error has been reported by a foreground request )
+			if ( ! preloading ) {
+				synchronized (entries) {
+					if ( entries.get(key) == entry ) {
+						entries.remove(key);
+					}
+				}
+			}
+			Throwable cause = e.getCause();
+			throw cause instanceof Exception ? (Exception) cause : e ;
+		}
+	}
+
+	/**
+	 * Starts the loading of the given model in a daemon thread <br>
+	 * The next 'getModel' for this model waits for the end of this loading <br>
+	 * ( the loading errors are not reported here, they are thrown by the next 'getModel' without a new loading )
+	 * @param modelFile
+	 * @param loader
+	 */
+	public void preload(final File modelFile, final Callable<Model> loader) {
+		Thread thread = new Thread(new Runnable() {
+			@Override
+			public void run() {
+				try {
+					getModel(modelFile, loader, true);
+				} catch (Exception e) {
+					// invalid model : reported when the model is requested
+				}
+			}
+		}, "model-preload");
+		thread.setDaemon(true);
+		thread.start();
+	}
+
+	private String getKey(File modelFile) throws IOException {
+		return modelFile.getCanonicalPath();
+	}
+
+	/**
+	 * Returns the current stamp of the given model <br>
+	 * ( the DSL entities files are hashed : several changes in the same second are detected )
+	 * @param modelFile
+	 * @return
+	 * @throws IOException
+	 */
+	private String getStamp(File modelFile) throws IOException {
+		StringBuilder sb = new StringBuilder();
+		sb.append(modelFile.length()).append(':').append(modelFile.lastModified());
+		File modelFolder = modelFile.getName().endsWith(".model") ? DslModelUtil.getModelFolder(modelFile) : null ;
+		if ( modelFolder != null && modelFolder.isDirectory() ) {
+			File[] files = modelFolder.listFiles();
+			if ( files != null ) {
+				Arrays.sort(files);
+				for ( File file : files ) {
+					if ( file.isFile() ) {
+						sb.append('\n').append(file.getName()).append(':').append(HashUtil.hashFile(file));
+					}
+				}
+			}
+		}
+		return sb.toString();
+	}
+
+	/**
+	 * Removes the given model (if any)
+	 * @param modelFile
+	 * @return true if the model was in the cache
+	 * @throws IOException
+	 */
+	public boolean remove(File modelFile) throws IOException {
+		String key = getKey(modelFile);
+		synchronized (entries) {
+			return entries.remove(key) != null ;
+		}
+	}
+
+	/**
+	 * Removes all the models
+	 */
+	public void clear() {
+		synchronized (entries) {
+			entries.clear();
+		}
+	}
+
+	public int getSize() {
+		synchronized (entries) {
+			return entries.size();
+		}
+	}
+
+	public int getMaxSize() {
+		return maxSize;
+	}
+
+	public long getHits() {
+		return hits.get();
+	}
+
+	public long getMisses() {
+		return misses.get();
+	}
+
+	public long getEvictions() {
+		return evictions.get();
+	}
+}
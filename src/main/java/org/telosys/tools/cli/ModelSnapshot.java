@@ -0,0 +1,495 @@
+/**
+ *  Copyright (C) 2015-2017  Telosys project org. ( http://www.telosys.org/ )
+ *
+ *  Licensed under the GNU LESSER GENERAL PUBLIC LICENSE, Version 3.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *          http://www.gnu.org/licenses/lgpl.html
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.telosys.tools.cli;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.telosys.tools.cli.generation.HashUtil;
+import org.telosys.tools.dsl.DslModelUtil;
+import org.telosys.tools.generic.model.Attribute;
+import org.telosys.tools.generic.model.CascadeOption;
+import org.telosys.tools.generic.model.CascadeOptions;
+import org.telosys.tools.generic.model.Entity;
+import org.telosys.tools.generic.model.ForeignKey;
+import org.telosys.tools.generic.model.ForeignKeyColumn;
+import org.telosys.tools.generic.model.JoinColumn;
+import org.telosys.tools.generic.model.JoinTable;
+import org.telosys.tools.generic.model.Link;
+import org.telosys.tools.generic.model.Model;
+
+/**
+ * Binary snapshot of a loaded model ( file '<model-file>.snapshot' next to the model file ) <br>
+ * The snapshot keeps all the values exposed by the generic model interfaces ( strings stored once ) <br>
+ * and the hash of the model sources ( model file and DSL entities files ) : an obsolete snapshot is not used <br>
+ * The snapshot is read at once and decoded as read-only implementations of the generic model interfaces <br>
+ * ( not memory-mapped : a mapped file cannot be replaced or deleted on Windows until it is unmapped )
+ *
+ */
+public class ModelSnapshot {
+
+	public static final String SUFFIX = ".snapshot" ;
+
+	private static final int MAGIC = 0x54534e50 ; // "TSNP"
+
+	private static final int FORMAT_VERSION = 1 ;
+
+	/**
+	 * The generic model interfaces stored in the snapshot ( the index is used in the snapshot )
+	 */
+	private static final Class<?>[] MODEL_INTERFACES = { Model.class, Entity.class, Attribute.class, Link.class,
+			ForeignKey.class, ForeignKeyColumn.class, JoinTable.class, JoinColumn.class } ;
+
+	private static final byte NULL    = 0 ;
+	private static final byte STRING  = 1 ;
+	private static final byte TRUE    = 2 ;
+	private static final byte FALSE   = 3 ;
+	private static final byte INTEGER = 4 ;
+	private static final byte DECIMAL = 5 ;
+	private static final byte ENUM    = 6 ;
+	private static final byte CASCADE = 7 ;
+	private static final byte LIST    = 8 ;
+	private static final byte OBJECT  = 9 ;
+	private static final byte ERROR   = 10 ;
+
+	private final File modelFile ;
+
+	private final File file ;
+
+	/**
+	 * Constructor
+	 * @param modelFile the model file ( '.model' or '.dbrep' )
+	 */
+	public ModelSnapshot(File modelFile) {
+		super();
+		this.modelFile = modelFile;
+		this.file = new File(modelFile.getParentFile(), modelFile.getName() + SUFFIX);
+	}
+
+	public File getFile() {
+		return file;
+	}
+
+	public boolean exists() {
+		return file.isFile();
+	}
+
+	/**
+	 * Deletes the snapshot (if any)
+	 * @throws IOException
+	 */
+	public void delete() throws IOException {
+		Files.deleteIfExists(file.toPath());
+	}
+
+	/**
+	 * Returns the hash of the model sources ( model file and entities files for a DSL model )
+	 * @return
+	 * @throws IOException
+	 */
+	private String computeSourceHash() throws IOException {
+		StringBuilder sb = new StringBuilder(HashUtil.hashFile(modelFile));
+		File modelFolder = modelFile.getName().endsWith(".model") ? DslModelUtil.getModelFolder(modelFile) : null ;
+		if ( modelFolder != null && modelFolder.isDirectory() ) {
+			File[] files = modelFolder.listFiles();
+			if ( files != null ) {
+				Arrays.sort(files);
+				for ( File f : files ) {
+					if ( f.isFile() ) {
+						sb.append('\n').append(f.getName()).append(':').append(HashUtil.hashFile(f));
+					}
+				}
+			}
+		}
+		return HashUtil.hashString(sb.toString());
+	}
+
+	private static Method[] getGetters(Class<?> modelInterface) {
+		List<Method> getters = new ArrayList<>();
+		for ( Method method : modelInterface.getMethods() ) {
+			if ( method.getParameterTypes().length == 0 ) {
+				getters.add(method);
+			}
+		}
+		Method[] methods = getters.toArray(new Method[getters.size()]);
+		Arrays.sort(methods, new Comparator<Method>() {
+			@Override
+			public int compare(Method m1, Method m2) {
+				return m1.getName().compareTo(m2.getName());
+			}
+		});
+		return methods ;
+	}
+
+	//---------------------------------------------------------------------------------
+	// Writing
+	//---------------------------------------------------------------------------------
+	/**
+	 * Writes the snapshot of the given model ( loaded from the current model sources )
+	 * @param model
+	 * @throws IOException
+	 */
+	public void write(Model model) throws IOException {
+		File tmpFile = new File(file.getParentFile(), file.getName() + ".tmp");
+		try ( DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tmpFile))) ) {
+			new Writer(out).writeSnapshot(computeSourceHash(), model);
+		}
+		// replaced at once : never read while partially written
+		Files.move(tmpFile.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+	}
+
+	private static class Writer {
+		private final DataOutputStream out ;
+		private final Map<String, Integer> strings = new HashMap<>();
+		private final Method[][] getters = new Method[MODEL_INTERFACES.length][];
+
+		private Writer(DataOutputStream out) {
+			this.out = out ;
+			for ( int i = 0 ; i < MODEL_INTERFACES.length ; i++ ) {
+				getters[i] = getGetters(MODEL_INTERFACES[i]);
+			}
+		}
+
+		private void writeSnapshot(String sourceHash, Model model) throws IOException {
+			out.writeInt(MAGIC);
+			out.writeInt(FORMAT_VERSION);
+			writeString(sourceHash);
+			// getters names ( the values of each object are stored in this order )
+			for ( Method[] methods : getters ) {
+				out.writeInt(methods.length);
+				for ( Method method : methods ) {
+					writeString(method.getName());
+				}
+			}
+			writeValue(model);
+		}
+
+		private void writeString(String s) throws IOException {
+			Integer index = strings.get(s);
+			if ( index != null ) {
+				out.writeInt(index);
+			}
+			else {
+				// new string : the next index followed by the string
+				out.writeInt(strings.size());
+				strings.put(s, strings.size());
+				byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+				out.writeInt(bytes.length);
+				out.write(bytes);
+			}
+		}
+
+		private void writeValue(Object value) throws IOException {
+			if ( value == null ) {
+				out.writeByte(NULL);
+			}
+			else if ( value instanceof String ) {
+				out.writeByte(STRING);
+				writeString((String) value);
+			}
+			else if ( value instanceof Boolean ) {
+				out.writeByte(((Boolean) value) ? TRUE : FALSE);
+			}
+			else if ( value instanceof Integer ) {
+				out.writeByte(INTEGER);
+				out.writeInt((Integer) value);
+			}
+			else if ( value instanceof BigDecimal ) {
+				out.writeByte(DECIMAL);
+				writeString(value.toString());
+			}
+			else if ( value instanceof Enum ) {
+				out.writeByte(ENUM);
+				writeString(((Enum<?>) value).name());
+			}
+			else if ( value instanceof CascadeOptions ) {
+				List<CascadeOption> options = ((CascadeOptions) value).getActiveOptions();
+				out.writeByte(CASCADE);
+				out.writeInt(options.size());
+				for ( CascadeOption option : options ) {
+					writeString(option.name());
+				}
+			}
+			else if ( value instanceof List ) {
+				List<?> list = (List<?>) value ;
+				out.writeByte(LIST);
+				out.writeInt(list.size());
+				for ( Object element : list ) {
+					writeValue(element);
+				}
+			}
+			else {
+				writeObject(value);
+			}
+		}
+
+		private void writeObject(Object object) throws IOException {
+			int i = 0 ;
+			while ( i < MODEL_INTERFACES.length && ! MODEL_INTERFACES[i].isInstance(object) ) {
+				i++ ;
+			}
+			if ( i == MODEL_INTERFACES.length ) {
+				throw new IOException("Unexpected value type '" + object.getClass().getName() + "'");
+			}
+			out.writeByte(OBJECT);
+			out.writeByte(i);
+			for ( Method method : getters[i] ) {
+				Object value ;
+				try {
+					value = method.invoke(object);
+				} catch (InvocationTargetException e) {
+					// the getter is not supported by this model : will throw the same way
+					out.writeByte(ERROR);
+					writeString(e.getCause().getClass().getName() + " : " + e.getCause().getMessage());
+					continue ;
+				} catch (IllegalAccessException e) {
+					throw new IOException("Cannot call '" + method.getName() + "'", e);
+				}
+				writeValue(value);
+			}
+		}
+	}
+
+	//---------------------------------------------------------------------------------
+	// Reading
+	//---------------------------------------------------------------------------------
+	/**
+	 * Reads the snapshot ( the file is read in memory and closed before the decoding )
+	 * @return the model or null if the snapshot doesn't exist, is obsolete or cannot be decoded
+	 */
+	public Model read() {
+		if ( ! exists() ) {
+			return null ;
+		}
+		try {
+			ByteBuffer buffer = ByteBuffer.wrap(Files.readAllBytes(file.toPath()));
+			return new Reader(buffer).readSnapshot(computeSourceHash());
+		} catch (IOException | RuntimeException e) {
+			// invalid snapshot : the model will be parsed
+			return null ;
+		}
+	}
+
+	private static class Reader {
+		private final ByteBuffer buffer ;
+		private final List<String> strings = new ArrayList<>();
+		private final Method[][] getters = new Method[MODEL_INTERFACES.length][];
+
+		private Reader(ByteBuffer buffer) {
+			this.buffer = buffer ;
+		}
+
+		private Model readSnapshot(String sourceHash) throws IOException {
+			if ( buffer.getInt() != MAGIC || buffer.getInt() != FORMAT_VERSION ) {
+				throw new IOException("Invalid snapshot");
+			}
+			if ( ! sourceHash.equals(readString()) ) {
+				return null ; // obsolete
+			}
+			for ( int i = 0 ; i < MODEL_INTERFACES.length ; i++ ) {
+				Map<String, Method> methods = new HashMap<>();
+				for ( Method method : getGetters(MODEL_INTERFACES[i]) ) {
+					methods.put(method.getName(), method);
+				}
+				getters[i] = new Method[buffer.getInt()];
+				for ( int j = 0 ; j < getters[i].length ; j++ ) {
+					getters[i][j] = methods.get(readString()); // null if no longer in the interface
+				}
+			}
+			Object model = readValue(null);
+			if ( ! ( model instanceof Model ) ) {
+				throw new IOException("Invalid snapshot (no model)");
+			}
+			return (Model) model ;
+		}
+
+		private String readString() {
+			int index = buffer.getInt();
+			if ( index < strings.size() ) {
+				return strings.get(index);
+			}
+			byte[] bytes = new byte[buffer.getInt()];
+			buffer.get(bytes);
+			String s = new String(bytes, StandardCharsets.UTF_8);
+			strings.add(s);
+			return s ;
+		}
+
+		/**
+		 * Reads a value
+		 * @param method the getter returning the value ( used to decode the enumerations ), or null
+		 * @return
+		 * @throws IOException
+		 */
+		private Object readValue(Method method) throws IOException {
+			byte tag = buffer.get();
+			switch ( tag ) {
+			case NULL :
+				return null ;
+			case STRING :
+				return readString();
+			case TRUE :
+				return Boolean.TRUE ;
+			case FALSE :
+				return Boolean.FALSE ;
+			case INTEGER :
+				return buffer.getInt();
+			case DECIMAL :
+				return new BigDecimal(readString());
+			case ENUM :
+				return readEnum(method, readString());
+			case CASCADE :
+				CascadeOptions options = new CascadeOptions();
+				int n = buffer.getInt();
+				for ( int i = 0 ; i < n ; i++ ) {
+					options.add(CascadeOption.valueOf(readString()));
+				}
+				return options ;
+			case LIST :
+				int size = buffer.getInt();
+				List<Object> list = new ArrayList<>(size);
+				for ( int i = 0 ; i < size ; i++ ) {
+					list.add(readValue(null));
+				}
+				return list ;
+			case OBJECT :
+				return readObject();
+			case ERROR :
+				return new SnapshotError(readString());
+			default :
+				throw new IOException("Invalid snapshot (tag " + tag + ")");
+			}
+		}
+
+		@SuppressWarnings({ "unchecked", "rawtypes" })
+		private Object readEnum(Method method, String name) {
+			if ( method != null && method.getReturnType().isEnum() ) {
+				return Enum.valueOf((Class<? extends Enum>) method.getReturnType(), name);
+			}
+			return name ;
+		}
+
+		private Object readObject() throws IOException {
+			int i = buffer.get();
+			Class<?> modelInterface = MODEL_INTERFACES[i];
+			Map<String, Object> values = new HashMap<>();
+			for ( Method method : getters[i] ) {
+				Object value = readValue(method);
+				if ( method != null ) {
+					values.put(method.getName(), value);
+				}
+			}
+			return Proxy.newProxyInstance(ModelSnapshot.class.getClassLoader(), new Class<?>[] { modelInterface },
+					new SnapshotObject(modelInterface, values));
+		}
+	}
+
+	/**
+	 * A getter that failed when the snapshot was written
+	 */
+	private static class SnapshotError {
+		private final String message ;
+
+		private SnapshotError(String message) {
+			this.message = message ;
+		}
+	}
+
+	/**
+	 * Implementation of a generic model interface with the values read in the snapshot
+	 */
+	private static class SnapshotObject implements InvocationHandler {
+		private final Class<?> modelInterface ;
+		private final Map<String, Object> values ;
+
+		private SnapshotObject(Class<?> modelInterface, Map<String, Object> values) {
+			this.modelInterface = modelInterface ;
+			this.values = values ;
+		}
+
+		@Override
+		public Object invoke(Object proxy, Method method, Object[] args) {
+			String name = method.getName();
+			if ( args == null || args.length == 0 ) {
+				if ( values.containsKey(name) ) {
+					Object value = values.get(name);
+					if ( value instanceof SnapshotError ) {
+						throw new UnsupportedOperationException(((SnapshotError) value).message);
+					}
+					return value ;
+				}
+				else if ( "hashCode".equals(name) ) {
+					return System.identityHashCode(proxy);
+				}
+				else if ( "toString".equals(name) ) {
+					return modelInterface.getSimpleName() + "@" + Integer.toHexString(System.identityHashCode(proxy)) ;
+				}
+			}
+			else if ( "equals".equals(name) && args.length == 1 ) {
+				return proxy == args[0] ;
+			}
+			else if ( "getEntityByClassName".equals(name) ) {
+				return findEntity(args[0], "getClassName");
+			}
+			else if ( "getEntityByTableName".equals(name) ) {
+				return findEntity(args[0], "getDatabaseTable");
+			}
+			return defaultValue(method.getReturnType());
+		}
+
+		private Entity findEntity(Object name, String getter) {
+			Object entities = values.get("getEntities");
+			if ( name != null && entities instanceof List ) {
+				for ( Object e : (List<?>) entities ) {
+					Entity entity = (Entity) e ;
+					Object value = "getClassName".equals(getter) ? entity.getClassName() : entity.getDatabaseTable() ;
+					if ( name.equals(value) ) {
+						return entity ;
+					}
+				}
+			}
+			return null ;
+		}
+
+		private Object defaultValue(Class<?> type) {
+			if ( type == boolean.class ) {
+				return Boolean.FALSE ;
+			}
+			else if ( type == int.class ) {
+				return 0 ;
+			}
+			return null ;
+		}
+	}
+}
@@ -16,6 +16,7 @@
 package org.telosys.tools.cli;
 
 import java.io.IOException;
+import java.io.OutputStream;
 import java.io.PrintWriter;
 
 import org.telosys.tools.cli.observer.DbMetadataObserver;
@@ -42,8 +43,21 @@ public class TelosysCLI {
 	 * @throws IOException
 	 */
 	public TelosysCLI() throws IOException {
+		this(new ConsoleReader());
+	}
+	
+	/**
+	 * Constructor with a specific console output ( eg the error output )
+	 * @param consoleOutput
+	 * @throws IOException
+	 */
+	public TelosysCLI(OutputStream consoleOutput) throws IOException {
+		this(new ConsoleReader(System.in, consoleOutput));
+	}
+	
+	private TelosysCLI(ConsoleReader consoleReader) {
 		super();
-		this.consoleReader = new ConsoleReader() ;
+		this.consoleReader = consoleReader ;
 		this.out = new PrintWriter(consoleReader.getOutput());
 		this.commandProvider = new CommandProvider(consoleReader);
 		this.commandLineProcessor = new CommandLineProcessor( consoleReader, commandProvider ) ;
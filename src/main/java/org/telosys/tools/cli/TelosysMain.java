@@ -32,7 +32,17 @@ public class TelosysMain {
 	 */
 	public static void main(String[] args) throws IOException {
 
-		TelosysCLI cli = new TelosysCLI();
+		// the console uses the error output if the generated archive is written on the standard output
+		TelosysCLI cli ;
+		if ( LaunchArgumentsProcessor.isStandardOutputArchive(args) ) {
+			// the archive is written in the standard output file descriptor : 'System.out' is only used for the messages
+			// ( observers, loggers, etc ) which must not be mixed with the archive content
+			System.setOut(System.err);
+			cli = new TelosysCLI(System.err);
+		}
+		else {
+			cli = new TelosysCLI();
+		}
 		
 		cli.start(args);
 	}
@@ -0,0 +1,210 @@
+/**
+ *  Copyright (C) 2015-2017  Telosys project org. ( http://www.telosys.org/ )
+ *
+ *  Licensed under the GNU LESSER GENERAL PUBLIC LICENSE, Version 3.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *          http://www.gnu.org/licenses/lgpl.html
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.telosys.tools.cli.commands;
+
+import java.io.File;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import jline.console.ConsoleReader;
+
+import org.apache.velocity.Template;
+import org.telosys.tools.api.TelosysProject;
+import org.telosys.tools.cli.Command;
+import org.telosys.tools.cli.Environment;
+import org.telosys.tools.cli.generation.BundleFiles;
+import org.telosys.tools.cli.generation.TargetRenderer;
+import org.telosys.tools.cli.generation.TemplateProfiler;
+import org.telosys.tools.commons.FileUtil;
+import org.telosys.tools.commons.TelosysToolsException;
+import org.telosys.tools.commons.bundles.TargetDefinition;
+import org.telosys.tools.commons.bundles.TargetsDefinitions;
+import org.telosys.tools.commons.cfg.TelosysToolsCfg;
+import org.telosys.tools.commons.logger.SilentLogger;
+
+/**
+ * Checks a bundle : parses all the templates of 'templates.cfg' concurrently <br>
+ * and reports the syntax errors and the targets without template or resource <br>
+ * The parsed templates are kept in the session cache for the next generations
+ *
+ */
+public class CheckBundleCommand extends Command {
+
+	/**
+	 * Constructor
+	 * @param consoleReader
+	 * @param environment
+	 */
+	public CheckBundleCommand(ConsoleReader consoleReader, Environment environment) {
+		super(consoleReader, environment);
+	}
+
+	@Override
+	public String getName() {
+		return "cb";
+	}
+
+	@Override
+	public String getShortDescription() {
+		return "Check Bundle" ;
+	}
+
+	@Override
+	public String getDescription() {
+		return "Checks the given bundle or the current bundle (parses all the templates)";
+	}
+
+	@Override
+	public String getUsage() {
+		return "cb [bundle-name]";
+	}
+
+	@Override
+	public String execute(String[] args) {
+		if ( checkArguments(args, 0, 1) && checkHomeDirectoryDefined() ) {
+			if ( args.length > 1 ) {
+				return checkBundle(args[1]);
+			}
+			else if ( checkBundleDefined() ) {
+				return checkBundle(getCurrentBundle());
+			}
+		}
+		return null ;
+	}
+
+	private String checkBundle(String bundleName) {
+		TelosysProject telosysProject = getTelosysProject();
+		TelosysToolsCfg telosysToolsCfg ;
+		TargetsDefinitions targetsDefinitions ;
+		File bundleFolder ;
+		try {
+			telosysToolsCfg = telosysProject.getTelosysToolsCfg();
+			bundleFolder = new File(telosysToolsCfg.getTemplatesFolderAbsolutePath(bundleName));
+			if ( ! bundleFolder.isDirectory() ) {
+				return "Bundle '" + bundleName + "' not found" ;
+			}
+			targetsDefinitions = telosysProject.getTargetDefinitions(bundleName);
+		} catch (TelosysToolsException e) {
+			printError(e);
+			return null ;
+		}
+		long start = System.currentTimeMillis();
+		List<String> errors = new LinkedList<>();
+
+		// Templates and resources existence
+		Set<String> templates = new LinkedHashSet<>();
+		for ( TargetDefinition td : targetsDefinitions.getTemplatesTargets() ) {
+			if ( new File(bundleFolder, td.getTemplate()).isFile() ) {
+				templates.add(td.getTemplate());
+			}
+			else {
+				errors.add("Target '" + td.getName() + "' : template '" + td.getTemplate() + "' not found");
+			}
+		}
+		String resourcesFolder = FileUtil.buildFilePath(bundleFolder.getAbsolutePath(), BundleFiles.RESOURCES_FOLDER);
+		for ( TargetDefinition td : targetsDefinitions.getResourcesTargets() ) {
+			if ( ! new File(FileUtil.buildFilePath(resourcesFolder, td.getTemplate())).exists() ) {
+				errors.add("Target '" + td.getName() + "' : resource '" + td.getTemplate() + "' not found");
+			}
+		}
+
+		// Templates parsing ( kept in the session cache with the stamp used by the generation )
+		List<String> allTemplates = new LinkedList<>();
+		for ( TargetDefinition td : targetsDefinitions.getTemplatesTargets() ) {
+			allTemplates.add(td.getTemplate());
+		}
+		TargetRenderer renderer = new TargetRenderer(telosysToolsCfg, bundleName, new SilentLogger(), null,
+				getEnvironment().getTemplateCache(), BundleFiles.getSharedFilesStamp(bundleFolder, allTemplates));
+		TemplateProfiler templateProfiler = getEnvironment().getTemplateProfiler();
+		if ( templateProfiler.isEnabled() ) {
+			renderer.setTemplateProfiler(templateProfiler);
+		}
+		errors.addAll(parseTemplates(renderer, templates));
+
+		StringBuilder sb = new StringBuilder();
+		appendLine(sb, "Bundle '" + bundleName + "' : " + targetsDefinitions.getTemplatesTargets().size() + " template target(s), "
+				+ targetsDefinitions.getResourcesTargets().size() + " resource target(s)");
+		for ( String error : errors ) {
+			appendLine(sb, " - " + error);
+		}
+		appendLine(sb, templates.size() + " template(s) checked in " + ( System.currentTimeMillis() - start ) + " ms, "
+				+ errors.size() + " error(s)");
+		return sb.toString();
+	}
+
+	/**
+	 * Parses the given templates concurrently
+	 * @param renderer the renderer used to load the templates
+	 * @param templates
+	 * @return the errors
+	 */
+	private List<String> parseTemplates(final TargetRenderer renderer, Set<String> templates) {
+		List<String> errors = new LinkedList<>();
+		if ( templates.isEmpty() ) {
+			return errors ;
+		}
+		int threads = Math.min(templates.size(), Runtime.getRuntime().availableProcessors());
+		ExecutorService executor = Executors.newFixedThreadPool(threads);
+		Map<String, Future<Template>> futures = new LinkedHashMap<>();
+		try {
+			for ( final String template : templates ) {
+				futures.put(template, executor.submit(new Callable<Template>() {
+					@Override
+					public Template call() throws Exception {
+						return renderer.loadTemplate(template);
+					}
+				}));
+			}
+			for ( Map.Entry<String, Future<Template>> e : futures.entrySet() ) {
+				try {
+					e.getValue().get();
+				} catch (ExecutionException ex) {
+					errors.add("Template '" + e.getKey() + "' : " + getRootMessage(ex.getCause()));
+				}
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			errors.add("Check interrupted");
+		}
+		finally {
+			executor.shutdown();
+		}
+		return errors ;
+	}
+
+	private String getRootMessage(Throwable ex) {
+		Throwable t = ex ;
+		while ( t.getCause() != null && t.getCause() != t ) {
+			t = t.getCause();
+		}
+		if ( t.getMessage() == null ) {
+			return t.getClass().getSimpleName() ;
+		}
+		// first line only ( the parser message lists all the expected tokens )
+		String message = t.getMessage().trim();
+		int i = message.indexOf('\n');
+		return i > 0 ? message.substring(0, i).trim() : message ;
+	}
+}
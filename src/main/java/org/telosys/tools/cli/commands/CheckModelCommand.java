@@ -16,11 +16,14 @@
 package org.telosys.tools.cli.commands;
 
 import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
 
 import jline.console.ConsoleReader;
 
 import org.telosys.tools.cli.CommandWithModel;
 import org.telosys.tools.cli.Environment;
+import org.telosys.tools.cli.ModelSnapshot;
 import org.telosys.tools.generic.model.Model;
 
 /**
@@ -31,6 +34,8 @@ import org.telosys.tools.generic.model.Model;
  */
 public class CheckModelCommand extends CommandWithModel {
 
+	private static final String SNAPSHOT_OPTION = "--snapshot" ;
+
 	/**
 	 * Constructor
 	 * @param out
@@ -51,22 +56,24 @@ public class CheckModelCommand extends CommandWithModel {
 
 	@Override
 	public String getDescription() {
-		return "Check the current/given model";
+		return "Check the current/given model ( '--snapshot' : rebuild the binary snapshot used to reload the model )";
 	}
 	
 	@Override
 	public String getUsage() {
-		return "cm [model-name]";
+		return "cm [model-name] [--snapshot]";
 	}
 	
 	@Override
 	public String execute(String[] args) {
 		
-		if ( checkHomeDirectoryDefined() ) {
-			File modelFile = findModelFile(args) ;
+		boolean snapshot = args.length > 1 && SNAPSHOT_OPTION.equals(args[args.length-1]) ;
+		String[] modelArgs = snapshot ? Arrays.copyOf(args, args.length-1) : args ;
+		if ( checkArguments(modelArgs, 0, 1) && checkHomeDirectoryDefined() ) {
+			File modelFile = findModelFile(modelArgs) ;
 			// if found => launch the editor
 			if ( modelFile != null ) {
-				return checkModel(modelFile);
+				return snapshot ? buildSnapshot(modelFile) : checkModel(modelFile);
 			}
 		}
 		return null;
@@ -81,4 +88,34 @@ public class CheckModelCommand extends CommandWithModel {
 		}
 		return null ;
 	}
+
+	private String buildSnapshot(File modelFile) {
+		ModelSnapshot snapshot = new ModelSnapshot(modelFile);
+		try {
+			// the model is parsed ( not taken from the cache or from the previous snapshot )
+			snapshot.delete();
+			getEnvironment().getModelCache().remove(modelFile);
+			long start = System.currentTimeMillis();
+			Model model = loadModel(modelFile);
+			if ( model == null ) {
+				return null ;
+			}
+			long parsingTime = System.currentTimeMillis() - start ;
+			snapshot.write(model);
+			start = System.currentTimeMillis();
+			Model snapshotModel = snapshot.read();
+			long readingTime = System.currentTimeMillis() - start ;
+			if ( snapshotModel == null || snapshotModel.getEntities().size() != model.getEntities().size() ) {
+				snapshot.delete();
+				return "Cannot build the snapshot of '" + modelFile.getName() + "'" ;
+			}
+			print( "Model OK (file '" + modelFile.getName() + "' loaded : " + model.getEntities().size() + " entities, " 
+					+ parsingTime + " ms)" );
+			return "Snapshot '" + snapshot.getFile().getName() + "' written (" + ( snapshot.getFile().length() / 1024 ) 
+					+ " KB, reloaded in " + readingTime + " ms)" ;
+		} catch (IOException e) {
+			printError(e);
+			return null ;
+		}
+	}
 }
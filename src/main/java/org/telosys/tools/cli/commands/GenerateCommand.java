@@ -15,23 +15,62 @@
  */
 package org.telosys.tools.cli.commands;
 
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
 
 import org.telosys.tools.api.TelosysProject;
 import org.telosys.tools.cli.CommandWithModel;
 import org.telosys.tools.cli.Environment;
+import org.telosys.tools.cli.commands.util.GenerateArguments;
 import org.telosys.tools.cli.commons.CriteriaUtil;
 import org.telosys.tools.cli.commons.EntityUtil;
 import org.telosys.tools.cli.commons.TargetUtil;
+import org.telosys.tools.cli.generation.ArchiveOutputWriter;
+import org.telosys.tools.cli.generation.EntityGraph;
+import org.telosys.tools.cli.generation.GenerationListener;
+import org.telosys.tools.cli.generation.GenerationManifest;
+import org.telosys.tools.cli.generation.GenerationProfiler;
+import org.telosys.tools.cli.generation.GenerationSummary;
+import org.telosys.tools.cli.generation.GenerationTimings;
+import org.telosys.tools.cli.generation.GenerationWatcher;
+import org.telosys.tools.cli.generation.ParallelGenerator;
+import org.telosys.tools.cli.generation.ResourcesCopyEngine;
+import org.telosys.tools.cli.generation.ShardPlanner;
+import org.telosys.tools.cli.generation.StagingArea;
+import org.telosys.tools.cli.generation.TemplateCache;
+import org.telosys.tools.cli.observer.GenerationProgressObserver;
+import org.telosys.tools.cli.observer.GenerationReportObserver;
+import org.telosys.tools.cli.observer.GenerationThroughputObserver;
+import org.telosys.tools.commons.TelosysToolsLogger;
 import org.telosys.tools.commons.TelosysToolsException;
 import org.telosys.tools.commons.bundles.TargetDefinition;
 import org.telosys.tools.commons.bundles.TargetsDefinitions;
+import org.telosys.tools.commons.cfg.TelosysToolsCfg;
+import org.telosys.tools.commons.logger.ConsoleLogger;
+import org.telosys.tools.commons.logger.SilentLogger;
+import org.telosys.tools.dsl.DslModelUtil;
+import org.telosys.tools.generator.GeneratorException;
+import org.telosys.tools.generator.task.ErrorProcessor;
 import org.telosys.tools.generator.task.ErrorReport;
 import org.telosys.tools.generator.task.GenerationTaskResult;
 import org.telosys.tools.generic.model.Entity;
 import org.telosys.tools.generic.model.Model;
 
+import jline.Terminal;
 import jline.console.ConsoleReader;
 
 /**
@@ -43,6 +82,26 @@ import jline.console.ConsoleReader;
 public class GenerateCommand extends CommandWithModel {
 
 	private Boolean hasErrors = false;
+
+	private boolean progressLine = true ;
+
+	private boolean standardOutputArchive = false ; // archive on the standard output ( console not on the standard output )
+
+	private final List<GenerationListener> listeners = new LinkedList<>();
+
+	private GenerationThroughputObserver throughputObserver = null ; // batch mode ( one listener per generation )
+
+	private List<String> profile = null ; // profiling report of the last generation
+
+	private String cacheStats = null ; // templates cache statistics for the last generation
+
+	private static final int CHUNKED_MAX_ERRORS = 100 ; // errors kept in a memory-bounded generation
+
+	private ForkJoinPool sharedPool = null ; // workers shared by the bundles of a multi-bundle generation
+
+	private Model lastModel = null ; // model used by the last generation ( kept for the watch mode )
+
+	private GenerationReportObserver report = null ; // report of the current generation ( '--report' )
 	
 	/**
 	 * Constructor
@@ -70,20 +129,31 @@ public class GenerateCommand extends CommandWithModel {
 	
 	@Override
 	public String getUsage() {
-		return "gen *|entity-name *|template-name [-r]";
+		return "gen *|entity-name *|template-name [-r [--hardlinks]] [-j N] [-i|--incremental] [--staged] [--shard i/n] [--affected-by entity-names] [--chunk N] [--archive file|- | --tar file|-] [--report file.json|file.csv] [-b bundle-names] [--models *|model-names] [--watch] [--profile [--top N]] [--stats]"
+				+ " | gen [*|entity-name *|template-name] --shard-plan N"
+				+ " | gen --affected-by entity-names"
+				+ " | gen --models *|model-names";
 	}
 
 	@Override
 	public String execute(String[] args) {
 		hasErrors = true;
-		if ( checkModelDefined() && checkBundleDefined() ) {
-			// Check arguments :
-			// 1 : gen -r
-			// 2 : gen * * 
-			// 3 : gen * * -r 
-			if ( checkArguments(args, 1, 2, 3 ) ) {
-				generate(args);
-				return null;
+		GenerateArguments arguments = new GenerateArguments(args);
+		// no current model required with '--models'
+		if ( ( arguments.hasModelsOption() || checkModelDefined() ) && checkBundleDefined() ) {
+			if ( arguments.hasErrors() ) {
+				// Invalid argument(s)
+				for ( String s : arguments.getErrors() ) {
+					print(s);
+				}
+			}
+			else if ( isStandardOutputArchive(arguments) && ! standardOutputArchive ) {
+				// the console output would be mixed with the archive bytes
+				print("Archive on the standard output ('-') not allowed in the console");
+				print("( use an archive file or the launch arguments '-archive -' or '-tar -' )");
+			}
+			else if ( checkArguments(arguments) ) {
+				generate(arguments);
 			}
 		}
 		return null ;
@@ -94,83 +164,238 @@ public class GenerateCommand extends CommandWithModel {
 		return hasErrors;
 	}
 
+	/**
+	 * Adds a listener notified of the events of the next generations
+	 * @param listener
+	 */
+	public void addGenerationListener(GenerationListener listener) {
+		listeners.add(listener);
+	}
+
+	public void removeGenerationListener(GenerationListener listener) {
+		listeners.remove(listener);
+	}
+
+	/**
+	 * Sets the throughput logger of the next generations ( or null for no logging )
+	 * @param throughputObserver
+	 */
+	public void setThroughputObserver(GenerationThroughputObserver throughputObserver) {
+		this.throughputObserver = throughputObserver;
+	}
+
+	/**
+	 * Enables or disables the live progress line <br>
+	 * ( if disabled the generation details are logged on the console )
+	 * @param progressLine
+	 */
+	public void setProgressLine(boolean progressLine) {
+		this.progressLine = progressLine;
+	}
+
+	/**
+	 * Allows or forbids the archive on the standard output ( '--archive -' or '--tar -' ) <br>
+	 * ( allowed only if the console does not use the standard output )
+	 * @param standardOutputArchive
+	 */
+	public void setStandardOutputArchive(boolean standardOutputArchive) {
+		this.standardOutputArchive = standardOutputArchive;
+	}
+
+	/**
+	 * Check arguments : <br>
+	 *  1 : gen -r <br>
+	 *  2 : gen * * <br>
+	 *  3 : gen * * -r <br>
+	 *  4 : gen [* *] --shard-plan N <br>
+	 *  5 : gen [* *] --affected-by Car,Driver <br>
+	 *  6 : gen [* *] --models * <br>
+	 * ( each form accepting the '-j N' and '-i' options )
+	 * @param arguments
+	 * @return
+	 */
+	private boolean checkArguments(GenerateArguments arguments) {
+		int n = arguments.getValues().size();
+		if ( n == 2 || ( n == 0 && ( arguments.hasResourcesOption() || arguments.hasShardPlanOption() 
+				|| arguments.hasAffectedByOption() || arguments.hasModelsOption() ) ) ) {
+			return true ;
+		}
+		else {
+			print("Invalid usage : unexpected number of arguments");
+			return false ;
+		}
+	}
+
 	/**
 	 * Generation entry point
-	 * @param args all the arguments as provided by the command line (0 to N)
+	 * @param arguments the arguments as provided by the command line
 	 */
-	private void generate(String[] args)  {
+	private void generate(GenerateArguments arguments)  {
 		GenerationTaskResult result = null ;
+		profile = null ;
+		cacheStats = null ;
+		report = null ;
 		try {
-			if ( args.length == 3 ) {
-				// gen * * 
-				result = generate(args[1], args[2], false);
-			}
-			else if ( args.length == 4 ) {
-				// gen * * -r 
-				if ( checkResourcesOption(args[3]) ) {
-					result = generate(args[1], args[2], true);
-				}
+			List<String> values = arguments.getValues();
+			if ( arguments.hasReportOption() && ! arguments.hasShardPlanOption() ) {
+				report = openReport(arguments);
 			}
-			else if ( args.length == 2 ) {
+			if ( arguments.hasShardPlanOption() ) {
+				// gen [* *] --shard-plan N
+				printShardPlan(values.isEmpty() ? "*" : values.get(0), values.isEmpty() ? "*" : values.get(1), 
+						arguments.getShardPlan());
+			}
+			else if ( values.size() == 2 ) {
+				// gen * * [-r]
+				result = generate(values.get(0), values.get(1), arguments);
+			}
+			else if ( arguments.hasAffectedByOption() || arguments.hasModelsOption() ) {
+				// gen --affected-by Car,Driver  or  gen --models *
+				result = generate("*", "*", arguments);
+			}
+			else {
 				// gen -r 
-				if ( checkResourcesOption(args[1]) ) {
-					result = generateResources();
-				}
+				result = generateResources(arguments);
 			}
 			
 			if ( result != null ) {
 				printResult(result);
 			}
+			if ( cacheStats != null ) {
+				print(cacheStats);
+			}
+			if ( profile != null ) {
+				for ( String line : profile ) {
+					print(line);
+				}
+			}
+			if ( report != null ) {
+				closeReport(report, result);
+				report = null ;
+			}
+			if ( arguments.hasWatchOption() && lastModel != null ) {
+				watch(values.isEmpty() ? "*" : values.get(0), values.isEmpty() ? "*" : values.get(1), arguments);
+			}
 		} catch (TelosysToolsException e) {
 			printError(e);
 		}
+		finally {
+			if ( report != null ) {
+				closeReport(report, null);
+				report = null ;
+			}
+		}
 	}
-	
-	private boolean checkResourcesOption(String option) {
-		if ( "-r".equals(option) ) {
-			return true ;
+
+	/**
+	 * Creates the report with the models and the bundles of the generation
+	 * @param arguments
+	 * @return
+	 * @throws TelosysToolsException
+	 */
+	private GenerationReportObserver openReport(GenerateArguments arguments) throws TelosysToolsException {
+		List<String> modelNames = new LinkedList<>();
+		if ( arguments.hasModelsOption() ) {
+			for ( File modelFile : selectModelFiles(arguments, false) ) {
+				modelNames.add(modelFile.getName());
+			}
 		}
 		else {
-			print("Invalid argument '" + option + "' ( '-r' expected ) ");
-			return false ;
+			modelNames.add(getCurrentModel());
+		}
+		List<String> bundleNames = arguments.hasBundlesOption() ? arguments.getBundles() 
+				: Collections.singletonList(getCurrentBundle()) ;
+		try {
+			return new GenerationReportObserver(new File(arguments.getReport()), modelNames, bundleNames);
+		} catch (IOException e) {
+			throw new TelosysToolsException("Cannot create report '" + arguments.getReport() + "'", e);
+		}
+	}
+
+	private void closeReport(GenerationReportObserver report, GenerationTaskResult result) {
+		try {
+			report.close(result);
+			print("Report written in '" + report.getFile() + "'");
+		} catch (IOException e) {
+			printError(e);
 		}
 	}
 	
 	/**
 	 * @param argEntityNames argument for entities ( eg '*', 'Car', 'Car,Driver', etc )
 	 * @param argTemplateNames argument for templates ( eg '*', 'CacheFilter_java.vm', '_java,_xml', etc )
-	 * @param flagResources resources generation flag : true = generate resources
+	 * @param arguments the command arguments ( options )
 	 * @return 
 	 * @throws TelosysToolsException
 	 */
 	private GenerationTaskResult generate(String argEntityNames, String argTemplateNames, 
-			boolean flagResources) throws TelosysToolsException {
+			GenerateArguments arguments) throws TelosysToolsException {
 		
-		TelosysProject telosysProject = getTelosysProject();
+		if ( arguments.hasModelsOption() ) {
+			return generateModels(argEntityNames, argTemplateNames, arguments);
+		}
+		if ( arguments.hasBundlesOption() ) {
+			return generateBundles(argEntityNames, argTemplateNames, arguments);
+		}
+		GenerationProfiler profiler = arguments.hasProfileOption() ? new GenerationProfiler() : null ;
+
 		// Loads the model for the current model name
+		GenerationProfiler.Measure measure = profiler != null ? profiler.start() : null ;
+		lastModel = null ;
 		Model model = loadCurrentModel();
+		if ( profiler != null ) {
+			profiler.stop(GenerationProfiler.Phase.MODEL_LOADING, measure);
+		}
 		List<Entity> entities = buildEntitiesList(argEntityNames, model);
 		
 		String bundleName = getCurrentBundle() ;
+		measure = profiler != null ? profiler.start() : null ;
 		List<TargetDefinition> targetDefinitions = buildTargetsList(argTemplateNames);
+		if ( profiler != null ) {
+			profiler.stop(GenerationProfiler.Phase.TARGETS_LOADING, measure);
+		}
 		
-		print("Entities ( model = '"+getCurrentModel()+"' ) : ");
-		print ( EntityUtil.buildListAsString(entities) );
 		List<String> entityNames = EntityUtil.toEntityNames(entities);
+		Set<String> affectedEntities = null ;
+		if ( arguments.hasAffectedByOption() ) {
+			// only the entities affected by the given entities ( the "once" targets keep all the selected entities )
+			affectedEntities = buildAffectedEntities(arguments.getAffectedBy(), model);
+			entities = EntityUtil.filter(entities, null, affectedEntities);
+		}
+
+		printEntities(entities, arguments);
 
 		print("Templates ( bundle = '"+bundleName+"' ) : ");
 		print ( TargetUtil.buildListAsString(targetDefinitions) );
 
-		print("Copy resources : " + ( flagResources ? "yes" : "no" ));
+		printOptions(arguments);
 
-		if ( entityNames.isEmpty() || targetDefinitions.isEmpty() ) {
+		if ( entities.isEmpty() || targetDefinitions.isEmpty() ) {
 			print("No entity or no templates => nothing to generate ");
 			return null ;
 		}
 		else {
 			if ( confirm("Do you want to launch the generation") ) {
-				print("Generation in progress...");
-				GenerationTaskResult res = telosysProject.launchGeneration(model, entityNames, bundleName, targetDefinitions, flagResources);
+				GenerationTaskResult res ;
+				if ( arguments.hasWorkersOption() ) {
+					print("Generation in progress (" + arguments.getWorkers() + " worker(s))...");
+				}
+				else {
+					print("Generation in progress...");
+				}
+				TemplateCache templateCache = getEnvironment().getTemplateCache();
+				long hits = templateCache.getHits();
+				long misses = templateCache.getMisses();
+				res = launchParallelGeneration(model, entityNames, bundleName, targetDefinitions, arguments, profiler, 
+						affectedEntities);
+				lastModel = model ;
+				if ( arguments.hasStatsOption() ) {
+					cacheStats = buildCacheStats(templateCache, templateCache.getHits() - hits, 
+							templateCache.getMisses() - misses);
+				}
+				if ( profiler != null ) {
+					profile = profiler.buildReport(arguments.getTop());
+				}
 				if (res.getNumberOfGenerationErrors()>0 || res.getErrors().size()>0) {
 					hasErrors = true;
 				} else {
@@ -185,16 +410,592 @@ public class GenerateCommand extends CommandWithModel {
 		}
 	}
 
-	private GenerationTaskResult generateResources() throws TelosysToolsException {
-		
+	private void printEntities(List<Entity> entities, GenerateArguments arguments) {
+		print("Entities ( model = '"+getCurrentModel()+"' ) : ");
+		if ( arguments.hasChunkOption() ) {
+			print(" " + entities.size() + " entities"); // no list for a huge model
+		}
+		else {
+			print ( EntityUtil.buildListAsString(entities) );
+		}
+	}
+
+	private void printOptions(GenerateArguments arguments) {
+		print("Copy resources : " + ( arguments.hasResourcesOption() ? "yes" : "no" ));
+		if ( arguments.hasIncrementalOption() ) {
+			print("Incremental generation : yes");
+		}
+		if ( arguments.hasStagedOption() ) {
+			print("Staged generation : yes");
+		}
+		if ( arguments.hasShardOption() ) {
+			print("Shard : " + arguments.getShardIndex() + "/" + arguments.getShardCount());
+		}
+		if ( arguments.hasChunkOption() ) {
+			print("Chunked generation : " + arguments.getChunkSize() + " entities max per chunk");
+		}
+		if ( arguments.hasArchiveOption() ) {
+			print("Archive : " + arguments.getArchive() + ( arguments.isTarArchive() ? " (tar)" : " (zip)" ));
+		}
+	}
+
+	/**
+	 * Generation with the bundles given with '-b' ( eg 'gen * * -b jpa,rest,web' ) <br>
+	 * The model is loaded once, the bundles are generated concurrently with a shared pool of workers
+	 * @param argEntityNames
+	 * @param argTemplateNames
+	 * @param arguments
+	 * @return the result for all the bundles
+	 * @throws TelosysToolsException
+	 */
+	private GenerationTaskResult generateBundles(String argEntityNames, String argTemplateNames, 
+			final GenerateArguments arguments) throws TelosysToolsException {
+
+		final GenerationProfiler profiler = arguments.hasProfileOption() ? new GenerationProfiler() : null ;
+		GenerationProfiler.Measure measure = profiler != null ? profiler.start() : null ;
+		lastModel = null ;
+		final Model model = loadCurrentModel();
+		if ( profiler != null ) {
+			profiler.stop(GenerationProfiler.Phase.MODEL_LOADING, measure);
+		}
+		List<Entity> entities = buildEntitiesList(argEntityNames, model);
+		final List<String> entityNames = EntityUtil.toEntityNames(entities);
+		Set<String> affected = null ;
+		if ( arguments.hasAffectedByOption() ) {
+			affected = buildAffectedEntities(arguments.getAffectedBy(), model);
+			entities = EntityUtil.filter(entities, null, affected);
+		}
+		final Set<String> affectedEntities = affected ;
+
+		// All the targets of all the bundles
+		final Map<String, TargetsDefinitions> bundlesTargets = new LinkedHashMap<>();
+		final Map<String, List<TargetDefinition>> bundlesSelection = new LinkedHashMap<>();
+		measure = profiler != null ? profiler.start() : null ;
+		loadBundlesTargets(arguments.getBundles(), argTemplateNames, bundlesTargets, bundlesSelection);
+		if ( profiler != null ) {
+			profiler.stop(GenerationProfiler.Phase.TARGETS_LOADING, measure);
+		}
+
+		printEntities(entities, arguments);
+		int numberOfTargets = printBundlesTargets(bundlesSelection);
+		printOptions(arguments);
+
+		if ( entities.isEmpty() || numberOfTargets == 0 ) {
+			print("No entity or no templates => nothing to generate ");
+			return null ;
+		}
+		if ( ! confirm("Do you want to launch the generation") ) {
+			print("Generation canceled.");
+			return null ;
+		}
+		int workers = arguments.hasWorkersOption() ? arguments.getWorkers() : bundlesSelection.size() ;
+		print("Generation in progress (" + bundlesSelection.size() + " bundle(s), " + workers + " worker(s))...");
+		ForkJoinPool pool = new ForkJoinPool(workers);
+		ExecutorService executor = Executors.newFixedThreadPool(bundlesSelection.size());
+		Map<String, Future<GenerationSummary>> futures = new LinkedHashMap<>();
+		GenerationSummary result = new GenerationSummary();
+		sharedPool = pool ;
+		try {
+			for ( final String bundleName : bundlesSelection.keySet() ) {
+				futures.put(bundleName, executor.submit(new Callable<GenerationSummary>() {
+					@Override
+					public GenerationSummary call() throws TelosysToolsException {
+						return launchParallelGeneration(model, getCurrentModel(), entityNames, bundleName, 
+								bundlesTargets.get(bundleName), bundlesSelection.get(bundleName), arguments, profiler, 
+								arguments.hasResourcesOption(), affectedEntities);
+					}
+				}));
+			}
+			for ( Map.Entry<String, Future<GenerationSummary>> e : futures.entrySet() ) {
+				GenerationSummary bundleResult = getResult("Bundle '" + e.getKey() + "'", e.getValue());
+				print(" Bundle '" + e.getKey() + "' : " + bundleResult.getNumberOfFilesGenerated() + " file(s) generated, " 
+						+ bundleResult.getNumberOfResourcesCopied() + " resource(s) copied, " 
+						+ bundleResult.getNumberOfGenerationErrors() + " error(s)");
+				result.merge(bundleResult);
+			}
+		}
+		finally {
+			sharedPool = null ;
+			executor.shutdown();
+			pool.shutdown();
+		}
+		lastModel = model ;
+		if ( profiler != null ) {
+			profile = profiler.buildReport(arguments.getTop());
+		}
+		hasErrors = result.getNumberOfGenerationErrors() > 0 || ! result.getErrors().isEmpty() ;
+		return result ;
+	}
+
+	/**
+	 * Generation of several models ( eg 'gen * * --models *' or 'gen --models shop,crm -b jpa,rest' ) <br>
+	 * The models are loaded concurrently, then each model is generated with the current bundle ( or the '-b' bundles ) <br>
+	 * All the generations share the same pool of workers ( the resources are copied once for each bundle )
+	 * @param argEntityNames
+	 * @param argTemplateNames
+	 * @param arguments
+	 * @return the result for all the models
+	 * @throws TelosysToolsException
+	 */
+	private GenerationTaskResult generateModels(String argEntityNames, String argTemplateNames, 
+			final GenerateArguments arguments) throws TelosysToolsException {
+
+		final GenerationProfiler profiler = arguments.hasProfileOption() ? new GenerationProfiler() : null ;
+		lastModel = null ;
+		List<File> modelFiles = selectModelFiles(arguments, true);
+		if ( modelFiles.isEmpty() ) {
+			print("No model => nothing to generate ");
+			return null ;
+		}
+		GenerationSummary result = new GenerationSummary();
+		GenerationProfiler.Measure measure = profiler != null ? profiler.start() : null ;
+		Map<String, Model> models = loadModels(modelFiles, result);
+		if ( profiler != null ) {
+			profiler.stop(GenerationProfiler.Phase.MODEL_LOADING, measure);
+		}
+
+		// The targets of the current bundle or of the '-b' bundles
+		final Map<String, TargetsDefinitions> bundlesTargets = new LinkedHashMap<>();
+		final Map<String, List<TargetDefinition>> bundlesSelection = new LinkedHashMap<>();
+		measure = profiler != null ? profiler.start() : null ;
+		loadBundlesTargets(arguments.hasBundlesOption() ? arguments.getBundles() : Collections.singletonList(getCurrentBundle()), 
+				argTemplateNames, bundlesTargets, bundlesSelection);
+		if ( profiler != null ) {
+			profiler.stop(GenerationProfiler.Phase.TARGETS_LOADING, measure);
+		}
+
+		// The entities of each model
+		final Map<String, List<String>> modelsEntities = new LinkedHashMap<>();
+		print("Models : ");
+		for ( Map.Entry<String, Model> e : models.entrySet() ) {
+			List<Entity> entities = buildEntitiesList(argEntityNames, e.getValue());
+			print(" . " + e.getKey() + " : " + entities.size() + " entities");
+			if ( ! entities.isEmpty() ) {
+				modelsEntities.put(e.getKey(), EntityUtil.toEntityNames(entities));
+			}
+		}
+		int numberOfTargets = printBundlesTargets(bundlesSelection);
+		printOptions(arguments);
+
+		if ( modelsEntities.isEmpty() || numberOfTargets == 0 ) {
+			print("No entity or no templates => nothing to generate ");
+			return result.getErrors().isEmpty() ? null : result ;
+		}
+		if ( ! confirm("Do you want to launch the generation") ) {
+			print("Generation canceled.");
+			return null ;
+		}
+		int jobs = modelsEntities.size() * bundlesSelection.size() ;
+		int workers = arguments.hasWorkersOption() ? arguments.getWorkers() : Runtime.getRuntime().availableProcessors() ;
+		print("Generation in progress (" + modelsEntities.size() + " model(s), " + bundlesSelection.size() + " bundle(s), " 
+				+ workers + " worker(s))...");
+		ForkJoinPool pool = new ForkJoinPool(workers);
+		ExecutorService executor = Executors.newFixedThreadPool(Math.min(jobs, workers));
+		Map<String, Future<GenerationSummary>> futures = new LinkedHashMap<>();
+		sharedPool = pool ;
+		try {
+			boolean copyResources = arguments.hasResourcesOption() ;
+			for ( final Map.Entry<String, List<String>> e : modelsEntities.entrySet() ) {
+				final Model model = models.get(e.getKey());
+				for ( final String bundleName : bundlesSelection.keySet() ) {
+					final boolean resources = copyResources ; // same resources for all the models
+					futures.put("Model '" + e.getKey() + "' ( bundle '" + bundleName + "' )", 
+							executor.submit(new Callable<GenerationSummary>() {
+						@Override
+						public GenerationSummary call() throws TelosysToolsException {
+							return launchParallelGeneration(model, e.getKey(), e.getValue(), bundleName, 
+									bundlesTargets.get(bundleName), bundlesSelection.get(bundleName), arguments, profiler, 
+									resources, null);
+						}
+					}));
+				}
+				copyResources = false ;
+			}
+			for ( Map.Entry<String, Future<GenerationSummary>> e : futures.entrySet() ) {
+				GenerationSummary modelResult = getResult(e.getKey(), e.getValue());
+				print(" " + e.getKey() + " : " + modelResult.getNumberOfFilesGenerated() + " file(s) generated, " 
+						+ modelResult.getNumberOfResourcesCopied() + " resource(s) copied, " 
+						+ modelResult.getNumberOfGenerationErrors() + " error(s)");
+				result.merge(modelResult);
+			}
+		}
+		finally {
+			sharedPool = null ;
+			executor.shutdown();
+			pool.shutdown();
+		}
+		if ( profiler != null ) {
+			profile = profiler.buildReport(arguments.getTop());
+		}
+		hasErrors = result.getNumberOfGenerationErrors() > 0 || ! result.getErrors().isEmpty() ;
+		return result ;
+	}
+
+	/**
+	 * Returns the model files for the '--models' option ( all the models of the project for '--models *' ) 
+	 * @param arguments
+	 * @param warnings print a warning for each unknown model
+	 * @return
+	 * @throws TelosysToolsException
+	 */
+	private List<File> selectModelFiles(GenerateArguments arguments, boolean warnings) throws TelosysToolsException {
+		List<File> modelFiles = new LinkedList<>();
+		List<File> projectModels = getTelosysProject().getModels();
+		if ( arguments.isAllModels() ) {
+			for ( File f : projectModels ) {
+				if ( f.isFile() ) {
+					modelFiles.add(f);
+				}
+			}
+			return modelFiles ;
+		}
+		for ( String modelName : arguments.getModels() ) {
+			File modelFile = null ;
+			for ( File f : projectModels ) {
+				// model name with or without its suffix ( eg 'shop' or 'shop.model' )
+				if ( f.isFile() && ( f.getName().equals(modelName) || f.getName().startsWith(modelName + ".") ) ) {
+					modelFile = f ;
+					break;
+				}
+			}
+			if ( modelFile == null ) {
+				if ( warnings ) {
+					print("Warning : unknown model '" + modelName + "'");
+				}
+			}
+			else if ( ! modelFiles.contains(modelFile) ) {
+				modelFiles.add(modelFile);
+			}
+		}
+		return modelFiles ;
+	}
+
+	/**
+	 * Loads the given models concurrently ( the invalid models are reported in the given result )
+	 * @param modelFiles
+	 * @param result
+	 * @return the models by model name ( in the order of the given files )
+	 * @throws TelosysToolsException
+	 */
+	private Map<String, Model> loadModels(List<File> modelFiles, GenerationSummary result) throws TelosysToolsException {
+		ExecutorService executor = Executors.newFixedThreadPool(
+				Math.min(modelFiles.size(), Runtime.getRuntime().availableProcessors()));
+		Map<String, Future<Model>> futures = new LinkedHashMap<>();
+		Map<String, Model> models = new LinkedHashMap<>();
+		try {
+			for ( final File modelFile : modelFiles ) {
+				futures.put(modelFile.getName(), executor.submit(new Callable<Model>() {
+					@Override
+					public Model call() throws TelosysToolsException {
+						return getCachedModel(modelFile);
+					}
+				}));
+			}
+			for ( Map.Entry<String, Future<Model>> e : futures.entrySet() ) {
+				try {
+					models.put(e.getKey(), e.getValue().get());
+				} catch (ExecutionException ex) {
+					print("Invalid model '" + e.getKey() + "'");
+					result.addError( ErrorProcessor.buildErrorReport("Cannot load model '" + e.getKey() + "'", 
+							ex.getCause() instanceof Exception ? (Exception) ex.getCause() : ex) );
+				}
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new TelosysToolsException("Models loading interrupted", e);
+		}
+		finally {
+			executor.shutdown();
+		}
+		return models ;
+	}
+
+	/**
+	 * Loads the targets of the given bundles
+	 * @param bundleNames
+	 * @param argTemplateNames the templates argument ( eg '*' or '_java,_xml' )
+	 * @param bundlesTargets all the targets of each bundle ( filled by this method )
+	 * @param bundlesSelection the selected templates targets of each bundle ( filled by this method )
+	 * @throws TelosysToolsException if a bundle doesn't exist
+	 */
+	private void loadBundlesTargets(List<String> bundleNames, String argTemplateNames, 
+			Map<String, TargetsDefinitions> bundlesTargets, Map<String, List<TargetDefinition>> bundlesSelection) 
+					throws TelosysToolsException {
+		TelosysProject telosysProject = getTelosysProject();
+		List<String> criteria = CriteriaUtil.buildCriteriaFromArg(argTemplateNames) ;
+		for ( String bundleName : bundleNames ) {
+			File bundleFolder = new File(telosysProject.getTelosysToolsCfg().getTemplatesFolderAbsolutePath(bundleName));
+			if ( ! bundleFolder.isDirectory() ) {
+				throw new TelosysToolsException("Bundle '" + bundleName + "' not found");
+			}
+			TargetsDefinitions targetsDefinitions = telosysProject.getTargetDefinitions(bundleName);
+			bundlesTargets.put(bundleName, targetsDefinitions);
+			bundlesSelection.put(bundleName, TargetUtil.filter(targetsDefinitions.getTemplatesTargets(), criteria));
+		}
+	}
+
+	/**
+	 * Prints the selected templates of each bundle 
+	 * @param bundlesSelection
+	 * @return the total number of templates targets
+	 */
+	private int printBundlesTargets(Map<String, List<TargetDefinition>> bundlesSelection) {
+		int numberOfTargets = 0 ;
+		for ( Map.Entry<String, List<TargetDefinition>> e : bundlesSelection.entrySet() ) {
+			print("Templates ( bundle = '" + e.getKey() + "' ) : ");
+			print ( TargetUtil.buildListAsString(e.getValue()) );
+			numberOfTargets += e.getValue().size() ;
+		}
+		return numberOfTargets ;
+	}
+
+	/**
+	 * Returns the result of a concurrent generation ( an error result if the generation has failed )
+	 * @param label the generation label ( eg "Bundle 'jpa'" )
+	 * @param future
+	 * @return
+	 */
+	private GenerationSummary getResult(String label, Future<GenerationSummary> future) {
+		try {
+			return future.get();
+		} catch (ExecutionException e) {
+			GenerationSummary result = new GenerationSummary();
+			result.addError( ErrorProcessor.buildErrorReport(label + " generation error", 
+					e.getCause() instanceof Exception ? (Exception) e.getCause() : e) );
+			return result ;
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			GenerationSummary result = new GenerationSummary();
+			result.addError( ErrorProcessor.buildErrorReport(label + " generation interrupted", e) );
+			return result ;
+		}
+	}
+
+	/**
+	 * Launches the generation with the given number of workers <br>
+	 * ( the generated files are written only if their content has changed )
+	 * @param model
+	 * @param entityNames
+	 * @param bundleName
+	 * @param targetDefinitions
+	 * @param arguments
+	 * @param profiler the profiler (or null if no profiling)
+	 * @param entitiesFilter the entities to be generated (or null for all the entities)
+	 * @return
+	 * @throws TelosysToolsException
+	 */
+	private GenerationTaskResult launchParallelGeneration(Model model, List<String> entityNames, String bundleName, 
+			List<TargetDefinition> targetDefinitions, GenerateArguments arguments, GenerationProfiler profiler, 
+			Collection<String> entitiesFilter) throws TelosysToolsException {
+		return launchParallelGeneration(model, getCurrentModel(), entityNames, bundleName, getCurrentTargetsDefinitions(), 
+				targetDefinitions, arguments, profiler, arguments.hasResourcesOption(), entitiesFilter);
+	}
+
+	/**
+	 * Launches the generation with the given number of workers
+	 * @param model
+	 * @param modelName the model name ( for the incremental manifest )
+	 * @param entityNames
+	 * @param bundleName
+	 * @param targetsDefinitions all the targets of the bundle
+	 * @param targetDefinitions the templates targets to be generated
+	 * @param arguments
+	 * @param profiler the profiler (or null if no profiling)
+	 * @param copyResources
+	 * @param entitiesFilter the entities to be generated (or null for all the entities)
+	 * @return
+	 * @throws TelosysToolsException
+	 */
+	private GenerationSummary launchParallelGeneration(Model model, String modelName, List<String> entityNames, 
+			String bundleName, TargetsDefinitions targetsDefinitions, List<TargetDefinition> targetDefinitions, 
+			GenerateArguments arguments, GenerationProfiler profiler, boolean copyResources, 
+			Collection<String> entitiesFilter) throws TelosysToolsException {
 		TelosysProject telosysProject = getTelosysProject();
+		TelosysToolsCfg telosysToolsCfg = telosysProject.getTelosysToolsCfg();
+		List<TargetDefinition> resources = new LinkedList<>(); // Void list
+		if ( copyResources ) {
+			resources = targetsDefinitions.getResourcesTargets();
+		}
+		// several bundles in parallel : no progress line and no log
+		boolean progress = progressLine && sharedPool == null ;
+		TelosysToolsLogger logger = progressLine || sharedPool != null || isStandardOutputArchive(arguments) ? 
+				new SilentLogger() : new ConsoleLogger() ;
+		ParallelGenerator generator = new ParallelGenerator(telosysToolsCfg, bundleName, arguments.getWorkers(), logger);
+		generator.setProfiler(profiler);
+		generator.setHardLinks(arguments.hasHardLinksOption());
+		generator.setStaged(arguments.hasStagedOption());
+		generator.setEntitiesFilter(entitiesFilter);
+		if ( arguments.hasChunkOption() ) {
+			generator.setChunkSize(arguments.getChunkSize());
+			generator.setMaxErrors(CHUNKED_MAX_ERRORS);
+		}
+		if ( arguments.hasShardOption() ) {
+			generator.setShard(arguments.getShardIndex(), arguments.getShardCount());
+		}
+		generator.setSharedPool(sharedPool);
+		generator.setTemplateCache(getEnvironment().getTemplateCache(), targetsDefinitions.getTemplatesTargets());
+		if ( getEnvironment().getTemplateProfiler().isEnabled() ) {
+			generator.setTemplateProfiler(getEnvironment().getTemplateProfiler());
+		}
+		GenerationTimings timings = new GenerationTimings(GenerationTimings.getTimingsFile(telosysToolsCfg, modelName, bundleName));
+		timings.load();
+		generator.setTimings(timings);
+		if ( progress ) {
+			generator.addListener(new GenerationProgressObserver(new PrintWriter(getConsoleReader().getOutput()), 
+					getTerminalWidth()));
+		}
+		for ( GenerationListener listener : listeners ) {
+			generator.addListener(listener);
+		}
+		if ( throughputObserver != null ) {
+			generator.addListener(throughputObserver.getListener(modelName, bundleName));
+		}
+		if ( report != null ) {
+			generator.addListener(report.getListener(modelName, bundleName));
+		}
+		GenerationManifest manifest = null ;
+		if ( arguments.hasIncrementalOption() ) {
+			File manifestFile = GenerationManifest.getManifestFile(telosysToolsCfg, modelName, bundleName);
+			manifest = new GenerationManifest(manifestFile);
+			manifest.load();
+			try {
+				manifest.computeInputs(telosysToolsCfg, bundleName, model, entityNames, 
+						targetsDefinitions.getTemplatesTargets());
+			} catch (IOException e) {
+				throw new TelosysToolsException("Cannot compute the generation inputs", e);
+			}
+			generator.setManifest(manifest);
+		}
+		ArchiveOutputWriter archive = openArchive(arguments, telosysToolsCfg);
+		generator.setArchive(archive);
+		GenerationSummary result = generator.launchGeneration(model, entityNames, targetDefinitions, resources);
+		closeArchive(archive, result);
+		if ( manifest != null ) {
+			manifest.save();
+		}
+		timings.save();
+		return result ;
+	}
+
+	/**
+	 * Watch mode : regenerates the targets impacted by the changes in the model or in the bundle <br>
+	 * until [Enter] is pressed ( the model and the parsed templates are kept in memory between the cycles )
+	 * @param argEntityNames
+	 * @param argTemplateNames
+	 * @param arguments
+	 * @throws TelosysToolsException
+	 */
+	private void watch(final String argEntityNames, final String argTemplateNames, final GenerateArguments arguments) 
+			throws TelosysToolsException {
+		final File modelFile = getModelFile(getCurrentModel());
+		if ( modelFile == null ) {
+			return ;
+		}
+		File modelFolder = isDslModel(getCurrentModel()) ? DslModelUtil.getModelFolder(modelFile) : null ;
+		final String bundleName = getCurrentBundle() ;
+		File bundleFolder = new File(getTelosysProject().getTelosysToolsCfg().getTemplatesFolderAbsolutePath(bundleName));
+		GenerationWatcher watcher = new GenerationWatcher(modelFile, modelFolder, bundleFolder, arguments.hasResourcesOption(), 
+				new GenerationWatcher.Handler() {
+			@Override
+			public Model reloadModel() {
+				return loadModel(modelFile);
+			}
+			@Override
+			public TargetsDefinitions loadTargetsDefinitions() {
+				return getCurrentTargetsDefinitions();
+			}
+			@Override
+			public List<TargetDefinition> selectTargets(TargetsDefinitions targetsDefinitions) {
+				return TargetUtil.filter(targetsDefinitions.getTemplatesTargets(), 
+						CriteriaUtil.buildCriteriaFromArg(argTemplateNames));
+			}
+			@Override
+			public GenerationSummary generate(Model model, TargetsDefinitions targetsDefinitions, 
+					List<TargetDefinition> targets, boolean copyResources, Collection<String> entitiesFilter) 
+							throws TelosysToolsException {
+				List<String> entityNames = EntityUtil.toEntityNames(buildEntitiesList(argEntityNames, model));
+				return launchParallelGeneration(model, getCurrentModel(), entityNames, bundleName, 
+						targetsDefinitions, targets, arguments, null, copyResources, entitiesFilter);
+			}
+			@Override
+			public void print(String message) {
+				GenerateCommand.this.print(message);
+			}
+			@Override
+			public void printError(Exception e) {
+				GenerateCommand.this.printError(e);
+			}
+		});
+		try {
+			watcher.start(lastModel);
+		} catch (IOException e) {
+			throw new TelosysToolsException("Cannot watch the model and bundle folders", e);
+		}
+		print("Watching model '" + getCurrentModel() + "' and bundle '" + bundleName + "' ( press [Enter] to stop )...");
+		readResponse();
+		try {
+			watcher.stop();
+		} catch (IOException e) {
+			printError(e);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+		print("Watch stopped.");
+	}
+
+	/**
+	 * Prints how the generation would be split in the given number of shards
+	 * @param argEntityNames
+	 * @param argTemplateNames
+	 * @param count
+	 * @throws TelosysToolsException
+	 */
+	private void printShardPlan(String argEntityNames, String argTemplateNames, int count) throws TelosysToolsException {
+		Model model = loadCurrentModel();
+		List<String> entityNames = EntityUtil.toEntityNames(buildEntitiesList(argEntityNames, model));
+		List<TargetDefinition> targetDefinitions = buildTargetsList(argTemplateNames);
+		TelosysToolsCfg telosysToolsCfg = getTelosysProject().getTelosysToolsCfg();
+		ParallelGenerator generator = new ParallelGenerator(telosysToolsCfg, getCurrentBundle(), 1, new SilentLogger());
+		List<ShardPlanner.Shard> shards = generator.buildShardPlan(model, entityNames, targetDefinitions, count);
+		long totalWeight = 0 ;
+		int totalFiles = 0 ;
+		for ( ShardPlanner.Shard shard : shards ) {
+			totalWeight += shard.getWeight() ;
+			totalFiles += shard.getJobs().size() ;
+		}
+		print("Shard plan ( " + count + " shard(s), " + totalFiles + " file(s) ) : ");
+		int i = 0 ;
+		for ( ShardPlanner.Shard shard : shards ) {
+			i++ ;
+			print(" --shard " + i + "/" + count + " : " + shard.getJobs().size() + " file(s), estimated load " 
+					+ percent(shard.getWeight(), totalWeight));
+		}
+	}
+
+	private String buildCacheStats(TemplateCache templateCache, long hits, long misses) {
+		long sessionHits = templateCache.getHits();
+		long sessionTotal = sessionHits + templateCache.getMisses();
+		return "Templates cache : " + hits + " hit(s), " + misses + " miss(es), hit rate " + percent(hits, hits + misses) 
+				+ " ( session : hit rate " + percent(sessionHits, sessionTotal) + ", " 
+				+ templateCache.getSize() + "/" + templateCache.getMaxSize() + " template(s) cached, " 
+				+ templateCache.getEvictions() + " eviction(s) )" ;
+	}
+
+	private String percent(long n, long total) {
+		return total > 0 ? String.format("%.1f %%", ( n * 100.0 ) / total) : "n/a" ;
+	}
+
+	private int getTerminalWidth() {
+		Terminal terminal = getConsoleReader().getTerminal();
+		return terminal != null ? terminal.getWidth() : 0 ;
+	}
+
+	private GenerationTaskResult generateResources(GenerateArguments arguments) throws TelosysToolsException {
 		
-		Model model = loadCurrentModel(); // Loads the model for the current model name
-		List<String> entityNames = new LinkedList<>(); // Void list
+		TelosysProject telosysProject = getTelosysProject();
 		
 		String bundleName = getCurrentBundle() ;
 		TargetsDefinitions targetsDefinitions = getCurrentTargetsDefinitions();
-		List<TargetDefinition> targetDefinitions = new LinkedList<>(); // Void list
 		List<TargetDefinition> resources = targetsDefinitions.getResourcesTargets();
 		if ( resources.isEmpty() ) {
 			print("No resource in bundle '" + bundleName + "'");
@@ -202,7 +1003,30 @@ public class GenerateCommand extends CommandWithModel {
 		else {
 			if ( confirm("Do you want to copy the resources from '" + bundleName + "'" ) ) {
 				print("Generation in progress...");
-				return telosysProject.launchGeneration(model, entityNames, bundleName, targetDefinitions, true);			
+				GenerationSummary result = new GenerationSummary();
+				ResourcesCopyEngine copyEngine = new ResourcesCopyEngine(telosysProject.getTelosysToolsCfg(), bundleName, 
+						new SilentLogger());
+				copyEngine.setHardLinks(arguments.hasHardLinksOption());
+				StagingArea stagingArea = null ;
+				ArchiveOutputWriter archive = null ;
+				try {
+					if ( arguments.hasStagedOption() ) {
+						stagingArea = new StagingArea(new File(telosysProject.getTelosysToolsCfg().getDestinationFolderAbsolutePath()));
+						copyEngine.setStagingArea(stagingArea);
+					}
+					archive = openArchive(arguments, telosysProject.getTelosysToolsCfg());
+					copyEngine.setArchive(archive);
+					ResourcesCopyEngine.Result copyResult = copyEngine.copy(resources);
+					result.setNumberOfResourcesCopied(copyResult.getNumberOfFilesCopied());
+					result.setNumberOfResourcesSkipped(copyResult.getNumberOfFilesSkipped());
+				} catch (GeneratorException | IOException e) {
+					result.addError( ErrorProcessor.buildErrorReport("Resources copy error", e) );
+					discard(stagingArea, result);
+					stagingArea = null ;
+				}
+				commit(stagingArea, result);
+				closeArchive(archive, result);
+				return result ;
 			}
 			else {
 				print("Generation canceled.");
@@ -211,6 +1035,86 @@ public class GenerateCommand extends CommandWithModel {
 		return null ;
 	}
 
+	/**
+	 * Opens the archive given with '--archive' or '--tar'
+	 * @param arguments
+	 * @param telosysToolsCfg
+	 * @return the archive (or null if no archive option)
+	 * @throws TelosysToolsException
+	 */
+	private ArchiveOutputWriter openArchive(GenerateArguments arguments, TelosysToolsCfg telosysToolsCfg) 
+			throws TelosysToolsException {
+		if ( ! arguments.hasArchiveOption() ) {
+			return null ;
+		}
+		try {
+			return new ArchiveOutputWriter(arguments.getArchive(), 
+					arguments.isTarArchive() ? ArchiveOutputWriter.Format.TAR : ArchiveOutputWriter.Format.ZIP, 
+					new File(telosysToolsCfg.getDestinationFolderAbsolutePath()));
+		} catch (IOException e) {
+			throw new TelosysToolsException("Cannot create archive '" + arguments.getArchive() + "'", e);
+		}
+	}
+
+	private void closeArchive(ArchiveOutputWriter archive, GenerationSummary result) {
+		if ( archive != null ) {
+			try {
+				archive.close();
+			} catch (IOException e) {
+				result.addError( ErrorProcessor.buildErrorReport("Archive error", e) );
+			}
+		}
+	}
+
+	private boolean isStandardOutputArchive(GenerateArguments arguments) {
+		return ArchiveOutputWriter.STANDARD_OUTPUT.equals(arguments.getArchive());
+	}
+
+	/**
+	 * Moves the staged files in the destination folder ( if any )
+	 * @param stagingArea the staging area (or null if none)
+	 * @param result
+	 */
+	private void commit(StagingArea stagingArea, GenerationSummary result) {
+		if ( stagingArea != null ) {
+			try {
+				stagingArea.commit();
+			} catch (StagingArea.StagingException e) {
+				result.addError( ErrorProcessor.buildErrorReport("Staging error", e) );
+				result.setStagedOutputDiscarded(true);
+			} catch (IOException e) {
+				result.addError( ErrorProcessor.buildErrorReport("Staging error (destination folder partially updated)", e) );
+			}
+		}
+	}
+
+	private void discard(StagingArea stagingArea, GenerationSummary result) {
+		if ( stagingArea != null ) {
+			try {
+				stagingArea.discard();
+				result.setStagedOutputDiscarded(true);
+			} catch (IOException e) {
+				result.addError( ErrorProcessor.buildErrorReport("Staging error", e) );
+			}
+		}
+	}
+
+	/**
+	 * Returns the entities affected by a change of the given entities ( the given entities and the entities linked to them )
+	 * @param entityNames
+	 * @param model
+	 * @return
+	 */
+	private Set<String> buildAffectedEntities(List<String> entityNames, Model model) {
+		EntityGraph graph = EntityGraph.getGraph(model);
+		for ( String entityName : entityNames ) {
+			if ( ! graph.contains(entityName) ) {
+				print("Warning : unknown entity '" + entityName + "'");
+			}
+		}
+		return graph.getAffectedEntities(entityNames);
+	}
+
 	/**
 	 * Builds a list of entities using the given argument ( eg : '*', 'Car', 'Car,Dog', 'Dog,Driver,Car' )
 	 * @param arg
@@ -237,7 +1141,27 @@ public class GenerateCommand extends CommandWithModel {
 	private void printResult( GenerationTaskResult result ) {
 		print("Generation completed.");
 		print(" " + result.getNumberOfFilesGenerated() + " file(s) generated");
-		print(" " + result.getNumberOfResourcesCopied() + " resource(s) copied");
+		if ( result instanceof GenerationSummary ) {
+			GenerationSummary summary = (GenerationSummary) result ;
+			if ( summary.getNumberOfFilesGenerated() > 0 ) {
+				print("   " + summary.getNumberOfFilesWritten() + " written / " + summary.getNumberOfFilesUnchanged() 
+					+ " unchanged / " + summary.getNumberOfFilesNew() + " new");
+			}
+			if ( summary.getNumberOfFilesSkipped() > 0 ) {
+				print(" " + summary.getNumberOfFilesSkipped() + " file(s) skipped (up to date)");
+			}
+			print(" " + summary.getNumberOfResourcesCopied() + " resource(s) copied / " 
+				+ summary.getNumberOfResourcesSkipped() + " skipped (unchanged)");
+			if ( summary.isStagedOutputDiscarded() ) {
+				print(" Staged files discarded (destination folder not modified)");
+			}
+			if ( summary.getNumberOfChunks() > 0 ) {
+				print(" " + summary.getNumberOfChunks() + " chunk(s) of entities");
+			}
+		}
+		else {
+			print(" " + result.getNumberOfResourcesCopied() + " resource(s) copied");
+		}
 		print(" " + result.getNumberOfGenerationErrors() + " error(s)");
 		List<ErrorReport> errors = result.getErrors() ;
 		if ( errors != null && errors.size() > 0 ) {
@@ -257,6 +1181,9 @@ public class GenerateCommand extends CommandWithModel {
 					}
 				}
 			}
+			if ( result instanceof GenerationSummary && ((GenerationSummary) result).getNumberOfErrorsDropped() > 0 ) {
+				print ( " ... " + ((GenerationSummary) result).getNumberOfErrorsDropped() + " other error(s) not reported" ) ;
+			}
 		}
 	}
 	
@@ -16,11 +16,14 @@
 package org.telosys.tools.cli.commands;
 
 import java.io.File;
+import java.io.IOException;
 
 import jline.console.ConsoleReader;
 
 import org.telosys.tools.cli.CommandWithModel;
 import org.telosys.tools.cli.Environment;
+import org.telosys.tools.cli.ModelCache;
+import org.telosys.tools.generic.model.Model;
 
 /**
  * 'm' command
@@ -30,6 +33,8 @@ import org.telosys.tools.cli.Environment;
  */
 public class ModelCommand extends CommandWithModel {
 
+	private static final String RELOAD_OPTION = "--reload" ;
+
 	/**
 	 * Constructor
 	 * @param out
@@ -50,20 +55,30 @@ public class ModelCommand extends CommandWithModel {
 
 	@Override
 	public String getDescription() {
-		return "Set/print the current model";
+		return "Set/print the current model ( '--reload' : reload the model, not taken from the session cache, and print the cache statistics )";
 	}
 	
 	@Override
 	public String getUsage() {
-		return "m [model-name]";
+		return "m [model-name] [--reload]";
 	}
 	
 	@Override
 	public String execute(String[] args) {
 		
-		if ( args.length > 1 ) {
+		if ( args.length > 1 && RELOAD_OPTION.equals(args[args.length-1]) ) {
+			if ( checkArguments(args, 1, 2) && checkHomeDirectoryDefined() ) {
+				if ( args.length > 2 && tryToSetCurrentModel(args[1], false) == null ) {
+					return null ;
+				}
+				if ( checkModelDefined() ) {
+					return reloadCurrentModel();
+				}
+			}
+		}
+		else if ( args.length > 1 ) {
 			if ( checkHomeDirectoryDefined() ) {
-				return tryToSetCurrentModel(args[1]);
+				return tryToSetCurrentModel(args[1], true);
 			}
 		}
 		else {
@@ -72,13 +87,46 @@ public class ModelCommand extends CommandWithModel {
 		return null ;
 	}
 	
-	private String tryToSetCurrentModel(String modelNamePattern) {
+	private String tryToSetCurrentModel(String modelNamePattern, boolean preload) {
 		File modelFile = findModelFile(modelNamePattern) ;
 		// if found => launch the editor
 		if ( modelFile != null ) {
 			setCurrentModel(modelFile.getName());
+			if ( preload ) {
+				// loaded in background while the user types the next command
+				preloadModel(modelFile);
+			}
 			return "Current model is now '" + getCurrentModel() + "'";
 		}
 		return null ;
 	}
+
+	private String reloadCurrentModel() {
+		File modelFile = getModelFile(getCurrentModel());
+		if ( modelFile != null ) {
+			try {
+				getEnvironment().getModelCache().remove(modelFile);
+			} catch (IOException e) {
+				printError(e);
+				return null ;
+			}
+			long start = System.currentTimeMillis();
+			Model model = loadModel(modelFile);
+			if ( model != null ) {
+				print("Model '" + getCurrentModel() + "' reloaded ( " + model.getEntities().size() + " entities, " 
+						+ ( System.currentTimeMillis() - start ) + " ms )");
+				return buildCacheStats(getEnvironment().getModelCache());
+			}
+		}
+		return null ;
+	}
+
+	private String buildCacheStats(ModelCache modelCache) {
+		long hits = modelCache.getHits();
+		long total = hits + modelCache.getMisses();
+		String hitRate = total > 0 ? String.format("%.1f %%", ( hits * 100.0 ) / total) : "n/a" ;
+		return "Models cache : " + hits + " hit(s), " + modelCache.getMisses() + " miss(es), hit rate " + hitRate 
+				+ " ( " + modelCache.getSize() + "/" + modelCache.getMaxSize() + " model(s) cached, " 
+				+ modelCache.getEvictions() + " eviction(s) )" ;
+	}
 }
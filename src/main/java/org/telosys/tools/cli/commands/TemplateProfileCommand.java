@@ -0,0 +1,126 @@
+/**
+ *  Copyright (C) 2015-2017  Telosys project org. ( http://www.telosys.org/ )
+ *
+ *  Licensed under the GNU LESSER GENERAL PUBLIC LICENSE, Version 3.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *          http://www.gnu.org/licenses/lgpl.html
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.telosys.tools.cli.commands;
+
+import java.util.List;
+import java.util.Set;
+
+import jline.console.ConsoleReader;
+
+import org.telosys.tools.cli.Command;
+import org.telosys.tools.cli.Environment;
+import org.telosys.tools.cli.generation.TemplateProfiler;
+
+/**
+ * Templates hot-spots : enables the profiling of the templates lines and directives <br>
+ * and prints the statements ranked by time for each profiled template of the current bundle
+ *
+ */
+public class TemplateProfileCommand extends Command {
+
+	private static final int TOP = 10 ; // number of statements reported for each template
+
+	/**
+	 * Constructor
+	 * @param consoleReader
+	 * @param environment
+	 */
+	public TemplateProfileCommand(ConsoleReader consoleReader, Environment environment) {
+		super(consoleReader, environment);
+	}
+
+	@Override
+	public String getName() {
+		return "tprof";
+	}
+
+	@Override
+	public String getShortDescription() {
+		return "Templates profile" ;
+	}
+
+	@Override
+	public String getDescription() {
+		return "Enables the profiling of the templates lines and directives (for the next generations) or prints the hot spots";
+	}
+
+	@Override
+	public String getUsage() {
+		return "tprof [on|off|clear|template-pattern]";
+	}
+
+	@Override
+	public String execute(String[] args) {
+		if ( ! checkArguments(args, 0, 1) ) {
+			return null ;
+		}
+		TemplateProfiler templateProfiler = getEnvironment().getTemplateProfiler();
+		String arg = args.length > 1 ? args[1].trim() : null ;
+		if ( "on".equalsIgnoreCase(arg) ) {
+			templateProfiler.setEnabled(true);
+			return "Templates profiling is on ( the next generations are profiled )" ;
+		}
+		else if ( "off".equalsIgnoreCase(arg) ) {
+			templateProfiler.setEnabled(false);
+			return "Templates profiling is off" ;
+		}
+		else if ( "clear".equalsIgnoreCase(arg) ) {
+			templateProfiler.clear();
+			return "Templates profile cleared" ;
+		}
+		else if ( checkBundleDefined() ) {
+			return buildReport(templateProfiler, arg);
+		}
+		return null ;
+	}
+
+	private String buildReport(TemplateProfiler templateProfiler, String pattern) {
+		StringBuilder sb = new StringBuilder();
+		Set<String> templates = templateProfiler.getTemplates(getCurrentBundle());
+		appendLine(sb, "Templates profiling is " + ( templateProfiler.isEnabled() ? "on" : "off" )
+				+ " ( bundle = '" + getCurrentBundle() + "' )" );
+		if ( templates.isEmpty() ) {
+			appendLine(sb, "No template profiled" + ( templateProfiler.isEnabled() ? "" : " ( 'tprof on' to enable the profiling )" ));
+			return sb.toString();
+		}
+		for ( String templateName : templates ) {
+			if ( pattern == null || templateName.contains(pattern) ) {
+				appendTemplate(sb, templateProfiler.getStatistics(getCurrentBundle(), templateName));
+			}
+		}
+		return sb.toString();
+	}
+
+	private void appendTemplate(StringBuilder sb, TemplateProfiler.TemplateStatistics stats) {
+		appendLine(sb, "Template '" + stats.getTemplateName() + "' : " + stats.getRenderings() + " rendering(s), "
+				+ millis(stats.getRenderingTime()) + " ms");
+		appendLine(sb, String.format(" %10s %10s %10s %9s  %s", "Self (ms)", "Total (ms)", "Count", "Line:Col", "Statement"));
+		List<TemplateProfiler.StatementStatistics> statements = stats.getRankedStatements();
+		int n = 0 ;
+		for ( TemplateProfiler.StatementStatistics s : statements ) {
+			if ( n++ >= TOP ) {
+				appendLine(sb, " ... " + ( statements.size() - TOP ) + " other statement(s)");
+				break ;
+			}
+			appendLine(sb, String.format(" %10s %10s %10d %9s  %s", millis(s.getSelfTime()), millis(s.getTotalTime()),
+					s.getInvocations(), s.getLine() + ":" + s.getColumn(), s.getLabel()));
+		}
+	}
+
+	private String millis(long nanos) {
+		return String.format("%.1f", nanos / 1000000.0);
+	}
+}
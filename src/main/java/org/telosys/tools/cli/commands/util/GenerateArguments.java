@@ -0,0 +1,442 @@
+/**
+ *  Copyright (C) 2015-2017  Telosys project org. ( http://www.telosys.org/ )
+ *
+ *  Licensed under the GNU LESSER GENERAL PUBLIC LICENSE, Version 3.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *          http://www.gnu.org/licenses/lgpl.html
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.telosys.tools.cli.commands.util;
+
+import java.util.LinkedList;
+import java.util.List;
+
+import org.telosys.tools.cli.observer.GenerationReportObserver;
+import org.telosys.tools.commons.StrUtil;
+
+/**
+ * Arguments of the 'gen' command <br>
+ * Examples : 'gen * *', 'gen Car,Driver * -r', 'gen * _java -j 4', 'gen * * -i', 'gen -r', 'gen * * --shard 2/4', 'gen --affected-by Car', 'gen * * -r --archive out.zip', 'gen * * -b jpa,rest', 'gen --models *'
+ *
+ */
+public class GenerateArguments {
+
+	private final List<String> values = new LinkedList<>();
+
+	private boolean resourcesOption = false ;
+
+	private boolean hardLinksOption = false ;
+
+	private int workers = 0 ; // 0 : no '-j' option
+
+	private boolean incrementalOption = false ;
+
+	private boolean stagedOption = false ;
+
+	private boolean watchOption = false ;
+
+	private List<String> affectedBy = null ; // null : no '--affected-by' option
+
+	private int chunkSize = 0 ; // 0 : no '--chunk' option
+
+	private String archive = null ; // null : no '--archive' or '--tar' option
+
+	private boolean tarOption = false ;
+
+	private String report = null ; // null : no '--report' option
+
+	private List<String> bundles = null ; // null : no '-b' option ( current bundle )
+
+	private List<String> models = null ; // null : no '--models' option ( current model )
+
+	private int shardIndex = 1 ;
+
+	private int shardCount = 0 ; // 0 : no '--shard' option
+
+	private int shardPlan = 0 ; // 0 : no '--shard-plan' option
+
+	private boolean profileOption = false ;
+
+	private boolean statsOption = false ;
+
+	private int top = 10 ; // number of templates and entities in the profiling report
+
+	private List<String> errors = new LinkedList<>();
+
+	/**
+	 * Constructor
+	 * @param args all the arguments as provided by the command line (args[0] is the command itself)
+	 */
+	public GenerateArguments(String[] args) {
+		int i = 1 ;
+		while ( i < args.length ) {
+			String arg = args[i];
+			if ( arg.length() >= 2 && arg.charAt(0) == '-' ) {
+				switch ( arg ) {
+				case "-r" :
+					// -r : copy resources
+					resourcesOption = true ;
+					break;
+
+				case "--hardlinks" :
+					// --hardlinks : resources hard linked instead of copied ( if possible )
+					hardLinksOption = true ;
+					break;
+
+				case "-j" :
+					// -j N : number of workers
+					i++ ;
+					workers = parseWorkers(i < args.length ? args[i] : null);
+					break;
+
+				case "-i" :
+				case "--incremental" :
+					// -i : incremental generation
+					incrementalOption = true ;
+					break;
+
+				case "--staged" :
+					// --staged : files written in a staging folder and moved in the destination if no error
+					stagedOption = true ;
+					break;
+
+				case "--shard" :
+					// --shard i/n : generation of the shard 'i' of 'n'
+					i++ ;
+					parseShard(i < args.length ? args[i] : null);
+					break;
+
+				case "--shard-plan" :
+					// --shard-plan n : prints the split in 'n' shards
+					i++ ;
+					shardPlan = parsePositiveInt(i < args.length ? args[i] : null, "--shard-plan N", 0);
+					break;
+
+				case "--watch" :
+					// --watch : regeneration on each change in the model or in the bundle
+					watchOption = true ;
+					break;
+
+				case "--affected-by" :
+					// --affected-by Car,Driver : only the entities affected by a change of the given entities
+					i++ ;
+					affectedBy = parseNames(i < args.length ? args[i] : null, "--affected-by Entity1,Entity2");
+					break;
+
+				case "--chunk" :
+					// --chunk N : memory-bounded generation by chunks of N entities (max)
+					i++ ;
+					chunkSize = parsePositiveInt(i < args.length ? args[i] : null, "--chunk N", 0);
+					break;
+
+				case "--archive" :
+				case "--tar" :
+					// --archive file|- : ZIP/JAR archive , --tar file|- : tar archive ( '-' : standard output )
+					i++ ;
+					tarOption = "--tar".equals(arg) ;
+					archive = parseArchive(i < args.length ? args[i] : null, arg);
+					break;
+
+				case "--report" :
+					// --report file.json|file.csv : machine-readable generation report
+					i++ ;
+					report = parseReport(i < args.length ? args[i] : null);
+					break;
+
+				case "-b" :
+					// -b jpa,rest,web : generation with the given bundles
+					i++ ;
+					bundles = parseNames(i < args.length ? args[i] : null, "-b bundle1,bundle2");
+					break;
+
+				case "--models" :
+					// --models *|shop,crm : generation of all the models ( or the given models ) of the project
+					i++ ;
+					models = parseNames(i < args.length ? args[i] : null, "--models *' or '--models model1,model2");
+					break;
+
+				case "--profile" :
+					// --profile : profiling of the generation
+					profileOption = true ;
+					break;
+
+				case "--stats" :
+					// --stats : templates cache statistics
+					statsOption = true ;
+					break;
+
+				case "--top" :
+					// --top N : number of lines in the profiling report
+					i++ ;
+					top = parsePositiveInt(i < args.length ? args[i] : null, "--top N", top);
+					break;
+
+		        default:
+		        	// -?: unknown arg
+		        	errors.add("Invalid argument '" + arg + "'");
+				}
+			}
+			else {
+				// supposed to be an entities or templates argument
+				values.add(arg);
+			}
+			i++ ;
+		}
+		if ( archive != null && ( stagedOption || incrementalOption || watchOption ) ) {
+			errors.add("Option '--archive' or '--tar' cannot be used with '--staged', '--incremental' or '--watch'");
+		}
+		if ( hasSeveralBundles() && archive != null ) {
+			errors.add("Several bundles cannot be used with '--archive' or '--tar'");
+		}
+		if ( bundles != null && watchOption ) {
+			errors.add("Option '-b' cannot be used with '--watch' ( the current bundle is watched )");
+		}
+		if ( models != null && ( archive != null || watchOption || affectedBy != null ) ) {
+			errors.add("Option '--models' cannot be used with '--archive', '--tar', '--watch' or '--affected-by'");
+		}
+	}
+
+	private String parseReport(String arg) {
+		if ( arg == null || ! GenerationReportObserver.isValidReportFile(arg) ) {
+			errors.add("Invalid report file '" + arg + "' ( '--report file.json' or '--report file.csv' expected )");
+			return null ;
+		}
+		return arg ;
+	}
+
+	private String parseArchive(String arg, String option) {
+		if ( arg == null || ( arg.length() > 1 && arg.charAt(0) == '-' ) ) {
+			errors.add("Invalid value '" + arg + "' ( '" + option + " file' or '" + option + " -' expected )");
+			return null ;
+		}
+		return arg ;
+	}
+
+	private int parsePositiveInt(String arg, String usage, int defaultValue) {
+		int n = StrUtil.getInt(arg, -1);
+		if ( n < 1 ) {
+			errors.add("Invalid value '" + arg + "' ( '" + usage + "' expected with N > 0 )");
+			return defaultValue ;
+		}
+		return n ;
+	}
+
+	private void parseShard(String arg) {
+		String[] parts = arg != null ? arg.split("/") : new String[0] ;
+		int index = parts.length == 2 ? StrUtil.getInt(parts[0].trim(), -1) : -1 ;
+		int count = parts.length == 2 ? StrUtil.getInt(parts[1].trim(), -1) : -1 ;
+		if ( index < 1 || count < 1 || index > count ) {
+			errors.add("Invalid shard '" + arg + "' ( '--shard i/n' expected with 1 <= i <= n )");
+		}
+		else {
+			shardIndex = index ;
+			shardCount = count ;
+		}
+	}
+
+	/**
+	 * Parses a list of names separated by commas ( eg 'Car,Driver' )
+	 * @param arg
+	 * @param usage
+	 * @return
+	 */
+	private List<String> parseNames(String arg, String usage) {
+		List<String> names = new LinkedList<>();
+		if ( arg != null ) {
+			for ( String name : arg.split(",") ) {
+				if ( ! name.trim().isEmpty() && ! names.contains(name.trim()) ) {
+					names.add(name.trim());
+				}
+			}
+		}
+		if ( names.isEmpty() ) {
+			errors.add("Invalid value '" + arg + "' ( '" + usage + "' expected )");
+		}
+		return names ;
+	}
+
+	private int parseWorkers(String arg) {
+		int n = StrUtil.getInt(arg, -1);
+		if ( n < 1 ) {
+			errors.add("Invalid number of workers '" + arg + "' ( '-j N' expected with N > 0 )");
+			return 0 ;
+		}
+		return n ;
+	}
+
+	/**
+	 * Returns the arguments that are not options ( eg '*', 'Car,Driver', '_java' )
+	 * @return
+	 */
+	public List<String> getValues() {
+		return values;
+	}
+
+	public boolean hasResourcesOption() {
+		return resourcesOption ;
+	}
+
+	public boolean hasHardLinksOption() {
+		return hardLinksOption ;
+	}
+
+	public boolean hasWorkersOption() {
+		return workers > 0 ;
+	}
+
+	public int getWorkers() {
+		return workers ;
+	}
+
+	public boolean hasIncrementalOption() {
+		return incrementalOption ;
+	}
+
+	public boolean hasStagedOption() {
+		return stagedOption ;
+	}
+
+	public boolean hasShardOption() {
+		return shardCount > 0 ;
+	}
+
+	public int getShardIndex() {
+		return shardIndex ;
+	}
+
+	public int getShardCount() {
+		return shardCount ;
+	}
+
+	public boolean hasShardPlanOption() {
+		return shardPlan > 0 ;
+	}
+
+	public int getShardPlan() {
+		return shardPlan ;
+	}
+
+	public boolean hasWatchOption() {
+		return watchOption ;
+	}
+
+	public boolean hasAffectedByOption() {
+		return affectedBy != null ;
+	}
+
+	/**
+	 * Returns the entities names given with '--affected-by'
+	 * @return
+	 */
+	public List<String> getAffectedBy() {
+		return affectedBy ;
+	}
+
+	public boolean hasChunkOption() {
+		return chunkSize > 0 ;
+	}
+
+	public int getChunkSize() {
+		return chunkSize ;
+	}
+
+	public boolean hasArchiveOption() {
+		return archive != null ;
+	}
+
+	/**
+	 * Returns the archive file name ( "-" for the standard output )
+	 * @return
+	 */
+	public String getArchive() {
+		return archive ;
+	}
+
+	/**
+	 * Returns true if the archive is a tar archive ( else ZIP )
+	 * @return
+	 */
+	public boolean isTarArchive() {
+		return tarOption ;
+	}
+
+	public boolean hasReportOption() {
+		return report != null ;
+	}
+
+	/**
+	 * Returns the report file name ( '.json' or '.csv' )
+	 * @return
+	 */
+	public String getReport() {
+		return report ;
+	}
+
+	public boolean hasBundlesOption() {
+		return bundles != null ;
+	}
+
+	/**
+	 * Returns the bundles given with '-b' ( eg 'jpa,rest,web' )
+	 * @return
+	 */
+	public List<String> getBundles() {
+		return bundles ;
+	}
+
+	/**
+	 * Returns true if the generation uses more than one bundle
+	 * @return
+	 */
+	public boolean hasSeveralBundles() {
+		return bundles != null && bundles.size() > 1 ;
+	}
+
+	public boolean hasModelsOption() {
+		return models != null ;
+	}
+
+	/**
+	 * Returns the models given with '--models' ( eg 'shop,crm' or '*' for all the models )
+	 * @return
+	 */
+	public List<String> getModels() {
+		return models ;
+	}
+
+	/**
+	 * Returns true if all the models of the project are to be generated ( '--models *' )
+	 * @return
+	 */
+	public boolean isAllModels() {
+		return models != null && models.contains("*") ;
+	}
+
+	public boolean hasProfileOption() {
+		return profileOption ;
+	}
+
+	public boolean hasStatsOption() {
+		return statsOption ;
+	}
+
+	public int getTop() {
+		return top ;
+	}
+
+	public boolean hasErrors() {
+		return ! errors.isEmpty() ;
+	}
+
+	public List<String> getErrors() {
+		return errors;
+	}
+
+}
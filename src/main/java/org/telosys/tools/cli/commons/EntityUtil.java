@@ -15,6 +15,7 @@
  */
 package org.telosys.tools.cli.commons;
 
+import java.util.Collection;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.Hashtable;
@@ -47,6 +48,25 @@ public class EntityUtil {
 		return list;
 	}
 	
+	/**
+	 * Filters the given entities according with the given criteria <br>
+	 * and keeps only the entities having one of the given names ( eg the entities affected by a change )
+	 * @param allEntities
+	 * @param criteria
+	 * @param entityNames the names of the entities to keep
+	 * @return
+	 */
+	public static List<Entity> filter( List<Entity> allEntities, List<String> criteria, Collection<String> entityNames ) {
+		List<Entity> list = new LinkedList<>();
+		for ( Entity entity : select(allEntities, criteria) ) {
+			if ( entityNames.contains(entity.getClassName()) ) {
+				list.add(entity);
+			}
+		}
+		sort(list);
+		return list;
+	}
+	
 	public static List<String> toEntityNames( List<Entity> entities ) {
 		List<String> list = new LinkedList<>();
 		for ( Entity e : entities ) {
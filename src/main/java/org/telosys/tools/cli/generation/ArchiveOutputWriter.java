@@ -0,0 +1,170 @@
+/**
+ *  Copyright (C) 2015-2017  Telosys project org. ( http://www.telosys.org/ )
+ *
+ *  Licensed under the GNU LESSER GENERAL PUBLIC LICENSE, Version 3.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *          http://www.gnu.org/licenses/lgpl.html
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.telosys.tools.cli.generation;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileDescriptor;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Path;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import org.telosys.tools.generator.GeneratorException;
+
+/**
+ * Output stage writing the generated files in a single archive ( ZIP/JAR or tar ) instead of the file system <br>
+ * The entries names are the files paths relative to the destination folder <br>
+ * The archive can be a file or the standard output ( "-" ) <br>
+ * Not thread safe : the files must be written by a single thread ( see 'AsyncOutputWriter' )
+ *
+ */
+public class ArchiveOutputWriter extends OutputWriter implements Closeable {
+
+	/**
+	 * Archive name for the standard output
+	 */
+	public static final String STANDARD_OUTPUT = "-" ;
+
+	private static final int BUFFER_SIZE = 256 * 1024 ;
+
+	/**
+	 * Archive format
+	 */
+	public enum Format {
+		ZIP,
+		TAR
+	}
+
+	private final String archiveName ;
+
+	private final Path destinationFolder ;
+
+	private final OutputStream out ;
+
+	private final ZipOutputStream zip ;
+
+	private final TarOutputStream tar ;
+
+	private final Set<String> entries = new HashSet<>();
+
+	/**
+	 * Constructor
+	 * @param archiveName the archive file (or "-" for the standard output)
+	 * @param format
+	 * @param destinationFolder the destination folder of the generation
+	 * @throws IOException
+	 */
+	public ArchiveOutputWriter(String archiveName, Format format, File destinationFolder) throws IOException {
+		super();
+		this.archiveName = archiveName ;
+		this.destinationFolder = destinationFolder.toPath().toAbsolutePath().normalize();
+		if ( STANDARD_OUTPUT.equals(archiveName) ) {
+			this.out = new BufferedOutputStream(new FileOutputStream(FileDescriptor.out), BUFFER_SIZE);
+		}
+		else {
+			File file = new File(archiveName);
+			if ( file.getAbsoluteFile().getParentFile() != null ) {
+				file.getAbsoluteFile().getParentFile().mkdirs();
+			}
+			this.out = new BufferedOutputStream(new FileOutputStream(file), BUFFER_SIZE);
+		}
+		this.zip = format == Format.ZIP ? new ZipOutputStream(out) : null ;
+		this.tar = format == Format.TAR ? new TarOutputStream(out) : null ;
+	}
+
+	public String getArchiveName() {
+		return archiveName;
+	}
+
+	/**
+	 * Returns the number of entries written in the archive
+	 * @return
+	 */
+	public int getNumberOfEntries() {
+		return entries.size();
+	}
+
+	/**
+	 * Adds the given file in the archive
+	 * @param fileName the output file ( in the destination folder )
+	 * @param content the content to be written
+	 * @return always 'NEW'
+	 * @throws GeneratorException
+	 */
+	@Override
+	public WriteStatus write(String fileName, byte[] content) throws GeneratorException {
+		String entryName = getEntryName(fileName);
+		if ( ! entries.add(entryName) ) {
+			throw new GeneratorException("Duplicate archive entry '" + entryName + "'");
+		}
+		try {
+			if ( zip != null ) {
+				zip.putNextEntry(new ZipEntry(entryName));
+				zip.write(content);
+				zip.closeEntry();
+			}
+			else {
+				tar.putEntry(entryName, content.length, System.currentTimeMillis());
+				tar.write(content);
+				tar.closeEntry();
+			}
+		} catch (IOException e) {
+			throw new GeneratorException("Cannot write '" + entryName + "' in archive " + archiveName, e);
+		}
+		return WriteStatus.NEW ;
+	}
+
+	/**
+	 * Returns the entry name ( relative to the destination folder, with '/' separators )
+	 * @param fileName
+	 * @return
+	 */
+	private String getEntryName(String fileName) {
+		Path path = new File(fileName).toPath().toAbsolutePath().normalize();
+		if ( path.startsWith(destinationFolder) ) {
+			path = destinationFolder.relativize(path);
+		}
+		else if ( path.getRoot() != null ) {
+			path = path.getRoot().relativize(path);
+		}
+		return path.toString().replace('\\', '/');
+	}
+
+	/**
+	 * Ends the archive ( the standard output is flushed but not closed )
+	 */
+	@Override
+	public void close() throws IOException {
+		if ( zip != null ) {
+			zip.finish();
+		}
+		else {
+			tar.finish();
+		}
+		if ( STANDARD_OUTPUT.equals(archiveName) ) {
+			out.flush();
+		}
+		else {
+			out.close();
+		}
+	}
+}
@@ -0,0 +1,234 @@
+/**
+ *  Copyright (C) 2015-2017  Telosys project org. ( http://www.telosys.org/ )
+ *
+ *  Licensed under the GNU LESSER GENERAL PUBLIC LICENSE, Version 3.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *          http://www.gnu.org/licenses/lgpl.html
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.telosys.tools.cli.generation;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import org.telosys.tools.generator.GeneratorException;
+import org.telosys.tools.generator.task.ErrorProcessor;
+import org.telosys.tools.generator.task.ErrorReport;
+
+/**
+ * Background writer for the generated files <br>
+ * The workers put the rendered contents in a bounded queue and go on rendering <br>
+ * ( one request per job : the main target and the targets of the embedded generator ) <br>
+ * ( a worker is blocked only when the queue is full ) <br>
+ * The files are written by a single thread, the callbacks are called by this thread <br>
+ * A callback error does not stop the writer, it is kept as an error report ( see 'getCallbackErrors' ) <br>
+ * If the writer thread stops anyway ( eg error while reporting an error ) 'write' and 'drain' throw an exception <br>
+ * and the files still in the queue are reported as failed ( the workers never wait for a dead writer )
+ *
+ */
+public class AsyncOutputWriter {
+
+	public static final int DEFAULT_QUEUE_SIZE = 256 ;
+
+	private static final long OFFER_TIMEOUT_MS = 200 ; // delay between two checks of the writer thread
+
+	/**
+	 * Callback called by the writer thread when each file of a request has been processed
+	 */
+	public interface Callback {
+
+		/**
+		 * @param fileName
+		 * @param status
+		 * @param writeTime the writing time in nanoseconds
+		 */
+		void written(String fileName, OutputWriter.WriteStatus status, long writeTime);
+
+		void failed(String fileName, GeneratorException e);
+	}
+
+	private static class Request {
+		private final List<OutputFile> files ;
+		private final Callback callback ;
+
+		private Request(List<OutputFile> files, Callback callback) {
+			this.files = files ;
+			this.callback = callback ;
+		}
+	}
+
+	private static final Request END = new Request(Collections.<OutputFile>emptyList(), null);
+
+	private final OutputWriter outputWriter ;
+
+	private final GenerationProfiler profiler ;
+
+	private final BlockingQueue<Request> queue ;
+
+	private final Thread thread ;
+
+	private final List<ErrorReport> callbackErrors = new ArrayList<>(); // only used by the writer thread until 'drain'
+
+	private volatile Throwable writerFailure = null ; // error that stopped the writer thread ( if any )
+
+	/**
+	 * Constructor
+	 * @param outputWriter the writer used to write the files
+	 * @param profiler the profiler (or null if no profiling)
+	 * @param queueSize maximum number of files waiting to be written
+	 */
+	public AsyncOutputWriter(OutputWriter outputWriter, GenerationProfiler profiler, int queueSize) {
+		super();
+		this.outputWriter = outputWriter;
+		this.profiler = profiler;
+		this.queue = new ArrayBlockingQueue<>(queueSize > 0 ? queueSize : DEFAULT_QUEUE_SIZE);
+		this.thread = new Thread(new Runnable() {
+			@Override
+			public void run() {
+				try {
+					processQueue();
+				} catch (Throwable e) {
+					writerFailure = e ;
+				}
+			}
+		}, "telosys-writer");
+		this.thread.setDaemon(true);
+	}
+
+	/**
+	 * Starts the writer thread
+	 */
+	public void start() {
+		thread.start();
+	}
+
+	/**
+	 * Puts the given files in the queue ( waits if the queue is full ) <br>
+	 * The callback is called once for each file, in the list order
+	 * @param files
+	 * @param callback
+	 * @throws InterruptedException
+	 * @throws GeneratorException if the writer thread is stopped
+	 */
+	public void write(List<OutputFile> files, Callback callback) throws InterruptedException, GeneratorException {
+		checkWriterThread();
+		put(new Request(files, callback));
+	}
+
+	/**
+	 * Waits until all the files in the queue are written and stops the writer thread
+	 * @throws InterruptedException
+	 * @throws GeneratorException if the writer thread has stopped before the end of the queue <br>
+	 *   ( the files not written are reported to their callbacks as failed )
+	 */
+	public void drain() throws InterruptedException, GeneratorException {
+		try {
+			put(END);
+		} catch (GeneratorException e) {
+			// writer thread already stopped : the pending requests are failed below
+		}
+		thread.join();
+		int notWritten = failPendingRequests();
+		if ( notWritten > 0 || writerFailure != null ) {
+			throw new GeneratorException("Writer thread stopped (" + notWritten + " file(s) not written)", writerFailure);
+		}
+	}
+
+	/**
+	 * Puts the given request in the queue, waits while the queue is full and the writer thread is alive
+	 */
+	private void put(Request request) throws InterruptedException, GeneratorException {
+		while ( ! queue.offer(request, OFFER_TIMEOUT_MS, TimeUnit.MILLISECONDS) ) {
+			checkWriterThread();
+		}
+	}
+
+	private void checkWriterThread() throws GeneratorException {
+		if ( ! thread.isAlive() && thread.getState() != Thread.State.NEW ) {
+			throw new GeneratorException("Writer thread stopped", writerFailure);
+		}
+	}
+
+	/**
+	 * Reports the requests left in the queue by a stopped writer thread as failed <br>
+	 * ( called after 'join' : the callbacks are never called by two threads at the same time )
+	 * @return the number of files failed
+	 */
+	private int failPendingRequests() {
+		int count = 0 ;
+		Request request ;
+		while ( ( request = queue.poll() ) != null ) {
+			for ( OutputFile file : request.files ) {
+				count++ ;
+				try {
+					request.callback.failed(file.getFileName(), 
+							new GeneratorException("File " + file.getFileName() + " not written (writer thread stopped)", writerFailure));
+				} catch (Throwable e) {
+					callbackErrors.add( ErrorProcessor.buildErrorReport("Write callback error (file '" + file.getFileName() + "')", e) );
+				}
+			}
+		}
+		return count ;
+	}
+
+	/**
+	 * Returns the errors thrown by the callbacks ( to be called after 'drain' )
+	 * @return
+	 */
+	public List<ErrorReport> getCallbackErrors() {
+		return callbackErrors;
+	}
+
+	private void processQueue() {
+		while ( true ) {
+			Request request ;
+			try {
+				request = queue.take();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				return ;
+			}
+			if ( request == END ) {
+				return ;
+			}
+			for ( OutputFile file : request.files ) {
+				try {
+					process(file, request.callback);
+				} catch (Throwable e) {
+					// a callback error ( even an Error like OutOfMemoryError ) must not stop the writer
+					callbackErrors.add( ErrorProcessor.buildErrorReport("Write callback error (file '" + file.getFileName() + "')", e) );
+				}
+			}
+		}
+	}
+
+	private void process(OutputFile file, Callback callback) {
+		OutputWriter.WriteStatus status ;
+		long writeStart = System.nanoTime();
+		try {
+			GenerationProfiler.Measure measure = profiler != null ? profiler.start() : null ;
+			status = outputWriter.write(file.getFileName(), file.getContent());
+			if ( profiler != null ) {
+				profiler.stop(GenerationProfiler.Phase.WRITING, measure);
+			}
+		} catch (GeneratorException e) {
+			callback.failed(file.getFileName(), e);
+			return ;
+		} catch (RuntimeException | Error e) {
+			callback.failed(file.getFileName(), new GeneratorException("Cannot save file " + file.getFileName(), e));
+			return ;
+		}
+		callback.written(file.getFileName(), status, System.nanoTime() - writeStart);
+	}
+}
@@ -0,0 +1,97 @@
+/**
+ *  Copyright (C) 2015-2017  Telosys project org. ( http://www.telosys.org/ )
+ *
+ *  Licensed under the GNU LESSER GENERAL PUBLIC LICENSE, Version 3.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *          http://www.gnu.org/licenses/lgpl.html
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.telosys.tools.cli.generation;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Utility class for the files of a bundle 
+ *
+ */
+public class BundleFiles {
+
+	public static final String TEMPLATES_CFG    = "templates.cfg" ;
+
+	public static final String RESOURCES_FOLDER = "resources" ;
+
+	/**
+	 * Private constructor
+	 */
+	private BundleFiles() {
+	}
+
+	/**
+	 * Returns the "shared" files of the bundle : all the files that are neither a template target <br>
+	 * nor the 'templates.cfg' file nor a resource ( eg the macros or the files included by the templates ) 
+	 * @param bundleFolder
+	 * @param templates the templates of the targets ( file names in the bundle )
+	 * @return the files sorted by path
+	 */
+	public static List<File> getSharedFiles(File bundleFolder, Collection<String> templates) {
+		List<File> files = new ArrayList<>();
+		collectSharedFiles(bundleFolder, bundleFolder, templates, files);
+		Collections.sort(files);
+		return files ;
+	}
+
+	private static void collectSharedFiles(File bundleFolder, File folder, Collection<String> templates, List<File> files) {
+		File[] children = folder.listFiles();
+		if ( children == null ) {
+			return ;
+		}
+		for ( File f : children ) {
+			if ( f.isDirectory() ) {
+				if ( ! ( folder.equals(bundleFolder) && RESOURCES_FOLDER.equals(f.getName()) ) ) {
+					collectSharedFiles(bundleFolder, f, templates, files);
+				}
+			}
+			else {
+				String path = bundleFolder.toURI().relativize(f.toURI()).getPath();
+				if ( ! TEMPLATES_CFG.equals(path) && ! templates.contains(path) ) {
+					files.add(f);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Returns the stamp of the bundle shared files ( a cached template is invalid if it changes )
+	 * @param bundleFolder
+	 * @param templates the templates of the targets ( file names in the bundle )
+	 * @return
+	 */
+	public static String getSharedFilesStamp(File bundleFolder, Collection<String> templates) {
+		List<File> sharedFiles = getSharedFiles(bundleFolder, templates);
+		return sharedFiles.size() + "/" + getLastModified(sharedFiles) ;
+	}
+
+	/**
+	 * Returns the last modification time of the given files ( 0 if none )
+	 * @param files
+	 * @return
+	 */
+	public static long getLastModified(List<File> files) {
+		long lastModified = 0 ;
+		for ( File f : files ) {
+			lastModified = Math.max(lastModified, f.lastModified());
+		}
+		return lastModified ;
+	}
+}
@@ -0,0 +1,103 @@
+/**
+ *  Copyright (C) 2015-2017  Telosys project org. ( http://www.telosys.org/ )
+ *
+ *  Licensed under the GNU LESSER GENERAL PUBLIC LICENSE, Version 3.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *          http://www.gnu.org/licenses/lgpl.html
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.telosys.tools.cli.generation;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.lang.management.MemoryUsage;
+
+/**
+ * Size of the next chunk of entities for a memory-bounded generation <br>
+ * The size is adapted after each chunk according to the heap headroom ( free part of the max heap ) : <br>
+ * halved if the headroom is low, doubled ( up to the configured size ) if the headroom is high
+ *
+ */
+public class ChunkSizer {
+
+	/**
+	 * Headroom under which the chunk size is reduced
+	 */
+	public static final double LOW_HEADROOM = 0.25 ;
+
+	/**
+	 * Headroom over which the chunk size is increased
+	 */
+	public static final double HIGH_HEADROOM = 0.50 ;
+
+	private final MemoryMXBean memoryBean = ManagementFactory.getMemoryMXBean();
+
+	private final int maxChunkSize ;
+
+	private int chunkSize ;
+
+	private int minUsed ;
+
+	/**
+	 * Constructor
+	 * @param maxChunkSize the configured chunk size ( number of entities )
+	 */
+	public ChunkSizer(int maxChunkSize) {
+		super();
+		this.maxChunkSize = maxChunkSize > 0 ? maxChunkSize : 1 ;
+		this.chunkSize = this.maxChunkSize ;
+		this.minUsed = this.maxChunkSize ;
+	}
+
+	/**
+	 * Returns the current chunk size ( number of entities )
+	 * @return
+	 */
+	public int getChunkSize() {
+		return chunkSize;
+	}
+
+	/**
+	 * Returns the smallest chunk size used since the creation
+	 * @return
+	 */
+	public int getMinChunkSize() {
+		return minUsed;
+	}
+
+	/**
+	 * Returns the free part of the heap ( 0.0 to 1.0 )
+	 * @return
+	 */
+	public double getHeadroom() {
+		MemoryUsage heap = memoryBean.getHeapMemoryUsage();
+		long max = heap.getMax() > 0 ? heap.getMax() : heap.getCommitted() ;
+		if ( max <= 0 ) {
+			return 1.0 ;
+		}
+		return (double) ( max - heap.getUsed() ) / max ;
+	}
+
+	/**
+	 * Adapts the chunk size to the current heap headroom ( called at the end of each chunk )
+	 * @return the size of the next chunk
+	 */
+	public int adapt() {
+		double headroom = getHeadroom();
+		if ( headroom < LOW_HEADROOM ) {
+			chunkSize = Math.max(1, chunkSize / 2);
+		}
+		else if ( headroom > HIGH_HEADROOM ) {
+			chunkSize = (int) Math.min((long) maxChunkSize, chunkSize * 2L);
+		}
+		minUsed = Math.min(minUsed, chunkSize);
+		return chunkSize ;
+	}
+}
@@ -0,0 +1,81 @@
+/**
+ *  Copyright (C) 2015-2017  Telosys project org. ( http://www.telosys.org/ )
+ *
+ *  Licensed under the GNU LESSER GENERAL PUBLIC LICENSE, Version 3.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *          http://www.gnu.org/licenses/lgpl.html
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.telosys.tools.cli.generation;
+
+import java.util.List;
+
+import org.telosys.tools.commons.bundles.TargetDefinition;
+import org.telosys.tools.commons.cfg.TelosysToolsCfg;
+import org.telosys.tools.generator.GeneratorException;
+import org.telosys.tools.generator.context.Target;
+import org.telosys.tools.generic.model.Entity;
+import org.telosys.tools.generic.model.Model;
+
+/**
+ * The '$generator' object of the templates rendered in memory <br>
+ * Same method as the standard embedded generator, but the target is rendered in memory <br>
+ * and added to the files of the current job instead of being written immediately <br>
+ * ( the file is then written by the output stage : staging area, archive, unchanged content )
+ *
+ */
+public class EmbeddedTargetsGenerator {
+
+	private final TargetRenderer   renderer ;
+	private final TelosysToolsCfg  telosysToolsCfg ;
+	private final Model            model ;
+	private final List<String>     selectedEntities ;
+	private final List<OutputFile> files ;
+
+	/**
+	 * Constructor
+	 * @param renderer the renderer of the current job
+	 * @param telosysToolsCfg
+	 * @param model
+	 * @param selectedEntities
+	 * @param files the list where to add the files generated
+	 */
+	public EmbeddedTargetsGenerator(TargetRenderer renderer, TelosysToolsCfg telosysToolsCfg, Model model,
+			List<String> selectedEntities, List<OutputFile> files) {
+		super();
+		this.renderer = renderer;
+		this.telosysToolsCfg = telosysToolsCfg;
+		this.model = model;
+		this.selectedEntities = selectedEntities;
+		this.files = files;
+	}
+
+	/**
+	 * Generates the given template for the given entity ( called by the templates : '$generator.generate(...)' )
+	 * @param entityName the entity class name
+	 * @param outputFile the output file name ( can contain variables )
+	 * @param outputFolder the output folder ( can contain variables )
+	 * @param templateName the template file in the bundle
+	 * @throws GeneratorException
+	 */
+	public void generate(String entityName, String outputFile, String outputFolder, String templateName)
+			throws GeneratorException {
+		Entity entity = entityName != null ? model.getEntityByClassName(entityName.trim()) : null ;
+		if ( entity == null ) {
+			throw new GeneratorException("Embedded generator : entity '" + entityName + "' not found in the model");
+		}
+		TargetDefinition targetDefinition = new TargetDefinition("Dynamic target", outputFile, outputFolder, templateName, "*");
+		Target target = new Target(targetDefinition, entity, telosysToolsCfg.getAllVariables());
+		// the generated template can also use '$generator'
+		String content = renderer.render(target, model, selectedEntities, files);
+		files.add(new OutputFile(target.getOutputFileNameInFileSystem(telosysToolsCfg.getDestinationFolderAbsolutePath()),
+				content.getBytes()));
+	}
+}
@@ -0,0 +1,125 @@
+/**
+ *  Copyright (C) 2015-2017  Telosys project org. ( http://www.telosys.org/ )
+ *
+ *  Licensed under the GNU LESSER GENERAL PUBLIC LICENSE, Version 3.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *          http://www.gnu.org/licenses/lgpl.html
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.telosys.tools.cli.generation;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.WeakHashMap;
+
+import org.telosys.tools.generic.model.Entity;
+import org.telosys.tools.generic.model.Link;
+import org.telosys.tools.generic.model.Model;
+
+/**
+ * Graph of the links between the entities of a model ( forward and reverse edges ) <br>
+ * An entity is "affected" by a change if it is the changed entity or if it has a link to the changed entity <br>
+ * ( a template can use the attributes of the entities referenced by the links, as the incremental manifest ) <br>
+ * The graph is built once for each loaded model ( a reloaded model is a new model instance )
+ *
+ */
+public class EntityGraph {
+
+	private static final Map<Model, EntityGraph> CACHE = new WeakHashMap<>();
+
+	private final Map<String, Set<String>> forward = new HashMap<>();
+
+	private final Map<String, Set<String>> reverse = new HashMap<>();
+
+	/**
+	 * Returns the graph for the given model ( built at the first call for this model instance )
+	 * @param model
+	 * @return
+	 */
+	public static EntityGraph getGraph(Model model) {
+		synchronized (CACHE) {
+			EntityGraph graph = CACHE.get(model);
+			if ( graph == null ) {
+				graph = new EntityGraph(model);
+				CACHE.put(model, graph);
+			}
+			return graph ;
+		}
+	}
+
+	/**
+	 * Constructor
+	 * @param model
+	 */
+	public EntityGraph(Model model) {
+		super();
+		for ( Entity entity : model.getEntities() ) {
+			forward.put(entity.getClassName(), new TreeSet<String>());
+			reverse.put(entity.getClassName(), new TreeSet<String>());
+		}
+		for ( Entity entity : model.getEntities() ) {
+			for ( Link link : entity.getLinks() ) {
+				String target = link.getTargetEntityClassName();
+				if ( target != null && reverse.containsKey(target) && ! target.equals(entity.getClassName()) ) {
+					forward.get(entity.getClassName()).add(target);
+					reverse.get(target).add(entity.getClassName());
+				}
+			}
+		}
+	}
+
+	/**
+	 * Returns true if the given entity is in the graph
+	 * @param entityName
+	 * @return
+	 */
+	public boolean contains(String entityName) {
+		return forward.containsKey(entityName);
+	}
+
+	/**
+	 * Returns the entities referenced by the links of the given entity
+	 * @param entityName
+	 * @return
+	 */
+	public Set<String> getReferencedEntities(String entityName) {
+		Set<String> set = forward.get(entityName);
+		return set != null ? Collections.unmodifiableSet(set) : Collections.<String>emptySet() ;
+	}
+
+	/**
+	 * Returns the entities having a link to the given entity
+	 * @param entityName
+	 * @return
+	 */
+	public Set<String> getReferencingEntities(String entityName) {
+		Set<String> set = reverse.get(entityName);
+		return set != null ? Collections.unmodifiableSet(set) : Collections.<String>emptySet() ;
+	}
+
+	/**
+	 * Returns the minimal set of entities to be regenerated after a change of the given entities <br>
+	 * ( the changed entities and the entities referencing them )
+	 * @param changedEntities
+	 * @return
+	 */
+	public Set<String> getAffectedEntities(Collection<String> changedEntities) {
+		Set<String> affected = new TreeSet<>();
+		for ( String entityName : changedEntities ) {
+			affected.add(entityName);
+			affected.addAll(getReferencingEntities(entityName));
+		}
+		return affected ;
+	}
+}
@@ -0,0 +1,173 @@
+/**
+ *  Copyright (C) 2015-2017  Telosys project org. ( http://www.telosys.org/ )
+ *
+ *  Licensed under the GNU LESSER GENERAL PUBLIC LICENSE, Version 3.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *          http://www.gnu.org/licenses/lgpl.html
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.telosys.tools.cli.generation;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Watches folders ( with all their sub-folders ) and returns the files changed <br>
+ * The changes are "debounced" : a burst of changes is returned as a single set of files
+ *
+ */
+public class FileWatcher implements Closeable {
+
+	private final WatchService watchService ;
+
+	private final Map<WatchKey, Path> keys = new HashMap<>();
+
+	private final Set<Path> recursiveFolders = new HashSet<>();
+
+	/**
+	 * Constructor
+	 * @throws IOException
+	 */
+	public FileWatcher() throws IOException {
+		super();
+		this.watchService = FileSystems.getDefault().newWatchService();
+	}
+
+	/**
+	 * Watches the given folder and all its sub-folders ( including the sub-folders created later )
+	 * @param folder
+	 * @throws IOException
+	 */
+	public void watchTree(File folder) throws IOException {
+		if ( folder.isDirectory() ) {
+			Path root = folder.toPath().toAbsolutePath();
+			recursiveFolders.add(root);
+			registerTree(root, null);
+		}
+	}
+
+	/**
+	 * Watches the files of the given folder ( without the sub-folders )
+	 * @param folder
+	 * @throws IOException
+	 */
+	public void watchFolder(File folder) throws IOException {
+		if ( folder.isDirectory() ) {
+			register(folder.toPath().toAbsolutePath());
+		}
+	}
+
+	private void register(Path folder) throws IOException {
+		WatchKey key = folder.register(watchService, StandardWatchEventKinds.ENTRY_CREATE,
+				StandardWatchEventKinds.ENTRY_MODIFY, StandardWatchEventKinds.ENTRY_DELETE);
+		keys.put(key, folder);
+	}
+
+	/**
+	 * Registers the given folder and its sub-folders
+	 * @param root
+	 * @param files the set where to add the files found in the folders (or null if not used)
+	 * @throws IOException
+	 */
+	private void registerTree(Path root, final Set<Path> files) throws IOException {
+		Files.walkFileTree(root, new SimpleFileVisitor<Path>() {
+			@Override
+			public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) throws IOException {
+				register(dir);
+				return FileVisitResult.CONTINUE;
+			}
+			@Override
+			public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+				if ( files != null ) {
+					files.add(file);
+				}
+				return FileVisitResult.CONTINUE;
+			}
+		});
+	}
+
+	private boolean isInTree(Path path) {
+		for ( Path root : recursiveFolders ) {
+			if ( path.startsWith(root) ) {
+				return true ;
+			}
+		}
+		return false ;
+	}
+
+	/**
+	 * Waits for changes and returns the changed files ( created, modified or deleted ) <br>
+	 * Returns when no more change occurs during the given "quiet period"
+	 * @param quietPeriod the debounce delay in milliseconds
+	 * @return the changed files (or null if the watcher has been closed)
+	 * @throws InterruptedException
+	 */
+	public Set<Path> waitForChanges(long quietPeriod) throws InterruptedException {
+		Set<Path> changes = new HashSet<>();
+		try {
+			WatchKey key = watchService.take();
+			while ( key != null ) {
+				processEvents(key, changes);
+				key = watchService.poll(quietPeriod, TimeUnit.MILLISECONDS);
+			}
+		} catch (ClosedWatchServiceException e) {
+			return null ;
+		}
+		return changes ;
+	}
+
+	private void processEvents(WatchKey key, Set<Path> changes) {
+		Path folder = keys.get(key);
+		for ( WatchEvent<?> event : key.pollEvents() ) {
+			if ( folder == null || event.kind() == StandardWatchEventKinds.OVERFLOW ) {
+				continue ;
+			}
+			Path path = folder.resolve((Path) event.context());
+			if ( Files.isDirectory(path) ) {
+				if ( event.kind() == StandardWatchEventKinds.ENTRY_CREATE && isInTree(path) ) {
+					try {
+						// the files can be created before the registration of the new folder
+						registerTree(path, changes);
+					} catch (IOException e) {
+						// folder removed in the meantime
+					}
+				}
+			}
+			else {
+				changes.add(path);
+			}
+		}
+		if ( ! key.reset() ) {
+			keys.remove(key);
+		}
+	}
+
+	@Override
+	public void close() throws IOException {
+		watchService.close();
+	}
+}
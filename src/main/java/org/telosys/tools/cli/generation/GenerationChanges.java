@@ -0,0 +1,157 @@
+/**
+ *  Copyright (C) 2015-2017  Telosys project org. ( http://www.telosys.org/ )
+ *
+ *  Licensed under the GNU LESSER GENERAL PUBLIC LICENSE, Version 3.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *          http://www.gnu.org/licenses/lgpl.html
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.telosys.tools.cli.generation;
+
+import java.io.File;
+import java.nio.file.Path;
+import java.util.Collection;
+import java.util.Set;
+import java.util.TreeSet;
+
+import org.telosys.tools.dsl.DslModelUtil;
+
+/**
+ * Impact of a set of changed files on the generation ( used by the "watch" mode ) : <br>
+ * . a DSL entity file : the entity must be regenerated with all the templates <br>
+ * . a template : the template must be regenerated for all the entities <br>
+ * . the model file, 'templates.cfg' or a shared bundle file : everything must be regenerated <br>
+ * . a resource : the resources must be copied
+ *
+ */
+public class GenerationChanges {
+
+	private final Set<String> entities = new TreeSet<>();
+
+	private final Set<String> templates = new TreeSet<>();
+
+	private boolean modelChanged = false ;
+
+	private boolean allEntities = false ;
+
+	private boolean targetsChanged = false ;
+
+	private boolean resourcesChanged = false ;
+
+	/**
+	 * Constructor
+	 * @param changedFiles the files created, modified or deleted
+	 * @param modelFile the current model file
+	 * @param modelFolder the folder of the DSL model entities (or null if not a DSL model)
+	 * @param bundleFolder the current bundle folder
+	 * @param bundleTemplates the templates of the bundle ( file names in the bundle )
+	 */
+	public GenerationChanges(Collection<Path> changedFiles, File modelFile, File modelFolder, File bundleFolder,
+			Collection<String> bundleTemplates) {
+		super();
+		Path modelPath = modelFile.toPath().toAbsolutePath();
+		Path modelFolderPath = modelFolder != null ? modelFolder.toPath().toAbsolutePath() : null ;
+		Path bundlePath = bundleFolder.toPath().toAbsolutePath();
+		Path resourcesPath = bundlePath.resolve(BundleFiles.RESOURCES_FOLDER);
+		for ( Path path : changedFiles ) {
+			if ( path.equals(modelPath) ) {
+				modelChanged = true ;
+				allEntities = true ;
+			}
+			else if ( modelFolderPath != null && path.startsWith(modelFolderPath) ) {
+				// only the entity files are part of the model
+				if ( path.getParent().equals(modelFolderPath) && DslModelUtil.isValidEntityFile(path.toFile(), false) ) {
+					modelChanged = true ;
+					entities.add(DslModelUtil.getEntityName(path.toFile()));
+				}
+			}
+			else if ( path.startsWith(resourcesPath) ) {
+				resourcesChanged = true ;
+			}
+			else if ( path.startsWith(bundlePath) ) {
+				String name = bundlePath.relativize(path).toString().replace('\\', '/');
+				if ( BundleFiles.TEMPLATES_CFG.equals(name) ) {
+					targetsChanged = true ;
+				}
+				else if ( bundleTemplates.contains(name) ) {
+					templates.add(name);
+				}
+				else if ( ! isTemporaryFile(path) ) {
+					// shared file ( macros, included files, etc ) : can be used by all the templates
+					allEntities = true ;
+				}
+			}
+		}
+	}
+
+	/**
+	 * Returns true for the files created and removed by the editors ( backup, swap or temporary files ) <br>
+	 * The detection is based on the file name only ( a deleted shared file is a real change )
+	 * @param path
+	 * @return
+	 */
+	private boolean isTemporaryFile(Path path) {
+		String name = path.getFileName().toString();
+		return name.startsWith(".") || name.endsWith("~") || name.endsWith(".swp") ;
+	}
+
+	/**
+	 * Returns true if nothing has to be regenerated or copied
+	 * @return
+	 */
+	public boolean isEmpty() {
+		return ! modelChanged && ! allEntities && ! targetsChanged && ! resourcesChanged
+				&& entities.isEmpty() && templates.isEmpty() ;
+	}
+
+	/**
+	 * Returns true if the model must be reloaded
+	 * @return
+	 */
+	public boolean isModelChanged() {
+		return modelChanged;
+	}
+
+	/**
+	 * Returns true if all the entities must be regenerated with all the templates
+	 * @return
+	 */
+	public boolean isFullGeneration() {
+		return allEntities || targetsChanged ;
+	}
+
+	/**
+	 * Returns true if the bundle targets ('templates.cfg') must be reloaded
+	 * @return
+	 */
+	public boolean isTargetsChanged() {
+		return targetsChanged;
+	}
+
+	public boolean isResourcesChanged() {
+		return resourcesChanged;
+	}
+
+	/**
+	 * Returns the names of the changed entities ( DSL entity files )
+	 * @return
+	 */
+	public Set<String> getEntities() {
+		return entities;
+	}
+
+	/**
+	 * Returns the changed templates
+	 * @return
+	 */
+	public Set<String> getTemplates() {
+		return templates;
+	}
+}
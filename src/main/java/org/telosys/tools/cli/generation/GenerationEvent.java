@@ -0,0 +1,175 @@
+/**
+ *  Copyright (C) 2015-2017  Telosys project org. ( http://www.telosys.org/ )
+ *
+ *  Licensed under the GNU LESSER GENERAL PUBLIC LICENSE, Version 3.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *          http://www.gnu.org/licenses/lgpl.html
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.telosys.tools.cli.generation;
+
+import org.telosys.tools.generator.task.ErrorReport;
+
+/**
+ * Event notified to the generation listeners <br>
+ * Each event carries the progress of the generation ( jobs done, total jobs, elapsed time )
+ *
+ */
+public class GenerationEvent {
+
+	/**
+	 * Event types
+	 */
+	public enum Type {
+		GENERATION_STARTED,
+		FILE_STARTED,
+		FILE_WRITTEN,
+		FILE_ERROR,
+		GENERATION_ENDED
+	}
+
+	private final Type type ;
+	private final GenerationJob job ;
+	private final String outputFileName ;
+	private final OutputWriter.WriteStatus writeStatus ;
+	private final ErrorReport errorReport ;
+	private final int done ;
+	private final int total ;
+	private final long elapsedTime ;
+	private final long size ;
+	private final long renderTime ;
+	private final long writeTime ;
+
+	/**
+	 * Constructor
+	 * @param type
+	 * @param job the job (or null for the generation events)
+	 * @param outputFileName the output file (for FILE_WRITTEN only)
+	 * @param writeStatus the output status (for FILE_WRITTEN only)
+	 * @param errorReport the error (for FILE_ERROR only)
+	 * @param done number of jobs done ( written or in error )
+	 * @param total total number of jobs
+	 * @param elapsedTime elapsed time since the beginning of the generation (in milliseconds)
+	 */
+	public GenerationEvent(Type type, GenerationJob job, String outputFileName, OutputWriter.WriteStatus writeStatus,
+			ErrorReport errorReport, int done, int total, long elapsedTime) {
+		this(type, job, outputFileName, writeStatus, errorReport, done, total, elapsedTime, -1, 0, 0);
+	}
+
+	/**
+	 * Constructor with the measures of a file
+	 * @param type
+	 * @param job the job (or null for the generation events)
+	 * @param outputFileName the output file (for FILE_WRITTEN only)
+	 * @param writeStatus the output status (for FILE_WRITTEN only)
+	 * @param errorReport the error (for FILE_ERROR only)
+	 * @param done number of jobs done ( written or in error )
+	 * @param total total number of jobs
+	 * @param elapsedTime elapsed time since the beginning of the generation (in milliseconds)
+	 * @param size size of the generated content in bytes (or -1 if unknown)
+	 * @param renderTime rendering time (in nanoseconds)
+	 * @param writeTime writing time (in nanoseconds)
+	 */
+	public GenerationEvent(Type type, GenerationJob job, String outputFileName, OutputWriter.WriteStatus writeStatus,
+			ErrorReport errorReport, int done, int total, long elapsedTime, long size, long renderTime, long writeTime) {
+		super();
+		this.type = type;
+		this.job = job;
+		this.outputFileName = outputFileName;
+		this.writeStatus = writeStatus;
+		this.errorReport = errorReport;
+		this.done = done;
+		this.total = total;
+		this.elapsedTime = elapsedTime;
+		this.size = size;
+		this.renderTime = renderTime;
+		this.writeTime = writeTime;
+	}
+
+	public Type getType() {
+		return type;
+	}
+
+	public GenerationJob getJob() {
+		return job;
+	}
+
+	public String getOutputFileName() {
+		return outputFileName;
+	}
+
+	public OutputWriter.WriteStatus getWriteStatus() {
+		return writeStatus;
+	}
+
+	public ErrorReport getErrorReport() {
+		return errorReport;
+	}
+
+	public int getDone() {
+		return done;
+	}
+
+	public int getTotal() {
+		return total;
+	}
+
+	public long getElapsedTime() {
+		return elapsedTime;
+	}
+
+	/**
+	 * Returns the size of the generated content in bytes (or -1 if unknown)
+	 * @return
+	 */
+	public long getSize() {
+		return size;
+	}
+
+	/**
+	 * Returns the rendering time of the file in nanoseconds (or 0 if unknown)
+	 * @return
+	 */
+	public long getRenderTime() {
+		return renderTime;
+	}
+
+	/**
+	 * Returns the writing time of the file in nanoseconds (or 0 if unknown)
+	 * @return
+	 */
+	public long getWriteTime() {
+		return writeTime;
+	}
+
+	/**
+	 * Returns the throughput ( jobs done per second )
+	 * @return
+	 */
+	public double getFilesPerSecond() {
+		return elapsedTime > 0 ? ( done * 1000.0 ) / elapsedTime : 0 ;
+	}
+
+	/**
+	 * Returns the estimated remaining time in milliseconds (or -1 if unknown)
+	 * @return
+	 */
+	public long getEstimatedRemainingTime() {
+		if ( done == 0 ) {
+			return -1 ;
+		}
+		return ( elapsedTime * ( total - done ) ) / done ;
+	}
+
+	@Override
+	public String toString() {
+		return type + " " + done + "/" + total + ( job != null ? " " + job : "" ) ;
+	}
+}
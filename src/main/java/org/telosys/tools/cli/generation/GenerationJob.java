@@ -0,0 +1,83 @@
+/**
+ *  Copyright (C) 2015-2017  Telosys project org. ( http://www.telosys.org/ )
+ *
+ *  Licensed under the GNU LESSER GENERAL PUBLIC LICENSE, Version 3.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *          http://www.gnu.org/licenses/lgpl.html
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.telosys.tools.cli.generation;
+
+import org.telosys.tools.commons.bundles.TargetDefinition;
+import org.telosys.tools.commons.variables.Variable;
+import org.telosys.tools.generator.context.Target;
+import org.telosys.tools.generic.model.Entity;
+
+/**
+ * A unit of generation : one template applied to one entity <br>
+ * (or a template applied once, without entity)
+ *
+ */
+public class GenerationJob {
+
+	private final Entity entity ;
+
+	private final TargetDefinition targetDefinition ;
+
+	/**
+	 * Constructor for a job with an entity
+	 * @param entity
+	 * @param targetDefinition
+	 */
+	public GenerationJob(Entity entity, TargetDefinition targetDefinition) {
+		super();
+		this.entity = entity;
+		this.targetDefinition = targetDefinition;
+	}
+
+	/**
+	 * Constructor for a job without entity ( target generated "once" )
+	 * @param targetDefinition
+	 */
+	public GenerationJob(TargetDefinition targetDefinition) {
+		this(null, targetDefinition);
+	}
+
+	/**
+	 * Returns the entity or null if the target is generated "once"
+	 * @return
+	 */
+	public Entity getEntity() {
+		return entity;
+	}
+
+	public TargetDefinition getTargetDefinition() {
+		return targetDefinition;
+	}
+
+	/**
+	 * Builds the generator target for this job
+	 * @param variables the project variables
+	 * @return
+	 */
+	public Target buildTarget(Variable[] variables) {
+		if ( entity != null ) {
+			return new Target(targetDefinition, entity, variables);
+		}
+		else {
+			return new Target(targetDefinition, variables);
+		}
+	}
+
+	@Override
+	public String toString() {
+		return ( entity != null ? entity.getClassName() : "(no entity)" ) + " : " + targetDefinition.getTemplate() ;
+	}
+}
@@ -0,0 +1,256 @@
+/**
+ *  Copyright (C) 2015-2017  Telosys project org. ( http://www.telosys.org/ )
+ *
+ *  Licensed under the GNU LESSER GENERAL PUBLIC LICENSE, Version 3.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *          http://www.gnu.org/licenses/lgpl.html
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.telosys.tools.cli.generation;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.telosys.tools.cli.Const;
+import org.telosys.tools.commons.PropertiesManager;
+import org.telosys.tools.commons.bundles.TargetDefinition;
+import org.telosys.tools.commons.cfg.TelosysToolsCfg;
+import org.telosys.tools.generic.model.Entity;
+import org.telosys.tools.generic.model.Link;
+import org.telosys.tools.generic.model.Model;
+
+/**
+ * Manifest of the last generation for a model and a bundle ( used by the incremental generation ) <br>
+ * It records the hash of each entity, each template, the bundle configuration <br>
+ * and, for each generated ( entity, target ) pair, the hash of its inputs and the output file state <br>
+ * A pair is "up to date" if its inputs hash is unchanged and if its output file has not been modified since
+ *
+ */
+public class GenerationManifest {
+
+	private static final String MANIFESTS_FOLDER = "manifests" ;
+
+	private static final String CFG_KEY         = "cfg" ;
+	private static final String TEMPLATE_PREFIX = "template." ;
+	private static final String ENTITY_PREFIX   = "entity." ;
+	private static final String TARGET_PREFIX   = "target." ;
+
+	private static final String ONCE = "*" ;
+	private static final String SEPARATOR = ";" ;
+
+	private final File file ;
+
+	private final Map<String, String> targets = new ConcurrentHashMap<>();
+
+	private final Map<String, String> templatesHashes = new HashMap<>();
+
+	private final Map<String, String> entitiesHashes = new HashMap<>();
+
+	private String cfgHash = "" ;
+
+	private String selectionHash = "" ;
+
+	/**
+	 * Constructor
+	 * @param file the manifest file
+	 */
+	public GenerationManifest(File file) {
+		super();
+		this.file = file;
+	}
+
+	/**
+	 * Returns the manifest file for the given model and bundle ( in the 'TelosysTools' folder )
+	 * @param telosysToolsCfg
+	 * @param modelName
+	 * @param bundleName
+	 * @return
+	 */
+	public static File getManifestFile(TelosysToolsCfg telosysToolsCfg, String modelName, String bundleName) {
+		String folder = telosysToolsCfg.getTelosysToolsFolderAbsolutePath();
+		if ( folder == null ) {
+			folder = telosysToolsCfg.getProjectAbsolutePath() + File.separator + Const.TELOSYS_TOOLS_FOLDER ;
+		}
+		File manifestsFolder = new File(folder, MANIFESTS_FOLDER);
+		return new File(manifestsFolder, modelName + "_" + bundleName + ".manifest");
+	}
+
+	public File getFile() {
+		return file;
+	}
+
+	/**
+	 * Loads the targets state recorded by the previous generation (if any)
+	 */
+	public void load() {
+		targets.clear();
+		if ( file.exists() ) {
+			Properties properties = new PropertiesManager(file).load();
+			if ( properties != null ) {
+				for ( String key : properties.stringPropertyNames() ) {
+					if ( key.startsWith(TARGET_PREFIX) ) {
+						targets.put(key.substring(TARGET_PREFIX.length()), properties.getProperty(key));
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * Saves the manifest ( the pairs that were not part of the current generation are kept )
+	 */
+	public void save() {
+		Properties properties = new Properties();
+		properties.setProperty(CFG_KEY, cfgHash);
+		for ( Map.Entry<String, String> e : templatesHashes.entrySet() ) {
+			properties.setProperty(TEMPLATE_PREFIX + e.getKey(), e.getValue());
+		}
+		for ( Map.Entry<String, String> e : entitiesHashes.entrySet() ) {
+			properties.setProperty(ENTITY_PREFIX + e.getKey(), e.getValue());
+		}
+		for ( Map.Entry<String, String> e : targets.entrySet() ) {
+			properties.setProperty(TARGET_PREFIX + e.getKey(), e.getValue());
+		}
+		File folder = file.getParentFile();
+		if ( folder != null && ! folder.exists() ) {
+			folder.mkdirs();
+		}
+		new PropertiesManager(file).save(properties, "Incremental generation manifest");
+	}
+
+	/**
+	 * Computes the hash of all the inputs of the generation <br>
+	 * ( 'telosys-tools.cfg', 'templates.cfg' and the bundle files that are not templates, model-level values, <br>
+	 *   templates, entities )
+	 * @param telosysToolsCfg
+	 * @param bundleName
+	 * @param model
+	 * @param selectedEntities
+	 * @param bundleTemplatesTargets all the templates targets defined in the bundle
+	 * @throws IOException
+	 */
+	public void computeInputs(TelosysToolsCfg telosysToolsCfg, String bundleName, Model model,
+			List<String> selectedEntities, List<TargetDefinition> bundleTemplatesTargets) throws IOException {
+		File bundleFolder = new File(telosysToolsCfg.getTemplatesFolderAbsolutePath(bundleName));
+		// Templates
+		templatesHashes.clear();
+		for ( TargetDefinition td : bundleTemplatesTargets ) {
+			String template = td.getTemplate();
+			if ( ! templatesHashes.containsKey(template) ) {
+				templatesHashes.put(template, HashUtil.hashFile(new File(bundleFolder, template)));
+			}
+		}
+		// Configuration : project cfg + bundle cfg + shared bundle files ( eg macros included by the templates )
+		// + model-level values ( eg '$model.name' or '$model.version' used by any template )
+		List<String> cfgHashes = new ArrayList<>();
+		cfgHashes.add(HashUtil.hashFile(new File(telosysToolsCfg.getCfgFileAbsolutePath())));
+		cfgHashes.add(HashUtil.hashModel(model));
+		cfgHashes.add(HashUtil.hashFile(new File(bundleFolder, BundleFiles.TEMPLATES_CFG)));
+		for ( File f : BundleFiles.getSharedFiles(bundleFolder, templatesHashes.keySet()) ) {
+			cfgHashes.add(f.getPath() + "=" + HashUtil.hashFile(f));
+		}
+		cfgHash = HashUtil.combine(cfgHashes.toArray(new String[cfgHashes.size()]));
+		// Entities ( each entity hash includes the hash of the entities referenced by its links )
+		Map<String, String> definitionsHashes = new HashMap<>();
+		for ( Entity entity : model.getEntities() ) {
+			definitionsHashes.put(entity.getClassName(), HashUtil.hashEntity(entity));
+		}
+		entitiesHashes.clear();
+		for ( Entity entity : model.getEntities() ) {
+			entitiesHashes.put(entity.getClassName(), computeEntityHash(entity, definitionsHashes));
+		}
+		// Selection ( used by the templates generated "once" )
+		List<String> selection = new ArrayList<>();
+		for ( String entityName : selectedEntities ) {
+			String name = entityName.trim();
+			selection.add(name + "=" + entitiesHashes.get(name));
+		}
+		Collections.sort(selection);
+		selectionHash = HashUtil.combine(selection.toArray(new String[selection.size()]));
+	}
+
+	private String computeEntityHash(Entity entity, Map<String, String> definitionsHashes) {
+		Set<String> linked = new HashSet<>();
+		for ( Link link : entity.getLinks() ) {
+			linked.add(link.getTargetEntityClassName());
+		}
+		List<String> values = new ArrayList<>();
+		for ( String name : linked ) {
+			values.add(name + "=" + definitionsHashes.get(name));
+		}
+		Collections.sort(values);
+		values.add(0, definitionsHashes.get(entity.getClassName()));
+		return HashUtil.combine(values.toArray(new String[values.size()]));
+	}
+
+	private String getPairKey(GenerationJob job) {
+		TargetDefinition td = job.getTargetDefinition();
+		String entityName = job.getEntity() != null ? job.getEntity().getClassName() : ONCE ;
+		return entityName + "|" + td.getTemplate() + "|" + td.getFolder() + "|" + td.getFile() ;
+	}
+
+	/**
+	 * Returns the hash of all the inputs of the given job
+	 * @param job
+	 * @return
+	 */
+	public String getInputsHash(GenerationJob job) {
+		String templateHash = templatesHashes.get(job.getTargetDefinition().getTemplate());
+		String entityHash = job.getEntity() != null ? entitiesHashes.get(job.getEntity().getClassName()) : selectionHash ;
+		return HashUtil.combine(cfgHash, templateHash, entityHash);
+	}
+
+	private String buildState(GenerationJob job, File outputFile) {
+		return getInputsHash(job) + SEPARATOR + outputFile.length() + SEPARATOR + outputFile.lastModified()
+				+ SEPARATOR + outputFile.getAbsolutePath() ;
+	}
+
+	/**
+	 * Returns true if the given job has the same inputs as in the previous generation <br>
+	 * and if its output file still exists without modification
+	 * @param job
+	 * @param outputFileName the output file for this job
+	 * @return
+	 */
+	public boolean isUpToDate(GenerationJob job, String outputFileName) {
+		String previousState = targets.get(getPairKey(job));
+		if ( previousState == null ) {
+			return false ;
+		}
+		File outputFile = new File(outputFileName);
+		return outputFile.isFile() && previousState.equals(buildState(job, outputFile)) ;
+	}
+
+	/**
+	 * Records the state of a job after a successful generation
+	 * @param job
+	 * @param outputFileName the output file for this job
+	 */
+	public void recordGenerated(GenerationJob job, String outputFileName) {
+		targets.put(getPairKey(job), buildState(job, new File(outputFileName)));
+	}
+
+	/**
+	 * Forgets the state of a job ( generation error )
+	 * @param job
+	 */
+	public void recordError(GenerationJob job) {
+		targets.remove(getPairKey(job));
+	}
+}
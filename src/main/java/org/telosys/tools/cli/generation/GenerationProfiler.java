@@ -0,0 +1,275 @@
+/**
+ *  Copyright (C) 2015-2017  Telosys project org. ( http://www.telosys.org/ )
+ *
+ *  Licensed under the GNU LESSER GENERAL PUBLIC LICENSE, Version 3.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *          http://www.gnu.org/licenses/lgpl.html
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.telosys.tools.cli.generation;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Generation profiler : time and heap allocated for each phase, time for each template and each entity <br>
+ * The measures are taken by the workers threads ( thread-safe ) <br>
+ * The heap allocated is given by the thread allocated bytes ( if supported by the JVM )
+ *
+ */
+public class GenerationProfiler {
+
+	/**
+	 * Generation phases
+	 */
+	public enum Phase {
+		MODEL_LOADING("model loading"),
+		TARGETS_LOADING("targets loading"),
+		RESOURCES("resources copy"),
+		CONTEXT("context building"),
+		PARSING("template parsing"),
+		RENDERING("rendering"),
+		WRITING("disk writes");
+
+		private final String label ;
+
+		private Phase(String label) {
+			this.label = label ;
+		}
+
+		public String getLabel() {
+			return label;
+		}
+	}
+
+	/**
+	 * Measure start point ( time and bytes allocated by the current thread )
+	 */
+	public static class Measure {
+		private final long startTime ;
+		private final long startBytes ;
+
+		private Measure(long startTime, long startBytes) {
+			this.startTime = startTime ;
+			this.startBytes = startBytes ;
+		}
+	}
+
+	/**
+	 * Time statistics for a template or an entity
+	 */
+	public static class Stats {
+		private final String name ;
+		private int  count = 0 ;
+		private long total = 0 ;
+		private long max   = 0 ;
+
+		private Stats(String name) {
+			this.name = name ;
+		}
+
+		private void add(long nanos) {
+			count++ ;
+			total += nanos ;
+			if ( nanos > max ) {
+				max = nanos ;
+			}
+		}
+
+		public String getName() {
+			return name;
+		}
+
+		public int getCount() {
+			return count;
+		}
+
+		public long getTotal() {
+			return total;
+		}
+
+		public long getMax() {
+			return max;
+		}
+
+		public long getMean() {
+			return count > 0 ? total / count : 0 ;
+		}
+	}
+
+	private final com.sun.management.ThreadMXBean threadBean ;
+
+	private final Map<Phase, long[]> phases = new EnumMap<>(Phase.class); // [ nanos, bytes ]
+
+	private final Map<String, Stats> templates = new HashMap<>();
+
+	private final Map<String, Stats> entities = new HashMap<>();
+
+	private final long startTime ;
+
+	/**
+	 * Constructor
+	 */
+	public GenerationProfiler() {
+		super();
+		java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+		if ( bean instanceof com.sun.management.ThreadMXBean
+				&& ((com.sun.management.ThreadMXBean) bean).isThreadAllocatedMemorySupported() ) {
+			com.sun.management.ThreadMXBean sunBean = (com.sun.management.ThreadMXBean) bean ;
+			if ( ! sunBean.isThreadAllocatedMemoryEnabled() ) {
+				sunBean.setThreadAllocatedMemoryEnabled(true);
+			}
+			this.threadBean = sunBean ;
+		}
+		else {
+			this.threadBean = null ;
+		}
+		for ( Phase phase : Phase.values() ) {
+			phases.put(phase, new long[2]);
+		}
+		startTime = System.nanoTime();
+	}
+
+	private long getAllocatedBytes() {
+		return threadBean != null ? threadBean.getThreadAllocatedBytes(Thread.currentThread().getId()) : 0 ;
+	}
+
+	/**
+	 * Starts a measure in the current thread
+	 * @return
+	 */
+	public Measure start() {
+		return new Measure(System.nanoTime(), getAllocatedBytes());
+	}
+
+	/**
+	 * Ends the given measure for the given phase
+	 * @param phase
+	 * @param measure
+	 * @return the elapsed time in nanoseconds
+	 */
+	public long stop(Phase phase, Measure measure) {
+		long nanos = System.nanoTime() - measure.startTime ;
+		long bytes = getAllocatedBytes() - measure.startBytes ;
+		synchronized (phases) {
+			long[] values = phases.get(phase);
+			values[0] += nanos ;
+			values[1] += bytes ;
+		}
+		return nanos ;
+	}
+
+	/**
+	 * Records the total time of a job ( for its template and its entity )
+	 * @param job
+	 * @param nanos
+	 */
+	public void recordJob(GenerationJob job, long nanos) {
+		String template = job.getTargetDefinition().getTemplate();
+		String entity = job.getEntity() != null ? job.getEntity().getClassName() : "(no entity)" ;
+		synchronized (templates) {
+			add(templates, template, nanos);
+			add(entities, entity, nanos);
+		}
+	}
+
+	private void add(Map<String, Stats> map, String name, long nanos) {
+		Stats stats = map.get(name);
+		if ( stats == null ) {
+			stats = new Stats(name);
+			map.put(name, stats);
+		}
+		stats.add(nanos);
+	}
+
+	/**
+	 * Returns the statistics of the templates sorted by total time ( slowest first )
+	 * @return
+	 */
+	public List<Stats> getTemplatesStats() {
+		synchronized (templates) {
+			return sort(templates);
+		}
+	}
+
+	/**
+	 * Returns the statistics of the entities sorted by total time ( slowest first )
+	 * @return
+	 */
+	public List<Stats> getEntitiesStats() {
+		synchronized (templates) {
+			return sort(entities);
+		}
+	}
+
+	private List<Stats> sort(Map<String, Stats> map) {
+		List<Stats> list = new ArrayList<>(map.values());
+		Collections.sort(list, new Comparator<Stats>() {
+			@Override
+			public int compare(Stats s1, Stats s2) {
+				return Long.compare(s2.getTotal(), s1.getTotal());
+			}
+		});
+		return list ;
+	}
+
+	/**
+	 * Builds the profiling report
+	 * @param topN number of templates and entities to be reported
+	 * @return the lines of the report
+	 */
+	public List<String> buildReport(int topN) {
+		List<String> lines = new LinkedList<>();
+		lines.add("Generation profile ( total " + millis(System.nanoTime() - startTime) + " ms ) :");
+		lines.add(String.format(" %-20s %12s %16s", "Phase", "Time (ms)", "Heap allocated"));
+		synchronized (phases) {
+			for ( Phase phase : Phase.values() ) {
+				long[] values = phases.get(phase);
+				lines.add(String.format(" %-20s %12s %16s", phase.getLabel(), millis(values[0]),
+						threadBean != null ? bytes(values[1]) : "n/a"));
+			}
+		}
+		lines.add(" ( the times of the workers phases are cumulated over all the workers )");
+		addStats(lines, "templates", "Template", getTemplatesStats(), topN);
+		addStats(lines, "entities", "Entity", getEntitiesStats(), topN);
+		return lines ;
+	}
+
+	private void addStats(List<String> lines, String title, String header, List<Stats> list, int topN) {
+		lines.add("Top " + topN + " slowest " + title + " :");
+		lines.add(String.format(" %-30s %6s %12s %10s %10s", header, "Count", "Total (ms)", "Mean (ms)", "Max (ms)"));
+		int n = 0 ;
+		for ( Stats stats : list ) {
+			if ( n++ >= topN ) {
+				break ;
+			}
+			lines.add(String.format(" %-30s %6d %12s %10s %10s", stats.getName(), stats.getCount(),
+					millis(stats.getTotal()), millis(stats.getMean()), millis(stats.getMax())));
+		}
+	}
+
+	private static String millis(long nanos) {
+		return String.format("%.1f", nanos / 1000000.0);
+	}
+
+	private static String bytes(long bytes) {
+		if ( bytes >= 1024 * 1024 ) {
+			return String.format("%.1f MB", bytes / ( 1024.0 * 1024.0 ));
+		}
+		return String.format("%.1f KB", bytes / 1024.0);
+	}
+}
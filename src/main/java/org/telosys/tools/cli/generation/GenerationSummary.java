@@ -0,0 +1,197 @@
+/**
+ *  Copyright (C) 2015-2017  Telosys project org. ( http://www.telosys.org/ )
+ *
+ *  Licensed under the GNU LESSER GENERAL PUBLIC LICENSE, Version 3.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *          http://www.gnu.org/licenses/lgpl.html
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.telosys.tools.cli.generation;
+
+import org.telosys.tools.generator.context.Target;
+import org.telosys.tools.generator.task.ErrorReport;
+import org.telosys.tools.generator.task.GenerationTaskResult;
+
+/**
+ * Generation result that can be built outside of a standard generation task <br>
+ * and merged with other results ( one result per worker )
+ *
+ */
+public class GenerationSummary extends GenerationTaskResult {
+
+	private int numberOfFilesSkipped = 0 ;
+
+	private int numberOfFilesNew = 0 ;
+
+	private int numberOfFilesWritten = 0 ;
+
+	private int numberOfFilesUnchanged = 0 ;
+
+	private int numberOfResourcesSkipped = 0 ;
+
+	private boolean stagedOutputDiscarded = false ;
+
+	private int maxErrors = 0 ; // 0 : all the errors are kept
+
+	private int numberOfErrorsDropped = 0 ;
+
+	private int numberOfChunks = 0 ;
+
+	/**
+	 * Constructor
+	 */
+	public GenerationSummary() {
+		super();
+	}
+
+	@Override
+	public void setNumberOfResourcesCopied(int n) {
+		super.setNumberOfResourcesCopied(n);
+	}
+
+	@Override
+	public void incrementNumberOfFilesGenerated() {
+		super.incrementNumberOfFilesGenerated();
+	}
+
+	public int getNumberOfResourcesSkipped() {
+		return numberOfResourcesSkipped;
+	}
+
+	/**
+	 * Sets the number of resources not copied because they are already in the project with the same content
+	 * @param n
+	 */
+	public void setNumberOfResourcesSkipped(int n) {
+		numberOfResourcesSkipped = n ;
+	}
+
+	public boolean isStagedOutputDiscarded() {
+		return stagedOutputDiscarded;
+	}
+
+	/**
+	 * Sets the flag indicating the staged files have not been moved in the destination folder ( staged generation )
+	 * @param stagedOutputDiscarded
+	 */
+	public void setStagedOutputDiscarded(boolean stagedOutputDiscarded) {
+		this.stagedOutputDiscarded = stagedOutputDiscarded;
+	}
+
+	/**
+	 * Sets the maximum number of error reports kept by this result <br>
+	 * ( the next errors are only counted )
+	 * @param maxErrors the maximum number of errors (or 0 to keep all the errors)
+	 */
+	public void setMaxErrors(int maxErrors) {
+		this.maxErrors = maxErrors;
+	}
+
+	/**
+	 * Returns the number of error reports not kept ( see 'setMaxErrors' )
+	 * @return
+	 */
+	public int getNumberOfErrorsDropped() {
+		return numberOfErrorsDropped;
+	}
+
+	public int getNumberOfChunks() {
+		return numberOfChunks;
+	}
+
+	/**
+	 * Increments the number of chunks of entities generated ( memory-bounded generation )
+	 */
+	public void incrementNumberOfChunks() {
+		numberOfChunks++ ;
+	}
+
+	public int getNumberOfFilesSkipped() {
+		return numberOfFilesSkipped;
+	}
+
+	/**
+	 * Increments the number of files not generated because they are up to date ( incremental generation )
+	 */
+	public void incrementNumberOfFilesSkipped() {
+		numberOfFilesSkipped++ ;
+	}
+
+	public int getNumberOfFilesNew() {
+		return numberOfFilesNew;
+	}
+
+	public int getNumberOfFilesWritten() {
+		return numberOfFilesWritten;
+	}
+
+	public int getNumberOfFilesUnchanged() {
+		return numberOfFilesUnchanged;
+	}
+
+	/**
+	 * Counts a generated file according to its status after the output stage
+	 * @param status
+	 */
+	public void countOutput(OutputWriter.WriteStatus status) {
+		switch ( status ) {
+		case NEW :
+			numberOfFilesNew++ ;
+			break;
+		case WRITTEN :
+			numberOfFilesWritten++ ;
+			break;
+		default:
+			numberOfFilesUnchanged++ ;
+		}
+	}
+
+	@Override
+	public void addGenerationError(Target target) {
+		super.addGenerationError(target);
+	}
+
+	@Override
+	public void addError(ErrorReport errorReport) {
+		if ( maxErrors > 0 && getErrors().size() >= maxErrors ) {
+			numberOfErrorsDropped++ ;
+		}
+		else {
+			super.addError(errorReport);
+		}
+	}
+
+	/**
+	 * Adds the counters and the errors of the given result to this result
+	 * @param result
+	 */
+	public void merge(GenerationTaskResult result) {
+		setNumberOfResourcesCopied(getNumberOfResourcesCopied() + result.getNumberOfResourcesCopied());
+		for ( int i = 0 ; i < result.getNumberOfFilesGenerated() ; i++ ) {
+			incrementNumberOfFilesGenerated();
+		}
+		if ( result instanceof GenerationSummary ) {
+			GenerationSummary summary = (GenerationSummary) result ;
+			numberOfFilesSkipped   += summary.getNumberOfFilesSkipped() ;
+			numberOfFilesNew       += summary.getNumberOfFilesNew() ;
+			numberOfFilesWritten   += summary.getNumberOfFilesWritten() ;
+			numberOfFilesUnchanged += summary.getNumberOfFilesUnchanged() ;
+			numberOfResourcesSkipped += summary.getNumberOfResourcesSkipped() ;
+			numberOfErrorsDropped  += summary.getNumberOfErrorsDropped() ;
+			numberOfChunks         += summary.getNumberOfChunks() ;
+		}
+		for ( int i = 0 ; i < result.getNumberOfGenerationErrors() ; i++ ) {
+			addGenerationError(null); // the target is not kept by the result
+		}
+		for ( ErrorReport errorReport : result.getErrors() ) {
+			addError(errorReport);
+		}
+	}
+}
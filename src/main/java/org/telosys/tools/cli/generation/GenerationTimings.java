@@ -0,0 +1,215 @@
+/**
+ *  Copyright (C) 2015-2017  Telosys project org. ( http://www.telosys.org/ )
+ *
+ *  Licensed under the GNU LESSER GENERAL PUBLIC LICENSE, Version 3.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *          http://www.gnu.org/licenses/lgpl.html
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.telosys.tools.cli.generation;
+
+import java.io.File;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.telosys.tools.cli.Const;
+import org.telosys.tools.commons.PropertiesManager;
+import org.telosys.tools.commons.bundles.TargetDefinition;
+import org.telosys.tools.commons.cfg.TelosysToolsCfg;
+
+/**
+ * Rendering times of the previous generations for a model and a bundle ( one time for each target and entity ) <br>
+ * ( a target is identified by its template, folder and file : the same template can be used by several targets ) <br>
+ * Used to estimate the cost of each job : the longest jobs are generated first ( LPT scheduling ) <br>
+ * ( not used by the shards : the times are local to each machine, the shard plan must be the same everywhere ) <br>
+ * A job without history is estimated with the mean time per entity "unit" ( 1 + attributes + links ) <br>
+ * of its template, or of all the templates if the template has no history <br>
+ * The estimates only use the loaded times, the times recorded by the current generation are merged on 'save'
+ *
+ */
+public class GenerationTimings {
+
+	private static final String STATS_FOLDER = "stats" ;
+
+	private static final String ONCE = "*" ;
+	private static final String SEPARATOR = ";" ;
+	private static final int    KEY_PARTS = 4 ; // template ; folder ; file ; entity
+
+	private final File file ;
+
+	private final Map<String, long[]> timings = new HashMap<>(); // loaded times : key -> { time (ns), units }
+
+	private final Map<String, long[]> recorded = new ConcurrentHashMap<>(); // times of the current generation
+
+	private final Map<String, long[]> templatesRates = new HashMap<>(); // template -> { total time, total units }
+
+	private long totalTime = 0 ;
+
+	private long totalUnits = 0 ;
+
+	/**
+	 * Constructor
+	 * @param file the timings file
+	 */
+	public GenerationTimings(File file) {
+		super();
+		this.file = file;
+	}
+
+	/**
+	 * Returns the timings file for the given model and bundle ( in the 'TelosysTools/stats' folder )
+	 * @param telosysToolsCfg
+	 * @param modelName
+	 * @param bundleName
+	 * @return
+	 */
+	public static File getTimingsFile(TelosysToolsCfg telosysToolsCfg, String modelName, String bundleName) {
+		String folder = telosysToolsCfg.getTelosysToolsFolderAbsolutePath();
+		if ( folder == null ) {
+			folder = telosysToolsCfg.getProjectAbsolutePath() + File.separator + Const.TELOSYS_TOOLS_FOLDER ;
+		}
+		return new File(new File(folder, STATS_FOLDER), modelName + "_" + bundleName + ".timings");
+	}
+
+	public File getFile() {
+		return file;
+	}
+
+	/**
+	 * Returns true if no time has been loaded
+	 * @return
+	 */
+	public boolean isEmpty() {
+		return timings.isEmpty();
+	}
+
+	/**
+	 * Loads the times recorded by the previous generations (if any)
+	 */
+	public void load() {
+		timings.clear();
+		recorded.clear();
+		if ( file.exists() ) {
+			Properties properties = new PropertiesManager(file).load();
+			if ( properties != null ) {
+				for ( String key : properties.stringPropertyNames() ) {
+					if ( key.split(SEPARATOR, -1).length != KEY_PARTS ) {
+						continue ; // key of a previous version ( template and entity only ) : ignored
+					}
+					String[] parts = properties.getProperty(key).split(SEPARATOR);
+					long time = parts.length == 2 ? parseLong(parts[0]) : -1 ;
+					long units = parts.length == 2 ? parseLong(parts[1]) : -1 ;
+					if ( time >= 0 && units > 0 ) {
+						timings.put(key, new long[] { time, units });
+					}
+				}
+			}
+		}
+		computeRates();
+	}
+
+	private long parseLong(String s) {
+		try {
+			return Long.parseLong(s.trim());
+		} catch (NumberFormatException e) {
+			return -1 ;
+		}
+	}
+
+	private void computeRates() {
+		templatesRates.clear();
+		totalTime = 0 ;
+		totalUnits = 0 ;
+		for ( Map.Entry<String, long[]> e : timings.entrySet() ) {
+			String template = e.getKey().substring(0, e.getKey().indexOf(SEPARATOR));
+			long[] rate = templatesRates.get(template);
+			if ( rate == null ) {
+				rate = new long[2];
+				templatesRates.put(template, rate);
+			}
+			rate[0] += e.getValue()[0] ;
+			rate[1] += e.getValue()[1] ;
+			totalTime += e.getValue()[0] ;
+			totalUnits += e.getValue()[1] ;
+		}
+	}
+
+	/**
+	 * Saves the loaded times merged with the recorded times <br>
+	 * ( the pairs that were not part of the current generation are kept )
+	 */
+	public void save() {
+		Map<String, long[]> merged = new HashMap<>(timings);
+		merged.putAll(recorded);
+		Properties properties = new Properties();
+		for ( Map.Entry<String, long[]> e : merged.entrySet() ) {
+			properties.setProperty(e.getKey(), e.getValue()[0] + SEPARATOR + e.getValue()[1]);
+		}
+		File folder = file.getParentFile();
+		if ( folder != null && ! folder.exists() ) {
+			folder.mkdirs();
+		}
+		new PropertiesManager(file).save(properties, "Rendering times ( nanoseconds ; entity units )");
+	}
+
+	private String getKey(GenerationJob job) {
+		String entityName = job.getEntity() != null ? job.getEntity().getClassName() : ONCE ;
+		TargetDefinition td = job.getTargetDefinition();
+		return td.getTemplate() + SEPARATOR + td.getFolder() + SEPARATOR + td.getFile() + SEPARATOR + entityName ;
+	}
+
+	/**
+	 * Returns the size of the job entity ( 1 + attributes + links, 1 for a job without entity )
+	 * @param job
+	 * @return
+	 */
+	private long getUnits(GenerationJob job) {
+		if ( job.getEntity() != null ) {
+			return 1L + job.getEntity().getAttributes().size() + job.getEntity().getLinks().size() ;
+		}
+		return 1L ;
+	}
+
+	/**
+	 * Records the rendering time of the given job ( smoothed with the loaded time if any ) <br>
+	 * ( kept apart from the loaded times : the estimates are not modified until the next 'load' )
+	 * @param job
+	 * @param renderTime in nanoseconds
+	 */
+	public void record(GenerationJob job, long renderTime) {
+		String key = getKey(job);
+		long[] previous = timings.get(key);
+		long time = previous != null ? ( previous[0] + renderTime ) / 2 : renderTime ;
+		recorded.put(key, new long[] { time, getUnits(job) });
+	}
+
+	/**
+	 * Returns the estimated rendering time of the given job in nanoseconds <br>
+	 * ( the recorded time, or the mean time per unit of the template or of all the templates x the entity units )
+	 * @param job
+	 * @return the estimate or -1 if no time has been recorded
+	 */
+	public long estimate(GenerationJob job) {
+		long[] timing = timings.get(getKey(job));
+		if ( timing != null ) {
+			return timing[0] ;
+		}
+		long[] rate = templatesRates.get(job.getTargetDefinition().getTemplate());
+		if ( rate != null && rate[1] > 0 ) {
+			return rate[0] * getUnits(job) / rate[1] ;
+		}
+		if ( totalUnits > 0 ) {
+			return totalTime * getUnits(job) / totalUnits ;
+		}
+		return -1 ;
+	}
+}
@@ -0,0 +1,260 @@
+/**
+ *  Copyright (C) 2015-2017  Telosys project org. ( http://www.telosys.org/ )
+ *
+ *  Licensed under the GNU LESSER GENERAL PUBLIC LICENSE, Version 3.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *          http://www.gnu.org/licenses/lgpl.html
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.telosys.tools.cli.generation;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Set;
+
+import org.telosys.tools.commons.TelosysToolsException;
+import org.telosys.tools.commons.bundles.TargetDefinition;
+import org.telosys.tools.commons.bundles.TargetsDefinitions;
+import org.telosys.tools.generator.task.ErrorReport;
+import org.telosys.tools.generic.model.Model;
+
+/**
+ * Watch mode : regenerates the targets impacted by the changes in the model or in the bundle <br>
+ * The changes are processed by a background thread until 'stop' is called <br>
+ * ( the model is kept in memory between the cycles, it is reloaded only if a model file has changed ) <br>
+ * The loading, the generation and the messages are delegated to the caller ( see 'Handler' )
+ *
+ */
+public class GenerationWatcher {
+
+	private static final long QUIET_PERIOD = 300 ; // debounce delay in milliseconds
+
+	/**
+	 * Operations provided by the command using the watch mode <br>
+	 * ( all the methods are called by the watch thread )
+	 */
+	public interface Handler {
+
+		/**
+		 * Reloads the model ( the errors are reported by the handler )
+		 * @return the model (or null if the model is invalid)
+		 */
+		Model reloadModel();
+
+		/**
+		 * Returns the current targets definitions of the bundle
+		 * @return
+		 * @throws TelosysToolsException
+		 */
+		TargetsDefinitions loadTargetsDefinitions() throws TelosysToolsException;
+
+		/**
+		 * Returns the templates targets selected by the user
+		 * @param targetsDefinitions
+		 * @return
+		 */
+		List<TargetDefinition> selectTargets(TargetsDefinitions targetsDefinitions);
+
+		/**
+		 * Generates the given targets for the entities selected by the user
+		 * @param model
+		 * @param targetsDefinitions
+		 * @param targets the templates targets to be generated
+		 * @param copyResources
+		 * @param entitiesFilter the entities to be generated (or null for all the selected entities)
+		 * @return
+		 * @throws TelosysToolsException
+		 */
+		GenerationSummary generate(Model model, TargetsDefinitions targetsDefinitions, List<TargetDefinition> targets,
+				boolean copyResources, Collection<String> entitiesFilter) throws TelosysToolsException;
+
+		void print(String message);
+
+		void printError(Exception e);
+	}
+
+	private final File modelFile ;
+
+	private final File modelFolder ;
+
+	private final File bundleFolder ;
+
+	private final boolean copyResources ;
+
+	private final Handler handler ;
+
+	private FileWatcher fileWatcher = null ;
+
+	private Thread thread = null ;
+
+	/**
+	 * Constructor
+	 * @param modelFile the current model file
+	 * @param modelFolder the folder of the DSL model entities (or null if not a DSL model)
+	 * @param bundleFolder the current bundle folder
+	 * @param copyResources true if the resources must be copied when they have changed
+	 * @param handler
+	 */
+	public GenerationWatcher(File modelFile, File modelFolder, File bundleFolder, boolean copyResources, Handler handler) {
+		super();
+		this.modelFile = modelFile;
+		this.modelFolder = modelFolder;
+		this.bundleFolder = bundleFolder;
+		this.copyResources = copyResources;
+		this.handler = handler;
+	}
+
+	/**
+	 * Starts watching the model and bundle folders
+	 * @param model the model used by the last generation
+	 * @throws IOException if the folders cannot be watched
+	 */
+	public void start(final Model model) throws IOException {
+		FileWatcher watcher = new FileWatcher();
+		try {
+			watcher.watchFolder(modelFile.getParentFile());
+			if ( modelFolder != null ) {
+				watcher.watchTree(modelFolder);
+			}
+			watcher.watchTree(bundleFolder);
+		} catch (IOException e) {
+			watcher.close();
+			throw e ;
+		}
+		fileWatcher = watcher ;
+		thread = new Thread(new Runnable() {
+			@Override
+			public void run() {
+				watchLoop(model);
+			}
+		}, "telosys-watch");
+		thread.setDaemon(true);
+		thread.start();
+	}
+
+	/**
+	 * Stops watching and waits for the end of the current cycle (if any)
+	 * @throws IOException
+	 * @throws InterruptedException
+	 */
+	public void stop() throws IOException, InterruptedException {
+		if ( fileWatcher != null ) {
+			fileWatcher.close();
+			thread.join();
+			fileWatcher = null ;
+			thread = null ;
+		}
+	}
+
+	private void watchLoop(Model initialModel) {
+		Model model = initialModel ;
+		TargetsDefinitions targetsDefinitions = null ;
+		while ( true ) {
+			Set<Path> files ;
+			try {
+				files = fileWatcher.waitForChanges(QUIET_PERIOD);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				return ;
+			}
+			if ( files == null ) {
+				return ; // watcher closed
+			}
+			try {
+				if ( targetsDefinitions == null ) {
+					targetsDefinitions = handler.loadTargetsDefinitions();
+				}
+				Set<String> templates = new HashSet<>();
+				for ( TargetDefinition td : targetsDefinitions.getTemplatesTargets() ) {
+					templates.add(td.getTemplate());
+				}
+				GenerationChanges changes = new GenerationChanges(files, modelFile, modelFolder, bundleFolder, templates);
+				if ( changes.isEmpty() ) {
+					continue ;
+				}
+				if ( changes.isTargetsChanged() ) {
+					targetsDefinitions = handler.loadTargetsDefinitions();
+				}
+				if ( changes.isModelChanged() ) {
+					Model reloadedModel = handler.reloadModel();
+					if ( reloadedModel == null ) {
+						handler.print("Model not reloaded => waiting for the next changes...");
+						continue ;
+					}
+					model = reloadedModel ;
+				}
+				GenerationSummary result = generate(model, changes, targetsDefinitions);
+				printResult(changes, result);
+			} catch (TelosysToolsException | RuntimeException e) {
+				handler.printError(e);
+			}
+		}
+	}
+
+	/**
+	 * Regenerates the targets impacted by the given changes
+	 * @return
+	 * @throws TelosysToolsException
+	 */
+	private GenerationSummary generate(Model model, GenerationChanges changes, TargetsDefinitions targetsDefinitions)
+			throws TelosysToolsException {
+		List<TargetDefinition> targetDefinitions = handler.selectTargets(targetsDefinitions);
+		boolean resources = copyResources && ( changes.isResourcesChanged() || changes.isFullGeneration() );
+		GenerationSummary result = new GenerationSummary();
+		if ( changes.isFullGeneration() ) {
+			result.merge(handler.generate(model, targetsDefinitions, targetDefinitions, resources, null));
+			return result ;
+		}
+		// Changed templates : all the entities
+		List<TargetDefinition> changedTargets = new LinkedList<>();
+		List<TargetDefinition> otherTargets = new LinkedList<>();
+		for ( TargetDefinition td : targetDefinitions ) {
+			if ( changes.getTemplates().contains(td.getTemplate()) ) {
+				changedTargets.add(td);
+			}
+			else {
+				otherTargets.add(td);
+			}
+		}
+		if ( ! changedTargets.isEmpty() || resources ) {
+			result.merge(handler.generate(model, targetsDefinitions, changedTargets, resources, null));
+		}
+		// Changed entities ( and the entities linked to them ) : all the other templates
+		if ( ! changes.getEntities().isEmpty() && ! otherTargets.isEmpty() ) {
+			result.merge(handler.generate(model, targetsDefinitions, otherTargets, false,
+					EntityGraph.getGraph(model).getAffectedEntities(changes.getEntities())));
+		}
+		return result ;
+	}
+
+	private void printResult(GenerationChanges changes, GenerationSummary result) {
+		StringBuilder sb = new StringBuilder();
+		if ( changes.isFullGeneration() ) {
+			sb.append("Full generation");
+		}
+		else {
+			sb.append(changes.getEntities().size() + " entity(ies) " + changes.getEntities() + ", "
+					+ changes.getTemplates().size() + " template(s) " + changes.getTemplates());
+		}
+		sb.append(" => " + result.getNumberOfFilesGenerated() + " file(s) generated ( "
+				+ result.getNumberOfFilesWritten() + " written / " + result.getNumberOfFilesUnchanged() + " unchanged / "
+				+ result.getNumberOfFilesNew() + " new ), " + result.getNumberOfResourcesCopied() + " resource(s) copied, "
+				+ result.getErrors().size() + " error(s)");
+		handler.print(sb.toString());
+		for ( ErrorReport err : result.getErrors() ) {
+			handler.print(" - " + err.getErrorType() + " : " + err.getMessage());
+		}
+	}
+}
@@ -0,0 +1,218 @@
+/**
+ *  Copyright (C) 2015-2017  Telosys project org. ( http://www.telosys.org/ )
+ *
+ *  Licensed under the GNU LESSER GENERAL PUBLIC LICENSE, Version 3.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *          http://www.gnu.org/licenses/lgpl.html
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.telosys.tools.cli.generation;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.reflect.Method;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+import org.telosys.tools.generic.model.Attribute;
+import org.telosys.tools.generic.model.Entity;
+import org.telosys.tools.generic.model.ForeignKey;
+import org.telosys.tools.generic.model.ForeignKeyColumn;
+import org.telosys.tools.generic.model.JoinColumn;
+import org.telosys.tools.generic.model.JoinTable;
+import org.telosys.tools.generic.model.Link;
+import org.telosys.tools.generic.model.Model;
+
+/**
+ * Content hash utilities ( SHA-1 in hexadecimal ) for files, strings and model entities
+ *
+ */
+public class HashUtil {
+
+	private static final String ALGORITHM = "SHA-1" ;
+
+	private static final String NULL = "(null)" ;
+
+	/**
+	 * The generic model interfaces explored when hashing an entity
+	 */
+	private static final Class<?>[] MODEL_INTERFACES = { Entity.class, Attribute.class, Link.class,
+			ForeignKey.class, ForeignKeyColumn.class, JoinTable.class, JoinColumn.class } ;
+
+	/**
+	 * Private constructor
+	 */
+	private HashUtil() {
+	}
+
+	private static MessageDigest newDigest() {
+		try {
+			return MessageDigest.getInstance(ALGORITHM);
+		} catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException("Cannot get digest '" + ALGORITHM + "'", e);
+		}
+	}
+
+	private static String toHex(byte[] bytes) {
+		StringBuilder sb = new StringBuilder(bytes.length * 2);
+		for ( byte b : bytes ) {
+			sb.append(Character.forDigit((b >> 4) & 0xF, 16));
+			sb.append(Character.forDigit(b & 0xF, 16));
+		}
+		return sb.toString();
+	}
+
+	/**
+	 * Returns the hash of the given string
+	 * @param s
+	 * @return
+	 */
+	public static String hashString(String s) {
+		MessageDigest md = newDigest();
+		md.update(( s != null ? s : NULL ).getBytes(StandardCharsets.UTF_8));
+		return toHex(md.digest());
+	}
+
+	/**
+	 * Returns the hash of the given values ( combined in the given order )
+	 * @param values
+	 * @return
+	 */
+	public static String combine(String... values) {
+		StringBuilder sb = new StringBuilder();
+		for ( String v : values ) {
+			sb.append(v).append('\n');
+		}
+		return hashString(sb.toString());
+	}
+
+	/**
+	 * Returns the hash of the given file content (or a constant hash if the file doesn't exist)
+	 * @param file
+	 * @return
+	 * @throws IOException
+	 */
+	public static String hashFile(File file) throws IOException {
+		if ( file == null || ! file.isFile() ) {
+			return hashString(null);
+		}
+		MessageDigest md = newDigest();
+		try ( InputStream in = new FileInputStream(file) ) {
+			byte[] buffer = new byte[64 * 1024];
+			int n ;
+			while ( ( n = in.read(buffer) ) > 0 ) {
+				md.update(buffer, 0, n);
+			}
+		}
+		return toHex(md.digest());
+	}
+
+	/**
+	 * Returns the hash of the entity definition ( all the values exposed by the generic model ) <br>
+	 * ( attributes, links, foreign keys, join columns, etc )
+	 * @param entity
+	 * @return
+	 */
+	public static String hashEntity(Entity entity) {
+		StringBuilder sb = new StringBuilder();
+		appendModelObject(sb, entity, Entity.class);
+		return hashString(sb.toString());
+	}
+
+	/**
+	 * Returns the hash of the model-level values ( name, type, version, description, database id, etc ) <br>
+	 * ( the entities are not included, see 'hashEntity' )
+	 * @param model
+	 * @return
+	 */
+	public static String hashModel(Model model) {
+		StringBuilder sb = new StringBuilder();
+		Method[] methods = getSortedMethods(Model.class);
+		for ( Method method : methods ) {
+			if ( method.getParameterTypes().length == 0 && ! List.class.isAssignableFrom(method.getReturnType()) ) {
+				sb.append(method.getName()).append('=');
+				appendValue(sb, invoke(method, model));
+				sb.append(';');
+			}
+		}
+		return hashString(sb.toString());
+	}
+
+	private static void appendModelObject(StringBuilder sb, Object object, Class<?> modelInterface) {
+		sb.append('{');
+		Method[] methods = getSortedMethods(modelInterface);
+		for ( Method method : methods ) {
+			if ( method.getParameterTypes().length == 0 ) {
+				sb.append(method.getName()).append('=');
+				appendValue(sb, invoke(method, object));
+				sb.append(';');
+			}
+		}
+		sb.append('}');
+	}
+
+	private static Method[] getSortedMethods(Class<?> modelInterface) {
+		Method[] methods = modelInterface.getMethods();
+		Arrays.sort(methods, new Comparator<Method>() {
+			@Override
+			public int compare(Method m1, Method m2) {
+				return m1.getName().compareTo(m2.getName());
+			}
+		});
+		return methods ;
+	}
+
+	private static Object invoke(Method method, Object object) {
+		try {
+			return method.invoke(object);
+		} catch (Exception e) {
+			// a getter that cannot be called is not part of the definition
+			return e.getClass().getSimpleName();
+		}
+	}
+
+	private static void appendValue(StringBuilder sb, Object value) {
+		if ( value == null ) {
+			sb.append(NULL);
+		}
+		else if ( value instanceof List ) {
+			sb.append('[');
+			for ( Object element : (List<?>) value ) {
+				appendValue(sb, element);
+				sb.append(',');
+			}
+			sb.append(']');
+		}
+		else {
+			Class<?> modelInterface = getModelInterface(value);
+			if ( modelInterface != null ) {
+				appendModelObject(sb, value, modelInterface);
+			}
+			else {
+				sb.append(value.toString());
+			}
+		}
+	}
+
+	private static Class<?> getModelInterface(Object value) {
+		for ( Class<?> c : MODEL_INTERFACES ) {
+			if ( c.isInstance(value) ) {
+				return c ;
+			}
+		}
+		return null ;
+	}
+}
@@ -0,0 +1,46 @@
+/**
+ *  Copyright (C) 2015-2017  Telosys project org. ( http://www.telosys.org/ )
+ *
+ *  Licensed under the GNU LESSER GENERAL PUBLIC LICENSE, Version 3.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *          http://www.gnu.org/licenses/lgpl.html
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.telosys.tools.cli.generation;
+
+/**
+ * A file rendered in memory and not yet written ( output file name and content )
+ *
+ */
+public class OutputFile {
+
+	private final String fileName ;
+
+	private final byte[] content ;
+
+	/**
+	 * Constructor
+	 * @param fileName the output file ( absolute file name in the destination folder )
+	 * @param content
+	 */
+	public OutputFile(String fileName, byte[] content) {
+		super();
+		this.fileName = fileName;
+		this.content = content;
+	}
+
+	public String getFileName() {
+		return fileName;
+	}
+
+	public byte[] getContent() {
+		return content;
+	}
+}
@@ -0,0 +1,231 @@
+/**
+ *  Copyright (C) 2015-2017  Telosys project org. ( http://www.telosys.org/ )
+ *
+ *  Licensed under the GNU LESSER GENERAL PUBLIC LICENSE, Version 3.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *          http://www.gnu.org/licenses/lgpl.html
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.telosys.tools.cli.generation;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.PosixFileAttributeView;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.telosys.tools.commons.DirUtil;
+import org.telosys.tools.generator.GeneratorException;
+
+/**
+ * Output stage of the generation : writes a generated file only if its content has changed <br>
+ * ( an unchanged file keeps its last modification time ) <br>
+ * The folders known to exist are kept in order to avoid a check for each file <br>
+ * With a staging area the files are written in the staging folder ( the destination is only read ) <br>
+ * When several generations run at the same time in the same destination ( eg "once" targets with '-models' ) <br>
+ * each file is written in a temporary file renamed at the end ( atomic replacement, see 'setAtomicReplace' ) <br>
+ * so that the contents cannot be mixed : the last rename wins <br>
+ * ( the temporary file gets the permissions of the replaced file and is removed if the JVM stops before the rename )
+ *
+ */
+public class OutputWriter {
+
+	private static final int BUFFER_SIZE = 256 * 1024 ;
+
+	private static final String TMP_SUFFIX = ".tmp" ;
+
+	private static final AtomicLong TMP_SEQUENCE = new AtomicLong(); // unique temporary names in the JVM
+
+	private final Set<File> existingFolders = ConcurrentHashMap.newKeySet();
+
+	private final StagingArea stagingArea ;
+
+	private boolean atomicReplace = false ;
+
+	/**
+	 * Temporary files not yet renamed ( removed by a shutdown hook if the JVM stops )
+	 */
+	private static class PendingTmpFiles {
+
+		private static final Set<Path> FILES = ConcurrentHashMap.newKeySet();
+
+		static {
+			Runtime.getRuntime().addShutdownHook(new Thread(new Runnable() {
+				@Override
+				public void run() {
+					for ( Path tmp : FILES ) {
+						deleteTemporaryFile(tmp);
+					}
+				}
+			}, "output-tmp-cleanup"));
+		}
+
+		private PendingTmpFiles() {
+		}
+	}
+
+	/**
+	 * Status of a file after the output stage
+	 */
+	public enum WriteStatus {
+		NEW,       // the file didn't exist
+		WRITTEN,   // the file existed with a different content
+		UNCHANGED  // the file existed with the same content ( not written )
+	}
+
+	/**
+	 * Constructor ( files written in the destination folder )
+	 */
+	public OutputWriter() {
+		this(null);
+	}
+
+	/**
+	 * Constructor
+	 * @param stagingArea the staging area where to write the files (or null if none)
+	 */
+	public OutputWriter(StagingArea stagingArea) {
+		super();
+		this.stagingArea = stagingArea;
+	}
+
+	/**
+	 * Writes each file in a temporary file renamed at the end ( for concurrent generations in the same destination ) <br>
+	 * ( not used with a staging area : the staging folder belongs to a single generation )
+	 * @param atomicReplace
+	 */
+	public void setAtomicReplace(boolean atomicReplace) {
+		this.atomicReplace = atomicReplace;
+	}
+
+	/**
+	 * Writes the given content in the given file if the file doesn't exist or has a different content
+	 * @param fileName the output file
+	 * @param content the content to be written
+	 * @return the status of the file
+	 * @throws GeneratorException
+	 */
+	public WriteStatus write(String fileName, byte[] content) throws GeneratorException {
+		File file = new File(fileName);
+		WriteStatus status ;
+		if ( file.exists() ) {
+			if ( hasSameContent(file, content) ) {
+				return WriteStatus.UNCHANGED ;
+			}
+			if ( ! file.canWrite() ) {
+				throw new GeneratorException("Cannot write on existing target file '" + file + "' !");
+			}
+			status = WriteStatus.WRITTEN ;
+		}
+		else {
+			status = WriteStatus.NEW ;
+		}
+		File outputFile = stagingArea != null ? stagingArea.getStagingFile(file) : file ;
+		createFolder(outputFile.getParentFile());
+		if ( atomicReplace && stagingArea == null ) {
+			replace(outputFile, content, status == WriteStatus.WRITTEN);
+		}
+		else {
+			try ( OutputStream out = new FileOutputStream(outputFile) ) {
+				out.write(content);
+			} catch (IOException e) {
+				throw new GeneratorException("Cannot save file " + fileName, e);
+			}
+		}
+		return status ;
+	}
+
+	/**
+	 * Writes the content in a temporary file and renames it to the given file
+	 * @param file
+	 * @param content
+	 * @param existing true if the file exists ( its permissions are kept )
+	 * @throws GeneratorException
+	 */
+	private void replace(File file, byte[] content, boolean existing) throws GeneratorException {
+		Path target = file.toPath();
+		Path tmp = target.resolveSibling("." + file.getName() + "." + TMP_SEQUENCE.incrementAndGet() + TMP_SUFFIX);
+		PendingTmpFiles.FILES.add(tmp);
+		try {
+			try ( OutputStream out = Files.newOutputStream(tmp, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE) ) {
+				out.write(content);
+			}
+			if ( existing && Files.getFileAttributeView(target, PosixFileAttributeView.class) != null ) {
+				// eg a generated script keeps its executable bit
+				Files.setPosixFilePermissions(tmp, Files.getPosixFilePermissions(target));
+			}
+			Files.move(tmp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		} catch (IOException e) {
+			deleteTemporaryFile(tmp);
+			throw new GeneratorException("Cannot save file " + file, e);
+		} finally {
+			PendingTmpFiles.FILES.remove(tmp);
+		}
+	}
+
+	private static void deleteTemporaryFile(Path tmp) {
+		try {
+			Files.deleteIfExists(tmp);
+		} catch (IOException e) {
+			// the save error is reported
+		}
+	}
+
+	private void createFolder(File folder) {
+		if ( folder != null && ! existingFolders.contains(folder) ) {
+			if ( ! folder.exists() ) {
+				DirUtil.createDirectory(folder);
+			}
+			existingFolders.add(folder);
+		}
+	}
+
+	/**
+	 * Returns true if the file has exactly the given content <br>
+	 * ( size first, then a streaming comparison stopped at the first difference )
+	 * @param file
+	 * @param content
+	 * @return
+	 */
+	protected boolean hasSameContent(File file, byte[] content) {
+		if ( ! file.isFile() || file.length() != content.length ) {
+			return false ;
+		}
+		try ( InputStream in = new FileInputStream(file) ) {
+			byte[] buffer = new byte[BUFFER_SIZE];
+			int offset = 0 ;
+			int n ;
+			while ( ( n = in.read(buffer) ) > 0 ) {
+				if ( offset + n > content.length ) {
+					return false ;
+				}
+				for ( int i = 0 ; i < n ; i++ ) {
+					if ( buffer[i] != content[offset + i] ) {
+						return false ;
+					}
+				}
+				offset += n ;
+			}
+			return offset == content.length ;
+		} catch (IOException e) {
+			// cannot compare => the file will be written
+			return false ;
+		}
+	}
+}
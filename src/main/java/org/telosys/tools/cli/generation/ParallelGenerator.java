@@ -0,0 +1,896 @@
+/**
+ *  Copyright (C) 2015-2017  Telosys project org. ( http://www.telosys.org/ )
+ *
+ *  Licensed under the GNU LESSER GENERAL PUBLIC LICENSE, Version 3.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *          http://www.gnu.org/licenses/lgpl.html
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.telosys.tools.cli.generation;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.telosys.tools.commons.TelosysToolsLogger;
+import org.telosys.tools.commons.bundles.TargetDefinition;
+import org.telosys.tools.commons.cfg.TelosysToolsCfg;
+import org.telosys.tools.commons.variables.Variable;
+import org.telosys.tools.generator.GeneratorException;
+import org.telosys.tools.generator.context.Target;
+import org.telosys.tools.generator.task.ErrorProcessor;
+import org.telosys.tools.generator.task.ErrorReport;
+import org.telosys.tools.generic.model.Entity;
+import org.telosys.tools.generic.model.Model;
+
+/**
+ * Generation engine splitting the (entity, target) pairs across a ForkJoin pool <br>
+ * Each target is rendered in memory and handed to a background writer <br>
+ * ( the file is written only if its content has changed ) <br>
+ * Each worker builds its own result, all the results are merged at the end <br>
+ * ( the merged result has the same counters as a standard generation task and the rendering errors <br>
+ * in the jobs order, even with the "longest first" scheduling, the write errors are added after them ) <br>
+ * In "staged" mode all the files are written in a staging area and moved in the destination folder <br>
+ * only if the generation is successful ( in case of generation error the destination folder is not modified, <br>
+ * see 'StagingArea' for the commit errors ) <br>
+ * In "chunked" mode the entities are generated by chunks ( size adapted to the heap headroom ) <br>
+ * and only the counters and the first errors are kept between the chunks
+ *
+ */
+public class ParallelGenerator {
+
+	private static final String NO_ENTITY   = "(no entity)" ;
+	private static final String NO_TEMPLATE = "(no template)" ;
+
+	private final TelosysToolsCfg    telosysToolsCfg ;
+	private final String             bundleName ;
+	private final int                workers ;
+	private final TelosysToolsLogger logger ;
+
+	private OutputWriter outputWriter ;
+
+	private GenerationManifest manifest = null ;
+
+	private GenerationProfiler profiler = null ;
+
+	private TemplateCache templateCache = null ;
+
+	private TemplateProfiler templateProfiler = null ;
+
+	private GenerationTimings timings = null ;
+
+	private boolean hardLinks = false ;
+
+	private boolean staged = false ;
+
+	private Set<String> entitiesFilter = null ;
+
+	private int shardIndex = 1 ;
+
+	private int shardCount = 1 ;
+
+	private ArchiveOutputWriter archive = null ;
+
+	private ForkJoinPool sharedPool = null ;
+
+	private int chunkSize = 0 ; // 0 : all the entities in a single chunk
+
+	private int maxErrors = 0 ; // 0 : all the errors are kept
+
+	private final Map<GenerationJob, String> stagedJobs = new LinkedHashMap<>(); // updated by the writer thread only
+
+	private final Set<String> bundleTemplates = new HashSet<>();
+
+	private TargetRenderer renderer ;
+
+	private AsyncOutputWriter asyncWriter ;
+
+	private GenerationSummary writerResult ; // result of the writes ( updated by the writer thread only )
+
+	private final List<GenerationListener> listeners = new CopyOnWriteArrayList<>();
+
+	private final AtomicInteger done = new AtomicInteger();
+
+	private int total = 0 ;
+
+	private long startTime = 0 ;
+
+	/**
+	 * Constructor
+	 * @param telosysToolsCfg
+	 * @param bundleName
+	 * @param workers number of workers ( 1 to N )
+	 * @param logger
+	 */
+	public ParallelGenerator(TelosysToolsCfg telosysToolsCfg, String bundleName, int workers, TelosysToolsLogger logger) {
+		super();
+		this.telosysToolsCfg = telosysToolsCfg;
+		this.bundleName = bundleName;
+		this.workers = workers > 0 ? workers : 1 ;
+		this.logger = logger;
+	}
+
+	public int getWorkers() {
+		return workers;
+	}
+
+	/**
+	 * Sets the manifest used for an incremental generation <br>
+	 * ( the up to date jobs are skipped, the manifest is updated with the generated jobs )
+	 * @param manifest the manifest (or null for a full generation)
+	 */
+	public void setManifest(GenerationManifest manifest) {
+		this.manifest = manifest;
+	}
+
+	/**
+	 * Sets the profiler used to measure the generation phases
+	 * @param profiler the profiler (or null if no profiling)
+	 */
+	public void setProfiler(GenerationProfiler profiler) {
+		this.profiler = profiler;
+	}
+
+	/**
+	 * Sets the profiler measuring each line and directive of the templates
+	 * @param templateProfiler the templates profiler (or null if no templates profiling)
+	 */
+	public void setTemplateProfiler(TemplateProfiler templateProfiler) {
+		this.templateProfiler = templateProfiler;
+	}
+
+	/**
+	 * Sets the rendering times of the previous generations <br>
+	 * ( the longest jobs are generated first, the new times are recorded, the shards do not use the times )
+	 * @param timings the timings (or null if none)
+	 */
+	public void setTimings(GenerationTimings timings) {
+		this.timings = timings;
+	}
+
+	/**
+	 * Sets the cache used to keep the parsed templates between generations
+	 * @param templateCache the cache (or null if no cache)
+	 * @param bundleTemplatesTargets all the templates targets defined in the bundle
+	 */
+	public void setTemplateCache(TemplateCache templateCache, List<TargetDefinition> bundleTemplatesTargets) {
+		this.templateCache = templateCache;
+		bundleTemplates.clear();
+		for ( TargetDefinition td : bundleTemplatesTargets ) {
+			bundleTemplates.add(td.getTemplate());
+		}
+	}
+
+	/**
+	 * Use hard links for the resources when possible ( instead of copies )
+	 * @param hardLinks
+	 */
+	public void setHardLinks(boolean hardLinks) {
+		this.hardLinks = hardLinks;
+	}
+
+	/**
+	 * Enables or disables the staged generation ( files moved in the destination only if no error )
+	 * @param staged
+	 */
+	public void setStaged(boolean staged) {
+		this.staged = staged;
+	}
+
+	/**
+	 * Restricts the generation of the entities targets to the given entities <br>
+	 * ( the targets generated "once" are generated only if at least one entity is in the filter )
+	 * @param entities the entities to be generated (or null for all the selected entities)
+	 */
+	public void setEntitiesFilter(Collection<String> entities) {
+		this.entitiesFilter = entities != null ? new HashSet<>(entities) : null ;
+	}
+
+	/**
+	 * Restricts the generation to the given shard ( the resources are copied by the first shard only )
+	 * @param shardIndex shard index ( 1 to shardCount )
+	 * @param shardCount number of shards ( 1 for a full generation )
+	 */
+	public void setShard(int shardIndex, int shardCount) {
+		this.shardIndex = shardIndex;
+		this.shardCount = shardCount;
+	}
+
+	/**
+	 * Sets the archive where to write the generated files and the resources <br>
+	 * ( the archive is not closed at the end of the generation )
+	 * @param archive the archive (or null to write the files in the destination folder)
+	 */
+	public void setArchive(ArchiveOutputWriter archive) {
+		this.archive = archive;
+	}
+
+	/**
+	 * Sets a pool of workers shared with other generators ( eg one generator per bundle ) <br>
+	 * ( the number of workers is then the pool parallelism, the pool is not shut down at the end ) <br>
+	 * ( the files are then replaced atomically : the other generators can write in the same destination )
+	 * @param pool the shared pool (or null to use a dedicated pool)
+	 */
+	public void setSharedPool(ForkJoinPool pool) {
+		this.sharedPool = pool;
+	}
+
+	/**
+	 * Enables the memory-bounded generation : the entities are generated by chunks <br>
+	 * ( the size of each chunk is reduced if the heap headroom is low )
+	 * @param chunkSize the maximum number of entities per chunk (or 0 for a single chunk)
+	 */
+	public void setChunkSize(int chunkSize) {
+		this.chunkSize = chunkSize;
+	}
+
+	/**
+	 * Sets the maximum number of error reports kept in the result ( the next errors are only counted )
+	 * @param maxErrors the maximum number of errors (or 0 to keep all the errors)
+	 */
+	public void setMaxErrors(int maxErrors) {
+		this.maxErrors = maxErrors;
+	}
+
+	/**
+	 * Adds a listener notified of the generation events
+	 * @param listener
+	 */
+	public void addListener(GenerationListener listener) {
+		listeners.add(listener);
+	}
+
+	/**
+	 * Removes the given listener
+	 * @param listener
+	 */
+	public void removeListener(GenerationListener listener) {
+		listeners.remove(listener);
+	}
+
+	private void fireEvent(GenerationEvent.Type type, GenerationJob job, String outputFileName,
+			OutputWriter.WriteStatus writeStatus, ErrorReport errorReport, int doneCount) {
+		fireEvent(type, job, outputFileName, writeStatus, errorReport, doneCount, -1, 0, 0);
+	}
+
+	private void fireEvent(GenerationEvent.Type type, GenerationJob job, String outputFileName,
+			OutputWriter.WriteStatus writeStatus, ErrorReport errorReport, int doneCount, 
+			long size, long renderTime, long writeTime) {
+		if ( ! listeners.isEmpty() ) {
+			GenerationEvent event = new GenerationEvent(type, job, outputFileName, writeStatus, errorReport,
+					doneCount, total, System.currentTimeMillis() - startTime, size, renderTime, writeTime);
+			for ( GenerationListener listener : listeners ) {
+				listener.notify(event);
+			}
+		}
+	}
+
+	/**
+	 * Launches the generation ( same parameters as 'TelosysProject.launchGeneration' )
+	 * @param model
+	 * @param selectedEntities the names of the entities to be generated
+	 * @param targetDefinitions the templates targets to be generated
+	 * @param resourcesTargets the resources to be copied (void list if none)
+	 * @return
+	 */
+	public GenerationSummary launchGeneration(Model model, List<String> selectedEntities,
+			List<TargetDefinition> targetDefinitions, List<TargetDefinition> resourcesTargets) {
+
+		GenerationSummary result = newResult();
+
+		StagingArea stagingArea = null ;
+		if ( staged ) {
+			try {
+				stagingArea = new StagingArea(new File(telosysToolsCfg.getDestinationFolderAbsolutePath()));
+			} catch (IOException e) {
+				result.addError( ErrorProcessor.buildErrorReport("Cannot create the staging folder", e) );
+				return result ;
+			}
+			stagedJobs.clear();
+		}
+		if ( archive != null ) {
+			outputWriter = archive ;
+		}
+		else {
+			outputWriter = new OutputWriter(stagingArea);
+			outputWriter.setAtomicReplace(sharedPool != null); // other generations running in the same destination
+		}
+
+		// Resources first (as in the standard generation task)
+		if ( resourcesTargets != null && ! resourcesTargets.isEmpty() && shardIndex == 1 ) {
+			GenerationProfiler.Measure measure = profiler != null ? profiler.start() : null ;
+			copyResources(resourcesTargets, stagingArea, result);
+			if ( profiler != null ) {
+				profiler.stop(GenerationProfiler.Phase.RESOURCES, measure);
+			}
+		}
+
+		renderer = buildRenderer();
+
+		// Build all the jobs and dispatch them on the workers
+		Variable[] variables = telosysToolsCfg.getAllVariables();
+		List<GenerationJob> jobs = buildJobs(model, selectedEntities, targetDefinitions, result);
+		if ( shardCount > 1 ) {
+			jobs = buildShardPlanner().getShard(jobs, shardIndex, shardCount);
+		}
+		if ( entitiesFilter != null ) {
+			jobs = filterJobs(jobs);
+		}
+		if ( manifest != null ) {
+			jobs = skipUpToDateJobs(jobs, variables, result);
+		}
+		total = jobs.size();
+		done.set(0);
+		startTime = System.currentTimeMillis();
+		fireEvent(GenerationEvent.Type.GENERATION_STARTED, null, null, null, null, 0);
+		if ( ! jobs.isEmpty() ) {
+			writerResult = newResult();
+			asyncWriter = new AsyncOutputWriter(outputWriter, profiler, AsyncOutputWriter.DEFAULT_QUEUE_SIZE);
+			asyncWriter.start();
+			ForkJoinPool pool = sharedPool != null ? sharedPool : new ForkJoinPool(workers);
+			try {
+				if ( chunkSize > 0 ) {
+					generateChunks(pool, model, selectedEntities, variables, jobs, result);
+				}
+				else {
+					result.merge(invokeJobs(pool, model, selectedEntities, variables, jobs, 0, jobs.size()));
+				}
+			}
+			finally {
+				if ( pool != sharedPool ) {
+					pool.shutdown();
+				}
+				drainWriter(result);
+			}
+		}
+		if ( stagingArea != null ) {
+			endStaging(stagingArea, result);
+		}
+		fireEvent(GenerationEvent.Type.GENERATION_ENDED, null, null, null, null, done.get());
+		return result ;
+	}
+
+	/**
+	 * Generates the given range of jobs with the pool <br>
+	 * If rendering times are known the jobs are generated longest first from a shared queue ( LPT scheduling ) <br>
+	 * else the range is split recursively
+	 * @param pool
+	 * @param model
+	 * @param selectedEntities
+	 * @param variables
+	 * @param jobs
+	 * @param from
+	 * @param to
+	 * @return
+	 */
+	private GenerationSummary invokeJobs(ForkJoinPool pool, Model model, List<String> selectedEntities, 
+			Variable[] variables, List<GenerationJob> jobs, int from, int to) {
+		if ( timings == null || timings.isEmpty() ) {
+			return pool.invoke(new JobsTask(model, selectedEntities, variables, jobs, from, to));
+		}
+		List<GenerationJob> rangeJobs = jobs.subList(from, to);
+		GenerationSummary[] jobResults = new GenerationSummary[rangeJobs.size()];
+		pool.invoke(new QueueTask(model, selectedEntities, variables, rangeJobs, sortLongestFirst(rangeJobs), 
+				jobResults, new AtomicInteger(), pool.getParallelism()));
+		// merged in the jobs order : the errors kept are the same as with the recursive split
+		GenerationSummary result = newResult();
+		for ( GenerationSummary jobResult : jobResults ) {
+			result.merge(jobResult);
+		}
+		return result ;
+	}
+
+	/**
+	 * Returns the indexes of the given jobs sorted by estimated time ( the longest first, same order for the same estimate )
+	 * @param jobs
+	 * @return
+	 */
+	private List<Integer> sortLongestFirst(List<GenerationJob> jobs) {
+		final long[] estimates = new long[jobs.size()];
+		List<Integer> order = new ArrayList<>(jobs.size());
+		for ( int i = 0 ; i < jobs.size() ; i++ ) {
+			estimates[i] = timings.estimate(jobs.get(i));
+			order.add(i);
+		}
+		Collections.sort(order, new Comparator<Integer>() {
+			@Override
+			public int compare(Integer i1, Integer i2) {
+				return Long.compare(estimates[i2], estimates[i1]);
+			}
+		});
+		return order ;
+	}
+
+	private GenerationSummary newResult() {
+		GenerationSummary result = new GenerationSummary();
+		result.setMaxErrors(maxErrors);
+		return result ;
+	}
+
+	/**
+	 * Generates the jobs by chunks of entities ( the size of the next chunk depends on the heap headroom ) <br>
+	 * Each chunk result is merged in the global result ( counters and first errors ) and then released
+	 * @param pool
+	 * @param model
+	 * @param selectedEntities
+	 * @param variables
+	 * @param jobs all the jobs ( the jobs of an entity are contiguous )
+	 * @param result
+	 */
+	private void generateChunks(ForkJoinPool pool, Model model, List<String> selectedEntities, Variable[] variables,
+			List<GenerationJob> jobs, GenerationSummary result) {
+		ChunkSizer chunkSizer = new ChunkSizer(chunkSize);
+		int from = 0 ;
+		while ( from < jobs.size() ) {
+			int to = getChunkEnd(jobs, from, chunkSizer.getChunkSize());
+			result.merge(invokeJobs(pool, model, selectedEntities, variables, jobs, from, to));
+			result.incrementNumberOfChunks();
+			from = to ;
+			int nextChunkSize = chunkSizer.adapt();
+			logger.info("Chunk #" + result.getNumberOfChunks() + " generated ( " + to + "/" + jobs.size() 
+					+ " jobs ), next chunk size : " + nextChunkSize + " entities");
+		}
+	}
+
+	/**
+	 * Returns the end of the chunk starting at the given job ( the jobs of the given number of entities ) <br>
+	 * ( the jobs generated "once" are in the last chunk )
+	 * @param jobs
+	 * @param from
+	 * @param numberOfEntities
+	 * @return
+	 */
+	private int getChunkEnd(List<GenerationJob> jobs, int from, int numberOfEntities) {
+		int to = from + 1 ;
+		int count = 1 ;
+		while ( to < jobs.size() ) {
+			if ( jobs.get(to).getEntity() != jobs.get(to - 1).getEntity() ) {
+				if ( count == numberOfEntities ) {
+					break ;
+				}
+				count++ ;
+			}
+			to++ ;
+		}
+		return to ;
+	}
+
+	/**
+	 * Moves the staged files in the destination folder if the generation is successful, else discards them
+	 * @param stagingArea
+	 * @param result
+	 */
+	private void endStaging(StagingArea stagingArea, GenerationSummary result) {
+		try {
+			if ( result.getNumberOfGenerationErrors() == 0 && result.getErrors().isEmpty() ) {
+				stagingArea.commit();
+				if ( manifest != null ) {
+					for ( Map.Entry<GenerationJob, String> e : stagedJobs.entrySet() ) {
+						manifest.recordGenerated(e.getKey(), e.getValue());
+					}
+				}
+			}
+			else {
+				stagingArea.discard();
+				result.setStagedOutputDiscarded(true);
+			}
+		} catch (StagingArea.StagingException e) {
+			result.addError( ErrorProcessor.buildErrorReport("Staging error", e) );
+			result.setStagedOutputDiscarded(true);
+		} catch (IOException e) {
+			result.addError( ErrorProcessor.buildErrorReport("Staging error (destination folder partially updated)", e) );
+		}
+		stagedJobs.clear();
+	}
+
+	/**
+	 * Builds the split of the generation in the given number of shards
+	 * @param model
+	 * @param selectedEntities
+	 * @param targetDefinitions
+	 * @param count number of shards
+	 * @return
+	 */
+	public List<ShardPlanner.Shard> buildShardPlan(Model model, List<String> selectedEntities,
+			List<TargetDefinition> targetDefinitions, int count) {
+		List<GenerationJob> jobs = buildJobs(model, selectedEntities, targetDefinitions, new GenerationSummary());
+		return buildShardPlanner().plan(jobs, count);
+	}
+
+	private ShardPlanner buildShardPlanner() {
+		return new ShardPlanner(new File(telosysToolsCfg.getTemplatesFolderAbsolutePath(bundleName)));
+	}
+
+	/**
+	 * Waits for the end of the writes and merges their result ( counters, write errors and callback errors )
+	 * @param result
+	 */
+	private void drainWriter(GenerationSummary result) {
+		boolean stopped = false ;
+		try {
+			asyncWriter.drain();
+			stopped = true ;
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			result.addError( ErrorProcessor.buildErrorReport("Generation interrupted", e) );
+		} catch (GeneratorException e) {
+			// writer thread stopped before the end : the files not written have been reported as failed
+			stopped = true ;
+			result.addError( ErrorProcessor.buildErrorReport("Write error", e) );
+		}
+		if ( stopped ) {
+			for ( ErrorReport errorReport : asyncWriter.getCallbackErrors() ) {
+				result.addError(errorReport);
+			}
+		}
+		result.merge(writerResult);
+	}
+
+	private TargetRenderer buildRenderer() {
+		TargetRenderer targetRenderer ;
+		if ( templateCache != null ) {
+			// stamp of the files that can be used by all the templates ( macros, included files, etc )
+			File bundleFolder = new File(telosysToolsCfg.getTemplatesFolderAbsolutePath(bundleName));
+			String stamp = BundleFiles.getSharedFilesStamp(bundleFolder, bundleTemplates);
+			targetRenderer = new TargetRenderer(telosysToolsCfg, bundleName, logger, profiler, templateCache, stamp);
+		}
+		else {
+			targetRenderer = new TargetRenderer(telosysToolsCfg, bundleName, logger, profiler);
+		}
+		targetRenderer.setTemplateProfiler(templateProfiler);
+		return targetRenderer ;
+	}
+
+	private void copyResources(List<TargetDefinition> resourcesTargets, StagingArea stagingArea, GenerationSummary result) {
+		ResourcesCopyEngine copyEngine = new ResourcesCopyEngine(telosysToolsCfg, bundleName, logger);
+		copyEngine.setHardLinks(hardLinks);
+		copyEngine.setStagingArea(stagingArea);
+		copyEngine.setArchive(archive);
+		try {
+			ResourcesCopyEngine.Result copyResult = copyEngine.copy(resourcesTargets);
+			result.setNumberOfResourcesCopied(copyResult.getNumberOfFilesCopied());
+			result.setNumberOfResourcesSkipped(copyResult.getNumberOfFilesSkipped());
+		} catch (Exception e) {
+			result.addError( ErrorProcessor.buildErrorReport("Resources copy error", e) );
+		}
+	}
+
+	/**
+	 * Builds the list of jobs in the same order as the standard generation task : <br>
+	 * all the templates for each entity, then the templates to be generated "once"
+	 * @param model
+	 * @param selectedEntities
+	 * @param targetDefinitions
+	 * @param result
+	 * @return
+	 */
+	protected List<GenerationJob> buildJobs(Model model, List<String> selectedEntities,
+			List<TargetDefinition> targetDefinitions, GenerationSummary result) {
+		List<TargetDefinition> onceTargets = new LinkedList<>();
+		List<TargetDefinition> entityTargets = new LinkedList<>();
+		for ( TargetDefinition td : targetDefinitions ) {
+			if ( td.isOnce() ) {
+				onceTargets.add(td);
+			}
+			else {
+				entityTargets.add(td);
+			}
+		}
+		List<GenerationJob> jobs = new ArrayList<>();
+		for ( String entityName : selectedEntities ) {
+			Entity entity = model.getEntityByClassName(entityName.trim());
+			if ( entity != null ) {
+				for ( TargetDefinition td : entityTargets ) {
+					jobs.add(new GenerationJob(entity, td));
+				}
+			}
+			else {
+				String msg = "Entity '" + entityName + "' not found in the repository" ;
+				logger.error(msg);
+				result.addError(new ErrorReport("Generation error", msg, null));
+			}
+		}
+		for ( TargetDefinition td : onceTargets ) {
+			jobs.add(new GenerationJob(td));
+		}
+		return jobs ;
+	}
+
+	private List<GenerationJob> filterJobs(List<GenerationJob> jobs) {
+		List<GenerationJob> filteredJobs = new ArrayList<>();
+		for ( GenerationJob job : jobs ) {
+			if ( job.getEntity() != null ? entitiesFilter.contains(job.getEntity().getClassName()) : ! entitiesFilter.isEmpty() ) {
+				filteredJobs.add(job);
+			}
+		}
+		return filteredJobs ;
+	}
+
+	/**
+	 * Removes the jobs that are up to date according to the manifest
+	 * @param jobs
+	 * @param variables
+	 * @param result
+	 * @return the jobs to be generated
+	 */
+	private List<GenerationJob> skipUpToDateJobs(List<GenerationJob> jobs, Variable[] variables, GenerationSummary result) {
+		List<GenerationJob> jobsToGenerate = new ArrayList<>();
+		for ( GenerationJob job : jobs ) {
+			if ( manifest.isUpToDate(job, getOutputFileName(job.buildTarget(variables))) ) {
+				result.incrementNumberOfFilesSkipped();
+			}
+			else {
+				jobsToGenerate.add(job);
+			}
+		}
+		return jobsToGenerate ;
+	}
+
+	private String getOutputFileName(Target target) {
+		return target.getOutputFileNameInFileSystem(telosysToolsCfg.getDestinationFolderAbsolutePath());
+	}
+
+	/**
+	 * Generates the given job : the rendered content is handed to the writer <br>
+	 * ( the rendering errors are reported in the given result, the write errors in the writer result )
+	 * @param job
+	 * @param model
+	 * @param selectedEntities
+	 * @param variables
+	 * @param result
+	 */
+	private void generate(GenerationJob job, Model model, List<String> selectedEntities, Variable[] variables,
+			GenerationSummary result) {
+		Target target = job.buildTarget(variables);
+		List<OutputFile> embeddedFiles = new LinkedList<>();
+		fireEvent(GenerationEvent.Type.FILE_STARTED, job, null, null, null, done.get());
+		long jobStart = System.nanoTime();
+		try {
+			String content = renderer.render(target, model, selectedEntities, embeddedFiles);
+			long renderTime = System.nanoTime() - jobStart ;
+			if ( timings != null ) {
+				timings.record(job, renderTime);
+			}
+			String outputFileName = getOutputFileName(target);
+			logger.info("Saving target file : " + outputFileName);
+			// the main target + the targets generated by the embedded generator (if any) : same output stage
+			List<OutputFile> files = new ArrayList<>();
+			files.add(new OutputFile(outputFileName, content.getBytes()));
+			files.addAll(embeddedFiles);
+			long size = 0 ;
+			for ( OutputFile file : files ) {
+				size += file.getContent().length ;
+			}
+			asyncWriter.write(files, new WriteCallback(job, target, outputFileName, files.size(), size, renderTime));
+		} catch (GeneratorException e) {
+			generationError(job, target, null, e, System.nanoTime() - jobStart, result);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			generationError(job, target, null, new GeneratorException("Generation interrupted", e), 
+					System.nanoTime() - jobStart, result);
+		}
+		if ( profiler != null ) {
+			profiler.recordJob(job, System.nanoTime() - jobStart);
+		}
+	}
+
+	/**
+	 * Reports a rendering or writing error
+	 * @param job
+	 * @param target
+	 * @param outputFileName the output file (or null if the error occurred before the writing)
+	 * @param e
+	 * @param renderTime the rendering time in nanoseconds
+	 * @param result
+	 */
+	private void generationError(GenerationJob job, Target target, String outputFileName, GeneratorException e, 
+			long renderTime, GenerationSummary result) {
+		if ( manifest != null ) {
+			manifest.recordError(job);
+		}
+		result.addGenerationError(target);
+		Throwable cause = e.getCause() != null ? e.getCause() : e ;
+		ErrorReport errorReport = ErrorProcessor.buildErrorReport(cause, getEntityName(target), getTemplateName(target));
+		result.addError(errorReport);
+		fireEvent(GenerationEvent.Type.FILE_ERROR, job, outputFileName, null, errorReport, done.incrementAndGet(), 
+				-1, renderTime, 0);
+	}
+
+	/**
+	 * End of a job, called by the writer thread for each file of the job <br>
+	 * ( the job ends when all its files have been processed )
+	 */
+	private class WriteCallback implements AsyncOutputWriter.Callback {
+
+		private final GenerationJob job ;
+		private final Target target ;
+		private final String outputFileName ;
+		private final long size ;
+		private final long renderTime ;
+
+		private int pendingFiles ;
+		private OutputWriter.WriteStatus status = null ; // status of the main target file
+		private long writeTime = 0 ;
+		private boolean failed = false ;
+
+		WriteCallback(GenerationJob job, Target target, String outputFileName, int numberOfFiles, long size, 
+				long renderTime) {
+			super();
+			this.job = job;
+			this.target = target;
+			this.outputFileName = outputFileName;
+			this.pendingFiles = numberOfFiles;
+			this.size = size;
+			this.renderTime = renderTime;
+		}
+
+		@Override
+		public void written(String fileName, OutputWriter.WriteStatus fileStatus, long fileWriteTime) {
+			writerResult.countOutput(fileStatus);
+			writerResult.incrementNumberOfFilesGenerated();
+			if ( fileName.equals(outputFileName) ) {
+				status = fileStatus ;
+			}
+			writeTime += fileWriteTime ;
+			fileProcessed();
+		}
+
+		@Override
+		public void failed(String fileName, GeneratorException e) {
+			if ( ! failed ) {
+				failed = true ;
+				generationError(job, target, fileName, e, renderTime, writerResult);
+			}
+			else {
+				Throwable cause = e.getCause() != null ? e.getCause() : e ;
+				writerResult.addError(ErrorProcessor.buildErrorReport(cause, getEntityName(target), getTemplateName(target)));
+			}
+			fileProcessed();
+		}
+
+		private void fileProcessed() {
+			pendingFiles-- ;
+			if ( pendingFiles > 0 || failed ) {
+				return ;
+			}
+			if ( staged ) {
+				stagedJobs.put(job, outputFileName); // recorded in the manifest after the commit
+			}
+			else if ( manifest != null ) {
+				manifest.recordGenerated(job, outputFileName);
+			}
+			fireEvent(GenerationEvent.Type.FILE_WRITTEN, job, outputFileName, status, null, done.incrementAndGet(), 
+					size, renderTime, writeTime);
+		}
+	}
+
+	private String getEntityName(Target target) {
+		String entityName = target.getEntityName();
+		if ( entityName == null || entityName.trim().length() == 0 ) {
+			return NO_ENTITY ;
+		}
+		return entityName ;
+	}
+
+	private String getTemplateName(Target target) {
+		return target.getTemplate() != null ? target.getTemplate() : NO_TEMPLATE ;
+	}
+
+	/**
+	 * Recursive task : splits the jobs range until a single job remains <br>
+	 * The results are merged in the jobs order ( left part first )
+	 */
+	private class JobsTask extends RecursiveTask<GenerationSummary> {
+
+		private static final long serialVersionUID = 1L;
+
+		private final transient Model model ;
+		private final transient List<String> selectedEntities ;
+		private final transient Variable[] variables ;
+		private final transient List<GenerationJob> jobs ;
+		private final int from ;
+		private final int to ;
+
+		JobsTask(Model model, List<String> selectedEntities, Variable[] variables, List<GenerationJob> jobs,
+				int from, int to) {
+			super();
+			this.model = model;
+			this.selectedEntities = selectedEntities;
+			this.variables = variables;
+			this.jobs = jobs;
+			this.from = from;
+			this.to = to;
+		}
+
+		@Override
+		protected GenerationSummary compute() {
+			if ( to - from == 1 ) {
+				GenerationSummary result = newResult();
+				generate(jobs.get(from), model, selectedEntities, variables, result);
+				return result ;
+			}
+			else {
+				int middle = ( from + to ) >>> 1 ;
+				JobsTask left  = new JobsTask(model, selectedEntities, variables, jobs, from, middle);
+				JobsTask right = new JobsTask(model, selectedEntities, variables, jobs, middle, to);
+				right.fork();
+				GenerationSummary result = left.compute();
+				result.merge(right.join());
+				return result ;
+			}
+		}
+	}
+
+	/**
+	 * Task pulling the jobs from a shared queue ( the jobs are generated in the queue order ) <br>
+	 * The first task forks the other pullers ( one puller per worker ) <br>
+	 * Each job has its own result, stored at the job index ( the results are merged in the jobs order by the caller )
+	 */
+	private class QueueTask extends RecursiveAction {
+
+		private static final long serialVersionUID = 1L;
+
+		private final transient Model model ;
+		private final transient List<String> selectedEntities ;
+		private final transient Variable[] variables ;
+		private final transient List<GenerationJob> jobs ;
+		private final transient List<Integer> queue ;
+		private final transient GenerationSummary[] jobResults ;
+		private final AtomicInteger next ;
+		private final int pullers ;
+
+		QueueTask(Model model, List<String> selectedEntities, Variable[] variables, List<GenerationJob> jobs,
+				List<Integer> queue, GenerationSummary[] jobResults, AtomicInteger next, int pullers) {
+			super();
+			this.model = model;
+			this.selectedEntities = selectedEntities;
+			this.variables = variables;
+			this.jobs = jobs;
+			this.queue = queue;
+			this.jobResults = jobResults;
+			this.next = next;
+			this.pullers = pullers;
+		}
+
+		@Override
+		protected void compute() {
+			List<QueueTask> others = new ArrayList<>();
+			for ( int i = 1 ; i < pullers && i < queue.size() ; i++ ) {
+				QueueTask other = new QueueTask(model, selectedEntities, variables, jobs, queue, jobResults, next, 1);
+				other.fork();
+				others.add(other);
+			}
+			int i ;
+			while ( ( i = next.getAndIncrement() ) < queue.size() ) {
+				int jobIndex = queue.get(i);
+				GenerationSummary result = newResult();
+				generate(jobs.get(jobIndex), model, selectedEntities, variables, result);
+				jobResults[jobIndex] = result ;
+			}
+			for ( QueueTask other : others ) {
+				other.join();
+			}
+		}
+	}
+}
@@ -0,0 +1,337 @@
+/**
+ *  Copyright (C) 2015-2017  Telosys project org. ( http://www.telosys.org/ )
+ *
+ *  Licensed under the GNU LESSER GENERAL PUBLIC LICENSE, Version 3.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *          http://www.gnu.org/licenses/lgpl.html
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.telosys.tools.cli.generation;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Stream;
+
+import org.telosys.tools.commons.FileUtil;
+import org.telosys.tools.commons.TelosysToolsLogger;
+import org.telosys.tools.commons.bundles.TargetDefinition;
+import org.telosys.tools.commons.cfg.TelosysToolsCfg;
+import org.telosys.tools.commons.variables.Variable;
+import org.telosys.tools.generator.GeneratorException;
+import org.telosys.tools.generator.context.Target;
+
+/**
+ * Copy of the bundle resources in the project ( same origin and destination as 'BundleResourcesManager' ) <br>
+ * A file is not copied if the destination already exists with the same size and the same hash <br>
+ * The files are copied in parallel with 'FileChannel.transferTo' <br>
+ * or hard linked if requested and if the origin and the destination are on the same file system <br>
+ * With a staging area the files are copied in the staging folder ( the destination is only read ) <br>
+ * With an archive the files are added in the archive ( the destination is only read )
+ *
+ */
+public class ResourcesCopyEngine {
+
+	private final TelosysToolsCfg    telosysToolsCfg ;
+	private final String             bundleName ;
+	private final TelosysToolsLogger logger ;
+
+	private boolean hardLinks = false ;
+
+	private StagingArea stagingArea = null ;
+
+	private ArchiveOutputWriter archive = null ;
+
+	/**
+	 * Result of a resources copy
+	 */
+	public static class Result {
+		private int copied  = 0 ;
+		private int skipped = 0 ;
+
+		public int getNumberOfFilesCopied() {
+			return copied;
+		}
+
+		public int getNumberOfFilesSkipped() {
+			return skipped;
+		}
+	}
+
+	/**
+	 * A file to be copied
+	 */
+	private static class FileCopy {
+		private final Path origin ;
+		private final Path destination ;
+
+		private FileCopy(Path origin, Path destination) {
+			this.origin = origin ;
+			this.destination = destination ;
+		}
+	}
+
+	/**
+	 * Constructor
+	 * @param telosysToolsCfg
+	 * @param bundleName
+	 * @param logger
+	 */
+	public ResourcesCopyEngine(TelosysToolsCfg telosysToolsCfg, String bundleName, TelosysToolsLogger logger) {
+		super();
+		this.telosysToolsCfg = telosysToolsCfg;
+		this.bundleName = bundleName;
+		this.logger = logger;
+	}
+
+	/**
+	 * Use hard links instead of copies when possible <br>
+	 * ( the destination file is then the same file as the bundle resource )
+	 * @param hardLinks
+	 */
+	public void setHardLinks(boolean hardLinks) {
+		this.hardLinks = hardLinks;
+	}
+
+	/**
+	 * Sets the staging area where to copy the files
+	 * @param stagingArea the staging area (or null to copy in the destination)
+	 */
+	public void setStagingArea(StagingArea stagingArea) {
+		this.stagingArea = stagingArea;
+	}
+
+	/**
+	 * Sets the archive where to add the files
+	 * @param archive the archive (or null to copy in the destination)
+	 */
+	public void setArchive(ArchiveOutputWriter archive) {
+		this.archive = archive;
+	}
+
+	/**
+	 * Copies the given resources in the project
+	 * @param resourcesTargets
+	 * @return the number of files copied and skipped
+	 * @throws GeneratorException
+	 */
+	public Result copy(List<TargetDefinition> resourcesTargets) throws GeneratorException {
+		// Files to be copied ( the destination folders are created during the walk )
+		List<FileCopy> copies = new ArrayList<>();
+		Variable[] variables = telosysToolsCfg.getAllVariables();
+		for ( TargetDefinition td : resourcesTargets ) {
+			Target target = new Target(td, variables);
+			File origin = getOrigin(target);
+			File destination = new File(target.getOutputFileNameInFileSystem(telosysToolsCfg.getDestinationFolderAbsolutePath()));
+			logger.info("copy from '" + origin + "' to '" + destination + "'...");
+			try {
+				collect(origin, destination, copies);
+			} catch (IOException e) {
+				throw new GeneratorException("Cannot copy resource '" + origin + "'", e);
+			}
+		}
+		Result result = new Result();
+		if ( archive != null ) {
+			addToArchive(copies, result);
+			return result ;
+		}
+		// Copy in parallel
+		if ( copies.isEmpty() ) {
+			return result ;
+		}
+		int threads = Math.min(copies.size(), Runtime.getRuntime().availableProcessors());
+		ExecutorService executor = Executors.newFixedThreadPool(threads);
+		try {
+			List<Future<Boolean>> futures = new ArrayList<>();
+			for ( final FileCopy copy : copies ) {
+				futures.add(executor.submit(new Callable<Boolean>() {
+					@Override
+					public Boolean call() throws IOException {
+						return copyFile(copy.origin, copy.destination);
+					}
+				}));
+			}
+			GeneratorException error = null ;
+			Iterator<FileCopy> copiesIterator = copies.iterator();
+			for ( Future<Boolean> future : futures ) {
+				FileCopy copy = copiesIterator.next();
+				try {
+					if ( future.get() ) {
+						result.copied++ ;
+					}
+					else {
+						result.skipped++ ;
+					}
+				} catch (ExecutionException e) {
+					if ( error == null ) {
+						error = new GeneratorException("Cannot copy '" + copy.origin + "' to '" + copy.destination + "'",
+								e.getCause());
+					}
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+					throw new GeneratorException("Resources copy interrupted", e);
+				}
+			}
+			if ( error != null ) {
+				throw error ;
+			}
+		}
+		finally {
+			executor.shutdown();
+		}
+		logger.info(result.copied + " file(s) copied, " + result.skipped + " file(s) skipped");
+		return result ;
+	}
+
+	/**
+	 * Adds the files in the archive ( a single stream => no parallel copy )
+	 * @param copies
+	 * @param result
+	 * @throws GeneratorException
+	 */
+	private void addToArchive(List<FileCopy> copies, Result result) throws GeneratorException {
+		for ( FileCopy copy : copies ) {
+			try {
+				archive.write(copy.destination.toString(), Files.readAllBytes(copy.origin));
+			} catch (IOException e) {
+				throw new GeneratorException("Cannot read '" + copy.origin + "'", e);
+			}
+			result.copied++ ;
+		}
+		logger.info(result.copied + " file(s) added in archive " + archive.getArchiveName());
+	}
+
+	private File getOrigin(Target target) throws GeneratorException {
+		String resourcesFolder = FileUtil.buildFilePath(telosysToolsCfg.getTemplatesFolderAbsolutePath(bundleName),
+				BundleFiles.RESOURCES_FOLDER);
+		File origin = new File(FileUtil.buildFilePath(resourcesFolder, target.getTemplate()));
+		if ( ! origin.exists() ) {
+			throw new GeneratorException("Resource file or folder '" + origin + "' not found");
+		}
+		return origin ;
+	}
+
+	/**
+	 * Collects the files to be copied ( same rules as the standard copy ) : <br>
+	 * a file copied in an existing folder keeps its name, a folder is copied recursively
+	 * @param origin
+	 * @param destination
+	 * @param copies
+	 * @throws IOException
+	 */
+	private void collect(File origin, File destination, List<FileCopy> copies) throws IOException {
+		if ( origin.isFile() ) {
+			File destinationFile = destination.isDirectory() ? new File(destination, origin.getName()) : destination ;
+			copies.add(new FileCopy(origin.toPath(), destinationFile.toPath()));
+			return ;
+		}
+		final Path originRoot = origin.toPath();
+		final Path destinationRoot = destination.toPath();
+		try ( Stream<Path> paths = Files.walk(originRoot) ) {
+			Iterator<Path> iterator = paths.iterator();
+			while ( iterator.hasNext() ) {
+				Path path = iterator.next();
+				Path target = destinationRoot.resolve(originRoot.relativize(path).toString());
+				if ( Files.isDirectory(path) ) {
+					if ( archive != null ) {
+						continue ; // no folder in the archive
+					}
+					if ( Files.exists(target) && ! Files.isDirectory(target) ) {
+						throw new IOException("'" + target + "' is not a directory");
+					}
+					Files.createDirectories(getOutputPath(target));
+				}
+				else {
+					copies.add(new FileCopy(path, target));
+				}
+			}
+		}
+	}
+
+	private Path getOutputPath(Path destination) {
+		return stagingArea != null ? stagingArea.getStagingFile(destination.toFile()).toPath() : destination ;
+	}
+
+	/**
+	 * Copies the given file if the destination doesn't exist or has a different content
+	 * @param origin
+	 * @param destination
+	 * @return true if copied, false if skipped
+	 * @throws IOException
+	 */
+	private boolean copyFile(Path origin, Path destination) throws IOException {
+		if ( Files.exists(destination) ) {
+			if ( ! Files.isRegularFile(destination) ) {
+				throw new IOException("'" + destination + "' already exists and is not a file");
+			}
+			if ( isSameFile(origin, destination) ) {
+				return false ;
+			}
+		}
+		Path output = getOutputPath(destination);
+		if ( output.getParent() != null ) {
+			Files.createDirectories(output.getParent());
+		}
+		if ( hardLinks && link(origin, output) ) {
+			return true ;
+		}
+		try ( FileChannel in = FileChannel.open(origin, StandardOpenOption.READ) ;
+			  FileChannel out = FileChannel.open(output, StandardOpenOption.CREATE,
+					  StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE) ) {
+			long size = in.size();
+			long position = 0 ;
+			while ( position < size ) {
+				position += in.transferTo(position, size - position, out);
+			}
+		}
+		return true ;
+	}
+
+	private boolean isSameFile(Path origin, Path destination) throws IOException {
+		if ( Files.size(origin) != Files.size(destination) ) {
+			return false ;
+		}
+		if ( Files.isSameFile(origin, destination) ) {
+			return true ; // already hard linked
+		}
+		return HashUtil.hashFile(origin.toFile()).equals(HashUtil.hashFile(destination.toFile()));
+	}
+
+	/**
+	 * Replaces the destination by a hard link to the origin
+	 * @param origin
+	 * @param destination
+	 * @return true if linked, false if not possible ( the file must be copied )
+	 */
+	private boolean link(Path origin, Path destination) {
+		try {
+			if ( ! Files.getFileStore(origin).equals(Files.getFileStore(destination.getParent())) ) {
+				return false ;
+			}
+			Files.deleteIfExists(destination);
+			Files.createLink(destination, origin);
+			return true ;
+		} catch (IOException | UnsupportedOperationException e) {
+			logger.info("Cannot link '" + destination + "' : " + e.getMessage());
+			return false ;
+		}
+	}
+}
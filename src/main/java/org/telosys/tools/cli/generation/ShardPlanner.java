@@ -0,0 +1,166 @@
+/**
+ *  Copyright (C) 2015-2017  Telosys project org. ( http://www.telosys.org/ )
+ *
+ *  Licensed under the GNU LESSER GENERAL PUBLIC LICENSE, Version 3.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *          http://www.gnu.org/licenses/lgpl.html
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.telosys.tools.cli.generation;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Splits the generation jobs in N disjoint shards ( one shard per process or machine ) <br>
+ * The split only depends on the jobs ( entity class name, template, template size, entity size ) : <br>
+ * all the processes working on the same model and bundle compute the same plan <br>
+ * Each job has an estimated weight, the heaviest jobs are assigned first to the least loaded shard <br>
+ * ( the jobs with the same weight are ordered by the hash of their entity and template )
+ *
+ */
+public class ShardPlanner {
+
+	private final File bundleFolder ;
+
+	private final Map<String, Long> templatesSizes = new HashMap<>();
+
+	/**
+	 * A job with its weight and its hash
+	 */
+	private static class WeightedJob {
+		private final GenerationJob job ;
+		private final long weight ;
+		private final String hash ;
+
+		private WeightedJob(GenerationJob job, long weight, String hash) {
+			this.job = job ;
+			this.weight = weight ;
+			this.hash = hash ;
+		}
+	}
+
+	/**
+	 * A shard of the plan
+	 */
+	public static class Shard {
+		private final List<GenerationJob> jobs = new ArrayList<>();
+		private long weight = 0 ;
+
+		public List<GenerationJob> getJobs() {
+			return jobs;
+		}
+
+		public long getWeight() {
+			return weight;
+		}
+	}
+
+	/**
+	 * Constructor
+	 * @param bundleFolder the bundle folder ( used to get the templates sizes )
+	 */
+	public ShardPlanner(File bundleFolder) {
+		super();
+		this.bundleFolder = bundleFolder;
+	}
+
+	/**
+	 * Builds the plan for the given jobs
+	 * @param jobs all the jobs of a full generation
+	 * @param count number of shards
+	 * @return the shards ( shard 'i' is at index 'i-1' )
+	 */
+	public List<Shard> plan(List<GenerationJob> jobs, int count) {
+		List<WeightedJob> weightedJobs = new ArrayList<>();
+		for ( GenerationJob job : jobs ) {
+			weightedJobs.add(new WeightedJob(job, estimateWeight(job, jobs.size()), hash(job)));
+		}
+		Collections.sort(weightedJobs, new Comparator<WeightedJob>() {
+			@Override
+			public int compare(WeightedJob j1, WeightedJob j2) {
+				int c = Long.compare(j2.weight, j1.weight);
+				return c != 0 ? c : j1.hash.compareTo(j2.hash) ;
+			}
+		});
+		List<Shard> shards = new ArrayList<>();
+		for ( int i = 0 ; i < count ; i++ ) {
+			shards.add(new Shard());
+		}
+		for ( WeightedJob weightedJob : weightedJobs ) {
+			Shard lightest = shards.get(0);
+			for ( Shard shard : shards ) {
+				if ( shard.weight < lightest.weight ) {
+					lightest = shard ;
+				}
+			}
+			lightest.jobs.add(weightedJob.job);
+			lightest.weight += weightedJob.weight ;
+		}
+		return shards ;
+	}
+
+	/**
+	 * Returns the jobs of the given shard ( in the original jobs order )
+	 * @param jobs all the jobs of a full generation
+	 * @param index shard index ( 1 to count )
+	 * @param count number of shards
+	 * @return
+	 */
+	public List<GenerationJob> getShard(List<GenerationJob> jobs, int index, int count) {
+		Set<GenerationJob> shardJobs = new HashSet<>(plan(jobs, count).get(index - 1).getJobs());
+		List<GenerationJob> result = new ArrayList<>();
+		for ( GenerationJob job : jobs ) {
+			if ( shardJobs.contains(job) ) {
+				result.add(job);
+			}
+		}
+		return result ;
+	}
+
+	private String hash(GenerationJob job) {
+		String entityName = job.getEntity() != null ? job.getEntity().getClassName() : "" ;
+		return HashUtil.hashString(entityName + "|" + job.getTargetDefinition().getTemplate()
+				+ "|" + job.getTargetDefinition().getFolder() + "|" + job.getTargetDefinition().getFile());
+	}
+
+	/**
+	 * Estimates the weight of a job : template size x entity size <br>
+	 * ( a template generated "once" is supposed to use all the entities )
+	 * @param job
+	 * @param numberOfJobs
+	 * @return
+	 */
+	private long estimateWeight(GenerationJob job, int numberOfJobs) {
+		long templateSize = getTemplateSize(job.getTargetDefinition().getTemplate());
+		if ( job.getEntity() != null ) {
+			return templateSize * ( 1 + job.getEntity().getAttributes().size() + job.getEntity().getLinks().size() );
+		}
+		else {
+			return templateSize * ( 1 + numberOfJobs );
+		}
+	}
+
+	private long getTemplateSize(String template) {
+		Long size = templatesSizes.get(template);
+		if ( size == null ) {
+			size = Math.max(1L, new File(bundleFolder, template).length());
+			templatesSizes.put(template, size);
+		}
+		return size ;
+	}
+}
@@ -0,0 +1,287 @@
+/**
+ *  Copyright (C) 2015-2017  Telosys project org. ( http://www.telosys.org/ )
+ *
+ *  Licensed under the GNU LESSER GENERAL PUBLIC LICENSE, Version 3.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *          http://www.gnu.org/licenses/lgpl.html
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.telosys.tools.cli.generation;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Temporary folder receiving the files of a generation before they are moved in the destination folder <br>
+ * The staging folder is created in '/dev/shm' if available ( tmpfs ), else in the default temporary folder <br>
+ * The commit is done in two phases : <br>
+ * 1) each staged file is copied next to its target ( temporary file in the destination folder ) <br>
+ *    if this phase fails the temporary files are removed and the destination folder is not modified <br>
+ * 2) each temporary file is renamed to its target ( atomic rename in the same folder ) <br>
+ * The staging folder is removed at the end of the commit and when the JVM stops ( shutdown hook )
+ *
+ */
+public class StagingArea {
+
+	private static final String SHM_FOLDER = "/dev/shm" ;
+
+	private static final String PREFIX = "telosys-stage-" ;
+
+	private static final String TMP_SUFFIX = ".telosys-tmp" ;
+
+	private static final AtomicLong TMP_SEQUENCE = new AtomicLong(); // unique names ( concurrent commits in the same destination )
+
+	private final Path destinationFolder ;
+
+	private final Path stagingFolder ;
+
+	private final Map<Path, Path> tmpFiles = new LinkedHashMap<>(); // temporary files created in the destination folder ( with their target )
+
+	private final Thread shutdownHook ;
+
+	/**
+	 * Constructor : creates a new staging folder
+	 * @param destinationFolder the generation destination folder
+	 * @throws IOException
+	 */
+	public StagingArea(File destinationFolder) throws IOException {
+		super();
+		this.destinationFolder = destinationFolder.toPath().toAbsolutePath().normalize();
+		File shm = new File(SHM_FOLDER);
+		if ( shm.isDirectory() && shm.canWrite() ) {
+			this.stagingFolder = Files.createTempDirectory(shm.toPath(), PREFIX);
+		}
+		else {
+			this.stagingFolder = Files.createTempDirectory(PREFIX);
+		}
+		// interrupted generation ( eg killed batch ) : no staging folder left in tmpfs
+		this.shutdownHook = new Thread(new Runnable() {
+			@Override
+			public void run() {
+				try {
+					deleteTmpFiles();
+					deleteStagingFolder();
+				} catch (IOException e) {
+					// nothing more can be done when the JVM stops
+				}
+			}
+		}, "staging-cleanup");
+		Runtime.getRuntime().addShutdownHook(shutdownHook);
+	}
+
+	public File getStagingFolder() {
+		return stagingFolder.toFile();
+	}
+
+	/**
+	 * Returns the staging file for the given destination file
+	 * @param destinationFile a file located in the destination folder
+	 * @return
+	 */
+	public File getStagingFile(File destinationFile) {
+		Path path = destinationFile.toPath().toAbsolutePath().normalize();
+		if ( ! path.startsWith(destinationFolder) ) {
+			throw new IllegalArgumentException("'" + destinationFile + "' is not in the destination folder");
+		}
+		return stagingFolder.resolve(destinationFolder.relativize(path).toString()).toFile();
+	}
+
+	/**
+	 * Moves all the staged files in the destination folder and removes the staging folder <br>
+	 * ( the staging folder and the temporary files are removed even if the commit fails )
+	 * @return the number of files moved
+	 * @throws IOException if the copy phase fails ( destination folder not modified, see 'StagingException' ) <br>
+	 *   or if the rename phase fails ( destination folder partially updated )
+	 */
+	public int commit() throws IOException {
+		Throwable error = null ;
+		try {
+			final List<Path> files = new ArrayList<>();
+			if ( Files.exists(stagingFolder) ) {
+				Files.walkFileTree(stagingFolder, new SimpleFileVisitor<Path>() {
+					@Override
+					public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+						files.add(file);
+						return FileVisitResult.CONTINUE;
+					}
+				});
+			}
+			// Phase 1 : copy near the targets ( the destination files are not modified )
+			List<Path> createdFolders = new ArrayList<>();
+			try {
+				for ( Path file : files ) {
+					Path target = getDestination(file);
+					createFolders(target.getParent(), createdFolders);
+					Path tmp = target.resolveSibling(target.getFileName() + "." + TMP_SEQUENCE.incrementAndGet() + TMP_SUFFIX);
+					synchronized (tmpFiles) {
+						tmpFiles.put(tmp, target);
+					}
+					Files.copy(file, tmp, StandardCopyOption.REPLACE_EXISTING);
+					if ( Thread.currentThread().isInterrupted() ) {
+						throw new InterruptedIOException("Staging commit interrupted");
+					}
+				}
+			} catch (IOException e) {
+				StagingException stagingException = new StagingException("Cannot copy the staged files (destination folder not modified)", e);
+				try {
+					deleteTmpFiles();
+				} catch (IOException deleteError) {
+					stagingException.addSuppressed(deleteError);
+				}
+				deleteFolders(createdFolders);
+				throw stagingException ;
+			}
+			// Phase 2 : renames only
+			Throwable renameError = null ;
+			try {
+				synchronized (tmpFiles) {
+					for ( Map.Entry<Path, Path> e : tmpFiles.entrySet() ) {
+						Files.move(e.getKey(), e.getValue(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+					}
+					tmpFiles.clear();
+				}
+			} catch (Throwable e) {
+				renameError = e ;
+				throw e ;
+			} finally {
+				// rename error : the temporary files not renamed are not left in the destination folder
+				try {
+					deleteTmpFiles();
+				} catch (IOException e) {
+					if ( renameError == null ) {
+						throw e ;
+					}
+					renameError.addSuppressed(e);
+				}
+			}
+			return files.size();
+		} catch (Throwable e) {
+			error = e ;
+			throw e ;
+		}
+		finally {
+			// a cleanup error must not hide the commit error ( eg a 'StagingException' )
+			try {
+				discard();
+			} catch (IOException e) {
+				if ( error == null ) {
+					throw e ;
+				}
+				error.addSuppressed(e);
+			}
+		}
+	}
+
+	private Path getDestination(Path stagedPath) {
+		return destinationFolder.resolve(stagingFolder.relativize(stagedPath).toString());
+	}
+
+	/**
+	 * Creates the given folder and its missing parents ( the created folders are added to the given list )
+	 */
+	private void createFolders(Path folder, List<Path> createdFolders) throws IOException {
+		if ( folder == null || Files.isDirectory(folder) ) {
+			return ;
+		}
+		createFolders(folder.getParent(), createdFolders);
+		Files.createDirectory(folder);
+		createdFolders.add(folder);
+	}
+
+	/**
+	 * Removes the given folders if still empty ( the deepest first )
+	 */
+	private void deleteFolders(List<Path> folders) {
+		for ( int i = folders.size() - 1 ; i >= 0 ; i-- ) {
+			try {
+				Files.deleteIfExists(folders.get(i));
+			} catch (IOException e) {
+				// not empty : kept
+			}
+		}
+	}
+
+	/**
+	 * Removes the temporary files created in the destination folder <br>
+	 * ( all the files are removed even if a deletion fails, the first error is thrown at the end )
+	 */
+	private void deleteTmpFiles() throws IOException {
+		IOException error = null ;
+		synchronized (tmpFiles) {
+			for ( Path tmp : tmpFiles.keySet() ) {
+				try {
+					Files.deleteIfExists(tmp);
+				} catch (IOException e) {
+					if ( error == null ) {
+						error = e ;
+					}
+				}
+			}
+			tmpFiles.clear();
+		}
+		if ( error != null ) {
+			throw error ;
+		}
+	}
+
+	/**
+	 * Removes the staging folder and all the staged files ( the destination folder is not modified )
+	 * @throws IOException
+	 */
+	public void discard() throws IOException {
+		deleteStagingFolder();
+		try {
+			Runtime.getRuntime().removeShutdownHook(shutdownHook);
+		} catch (IllegalStateException e) {
+			// JVM shutting down : the hook is running
+		}
+	}
+
+	private void deleteStagingFolder() throws IOException {
+		if ( ! Files.exists(stagingFolder) ) {
+			return ;
+		}
+		Files.walkFileTree(stagingFolder, new SimpleFileVisitor<Path>() {
+			@Override
+			public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
+				Files.delete(file);
+				return FileVisitResult.CONTINUE;
+			}
+			@Override
+			public FileVisitResult postVisitDirectory(Path dir, IOException e) throws IOException {
+				Files.delete(dir);
+				return FileVisitResult.CONTINUE;
+			}
+		});
+	}
+
+	/**
+	 * Commit error in the copy phase ( the destination folder has not been modified )
+	 */
+	public static class StagingException extends IOException {
+		private static final long serialVersionUID = 1L;
+
+		public StagingException(String message, Throwable cause) {
+			super(message, cause);
+		}
+	}
+}
@@ -0,0 +1,196 @@
+/**
+ *  Copyright (C) 2015-2017  Telosys project org. ( http://www.telosys.org/ )
+ *
+ *  Licensed under the GNU LESSER GENERAL PUBLIC LICENSE, Version 3.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *          http://www.gnu.org/licenses/lgpl.html
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.telosys.tools.cli.generation;
+
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Minimal 'tar' stream ( POSIX ustar format, regular files only ) <br>
+ * The names longer than the ustar limits are stored with a GNU 'long name' entry
+ *
+ */
+public class TarOutputStream extends FilterOutputStream {
+
+	private static final int BLOCK_SIZE = 512 ;
+
+	private static final int NAME_LENGTH = 100 ;
+
+	private static final int PREFIX_LENGTH = 155 ;
+
+	private static final String LONG_LINK_NAME = "././@LongLink" ;
+
+	private long entrySize = 0 ;
+
+	private long entryWritten = 0 ;
+
+	private boolean finished = false ;
+
+	/**
+	 * Constructor
+	 * @param out
+	 */
+	public TarOutputStream(OutputStream out) {
+		super(out);
+	}
+
+	/**
+	 * Starts a new file entry ( the content must be written with exactly 'size' bytes )
+	 * @param name the entry name ( with '/' separators )
+	 * @param size the file size
+	 * @param lastModified the modification time in milliseconds
+	 * @throws IOException
+	 */
+	public void putEntry(String name, long size, long lastModified) throws IOException {
+		closeEntry();
+		byte[] nameBytes = name.getBytes(StandardCharsets.UTF_8);
+		String prefix = "" ;
+		String shortName = name ;
+		if ( nameBytes.length > NAME_LENGTH ) {
+			int i = findPrefixSplit(name);
+			if ( i > 0 ) {
+				prefix = name.substring(0, i);
+				shortName = name.substring(i + 1);
+			}
+			else {
+				// GNU extension : the name is the content of a previous entry
+				byte[] longName = ( name + "\0" ).getBytes(StandardCharsets.UTF_8);
+				writeHeader(LONG_LINK_NAME, "", longName.length, 0, 'L');
+				out.write(longName);
+				pad(longName.length);
+				// the name in the header is truncated ( ignored by the readers )
+			}
+		}
+		writeHeader(shortName, prefix, size, lastModified / 1000, '0');
+		entrySize = size ;
+		entryWritten = 0 ;
+	}
+
+	/**
+	 * Returns the index of the '/' splitting the name in a ustar prefix and name (or -1 if not possible)
+	 * @param name
+	 * @return
+	 */
+	private int findPrefixSplit(String name) {
+		for ( int i = name.indexOf('/') ; i > 0 ; i = name.indexOf('/', i + 1) ) {
+			if ( utf8Length(name.substring(0, i)) <= PREFIX_LENGTH && utf8Length(name.substring(i + 1)) <= NAME_LENGTH ) {
+				return i ;
+			}
+		}
+		return -1 ;
+	}
+
+	private int utf8Length(String s) {
+		return s.getBytes(StandardCharsets.UTF_8).length ;
+	}
+
+	private void writeHeader(String name, String prefix, long size, long mtime, char type) throws IOException {
+		byte[] header = new byte[BLOCK_SIZE];
+		putString(header, 0, NAME_LENGTH, name);
+		putOctal(header, 100, 8, 0644);
+		putOctal(header, 108, 8, 0);
+		putOctal(header, 116, 8, 0);
+		putOctal(header, 124, 12, size);
+		putOctal(header, 136, 12, mtime);
+		header[156] = (byte) type ;
+		putString(header, 257, 6, "ustar");
+		header[263] = '0' ;
+		header[264] = '0' ;
+		putString(header, 345, PREFIX_LENGTH, prefix);
+		// checksum computed with the checksum field filled with spaces
+		for ( int i = 148 ; i < 156 ; i++ ) {
+			header[i] = ' ' ;
+		}
+		long checksum = 0 ;
+		for ( byte b : header ) {
+			checksum += b & 0xFF ;
+		}
+		putOctal(header, 148, 7, checksum);
+		out.write(header);
+	}
+
+	private void putString(byte[] header, int offset, int length, String value) {
+		byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+		System.arraycopy(bytes, 0, header, offset, Math.min(bytes.length, length));
+	}
+
+	/**
+	 * Puts a zero-padded octal number terminated by a NUL character
+	 */
+	private void putOctal(byte[] header, int offset, int length, long value) {
+		String s = Long.toOctalString(value);
+		StringBuilder sb = new StringBuilder();
+		for ( int i = s.length() ; i < length - 1 ; i++ ) {
+			sb.append('0');
+		}
+		sb.append(s);
+		putString(header, offset, length - 1, sb.toString());
+		header[offset + length - 1] = 0 ;
+	}
+
+	@Override
+	public void write(int b) throws IOException {
+		out.write(b);
+		entryWritten++ ;
+	}
+
+	@Override
+	public void write(byte[] b, int off, int len) throws IOException {
+		out.write(b, off, len);
+		entryWritten += len ;
+	}
+
+	/**
+	 * Ends the current entry ( the content is padded to a full block )
+	 * @throws IOException
+	 */
+	public void closeEntry() throws IOException {
+		if ( entryWritten != entrySize ) {
+			throw new IOException("Invalid tar entry size : " + entryWritten + " bytes written, " + entrySize + " expected");
+		}
+		pad(entrySize);
+		entrySize = 0 ;
+		entryWritten = 0 ;
+	}
+
+	private void pad(long size) throws IOException {
+		int remainder = (int) ( size % BLOCK_SIZE ) ;
+		if ( remainder > 0 ) {
+			out.write(new byte[BLOCK_SIZE - remainder]);
+		}
+	}
+
+	/**
+	 * Ends the archive ( two empty blocks ) without closing the underlying stream
+	 * @throws IOException
+	 */
+	public void finish() throws IOException {
+		if ( ! finished ) {
+			closeEntry();
+			out.write(new byte[2 * BLOCK_SIZE]);
+			out.flush();
+			finished = true ;
+		}
+	}
+
+	@Override
+	public void close() throws IOException {
+		finish();
+		out.close();
+	}
+}
@@ -0,0 +1,290 @@
+/**
+ *  Copyright (C) 2015-2017  Telosys project org. ( http://www.telosys.org/ )
+ *
+ *  Licensed under the GNU LESSER GENERAL PUBLIC LICENSE, Version 3.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *          http://www.gnu.org/licenses/lgpl.html
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.telosys.tools.cli.generation;
+
+import java.io.File;
+import java.io.StringWriter;
+import java.util.HashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.Callable;
+
+import org.apache.velocity.Template;
+import org.apache.velocity.VelocityContext;
+import org.apache.velocity.app.VelocityEngine;
+
+import org.telosys.tools.commons.TelosysToolsLogger;
+import org.telosys.tools.commons.cfg.TelosysToolsCfg;
+import org.telosys.tools.generator.GeneratorContextBuilder;
+import org.telosys.tools.generator.GeneratorException;
+import org.telosys.tools.generator.context.Target;
+import org.telosys.tools.generator.engine.GeneratorContext;
+import org.telosys.tools.generator.engine.GeneratorEngine;
+import org.telosys.tools.generator.engine.GeneratorEngineException;
+import org.telosys.tools.generator.engine.directive.AssertFalseDirective;
+import org.telosys.tools.generator.engine.directive.AssertTrueDirective;
+import org.telosys.tools.generator.engine.directive.CheckIdDirective;
+import org.telosys.tools.generator.engine.directive.ErrorDirective;
+import org.telosys.tools.generator.engine.directive.UsingDirective;
+import org.telosys.tools.generator.engine.events.GeneratorEvents;
+import org.telosys.tools.generic.model.Model;
+
+/**
+ * Renders a target in memory ( same context and same Velocity configuration as the standard generator ) <br>
+ * The rendered content is returned to the caller which is in charge of the output <br>
+ * The template parsing and the rendering are separated in order to be profiled <br>
+ * and in order to reuse the parsed templates when a templates cache is used <br>
+ * The '$generator' object renders the embedded targets in memory too ( see 'EmbeddedTargetsGenerator' )
+ *
+ */
+public class TargetRenderer {
+
+	private static final String GENERATOR = "generator" ; // '$generator' in the templates
+
+	private final TelosysToolsCfg    telosysToolsCfg ;
+	private final String             bundleName ;
+	private final TelosysToolsLogger logger ;
+
+	private final GenerationProfiler profiler ;
+
+	private final TemplateCache      templateCache ;
+
+	private final String             sharedFilesStamp ;
+
+	private TemplateProfiler         templateProfiler = null ;
+
+	/**
+	 * Constructor
+	 * @param telosysToolsCfg
+	 * @param bundleName
+	 * @param logger
+	 * @param profiler the profiler (or null if no profiling)
+	 */
+	public TargetRenderer(TelosysToolsCfg telosysToolsCfg, String bundleName, TelosysToolsLogger logger,
+			GenerationProfiler profiler) {
+		this(telosysToolsCfg, bundleName, logger, profiler, null, null);
+	}
+
+	/**
+	 * Constructor with a templates cache
+	 * @param telosysToolsCfg
+	 * @param bundleName
+	 * @param logger
+	 * @param profiler the profiler (or null if no profiling)
+	 * @param templateCache the templates cache (or null if no cache)
+	 * @param sharedFilesStamp the stamp of the bundle shared files ( a cached template is invalid if it changes )
+	 */
+	public TargetRenderer(TelosysToolsCfg telosysToolsCfg, String bundleName, TelosysToolsLogger logger,
+			GenerationProfiler profiler, TemplateCache templateCache, String sharedFilesStamp) {
+		super();
+		this.telosysToolsCfg = telosysToolsCfg;
+		this.bundleName = bundleName;
+		this.logger = logger;
+		this.profiler = profiler;
+		this.templateCache = templateCache;
+		this.sharedFilesStamp = sharedFilesStamp;
+	}
+
+	/**
+	 * Sets the profiler measuring each statement of the templates ( the templates are instrumented after parsing )
+	 * @param templateProfiler the templates profiler (or null if no templates profiling)
+	 */
+	public void setTemplateProfiler(TemplateProfiler templateProfiler) {
+		this.templateProfiler = templateProfiler;
+	}
+
+	/**
+	 * Renders the given target
+	 * @param target
+	 * @param model
+	 * @param selectedEntities
+	 * @param embeddedFiles the list where to add the files generated by the embedded generator ( '$generator' )
+	 * @return the rendered content
+	 * @throws GeneratorException
+	 */
+	public String render(Target target, Model model, List<String> selectedEntities, List<OutputFile> embeddedFiles)
+			throws GeneratorException {
+		logger.info("Generation in progress : target = " + target.getTargetName() + " / entity = " + target.getEntityName());
+		try {
+			GenerationProfiler.Measure measure = startMeasure();
+			GeneratorContextBuilder contextBuilder = new GeneratorContextBuilder(telosysToolsCfg, logger);
+			GeneratorContext generatorContext = contextBuilder.initFullContext(model, bundleName, selectedEntities,
+					target, new LinkedList<Target>());
+			stopMeasure(GenerationProfiler.Phase.CONTEXT, measure);
+			// the standard embedded generator writes directly in the destination folder : replaced
+			EmbeddedTargetsGenerator embeddedGenerator = new EmbeddedTargetsGenerator(this, telosysToolsCfg, model, 
+					selectedEntities, embeddedFiles);
+			return renderInMemory(target, generatorContext, embeddedGenerator);
+		} catch (Exception e) {
+			String msg = "Entity '" + target.getEntityName() + "' - Template '" + target.getTemplate() + "'" ;
+			logger.error(msg);
+			logger.error(e.getMessage());
+			throw new GeneratorException(msg + " : " + e.getMessage(), e);
+		}
+	}
+
+	private String renderInMemory(Target target, GeneratorContext generatorContext, 
+			EmbeddedTargetsGenerator embeddedGenerator) throws Exception {
+		// The Velocity engine must use the classloader of the generator classes
+		Thread currentThread = Thread.currentThread();
+		ClassLoader originalClassLoader = currentThread.getContextClassLoader();
+		currentThread.setContextClassLoader(GeneratorEngine.class.getClassLoader());
+		try {
+			String templateFileName = checkTemplate(target);
+			// Parsing (or template from cache)
+			GenerationProfiler.Measure measure = startMeasure();
+			Template template = getTemplate(templateFileName);
+			stopMeasure(GenerationProfiler.Phase.PARSING, measure);
+			// Rendering
+			measure = startMeasure();
+			StringWriter writer = new StringWriter();
+			long start = System.nanoTime();
+			try {
+				template.merge(createVelocityContext(generatorContext, embeddedGenerator), writer);
+			} catch (Exception e) {
+				throw new GeneratorEngineException(e);
+			}
+			if ( templateProfiler != null ) {
+				templateProfiler.recordRendering(bundleName, templateFileName, System.nanoTime() - start);
+			}
+			stopMeasure(GenerationProfiler.Phase.RENDERING, measure);
+			return writer.toString();
+		}
+		finally {
+			currentThread.setContextClassLoader(originalClassLoader);
+		}
+	}
+
+	/**
+	 * Returns the given template parsed ( or from the templates cache if any ) <br>
+	 * ( a template loaded with a cache is kept in the cache for the next renderings )
+	 * @param templateFileName the template file name in the bundle
+	 * @return
+	 * @throws Exception if the template cannot be parsed
+	 */
+	public Template loadTemplate(String templateFileName) throws Exception {
+		// The Velocity engine must use the classloader of the generator classes
+		Thread currentThread = Thread.currentThread();
+		ClassLoader originalClassLoader = currentThread.getContextClassLoader();
+		currentThread.setContextClassLoader(GeneratorEngine.class.getClassLoader());
+		try {
+			return getTemplate(templateFileName);
+		}
+		finally {
+			currentThread.setContextClassLoader(originalClassLoader);
+		}
+	}
+
+	private Template getTemplate(final String templateFileName) throws Exception {
+		if ( templateCache != null ) {
+			File templateFile = new File(telosysToolsCfg.getTemplatesFolderAbsolutePath(bundleName), templateFileName);
+			// an instrumented template replaces the standard template in the cache ( and vice versa )
+			String stamp = templateFile.lastModified() + "/" + sharedFilesStamp + ( templateProfiler != null ? "/tprof" : "" ) ;
+			return templateCache.getTemplate(templateFile, stamp, new Callable<Template>() {
+				@Override
+				public Template call() throws Exception {
+					return parseTemplate(templateFileName);
+				}
+			});
+		}
+		else {
+			return parseTemplate(templateFileName);
+		}
+	}
+
+	/**
+	 * Parses the given template with a new Velocity engine
+	 * @param templateFileName
+	 * @return
+	 * @throws GeneratorEngineException
+	 */
+	private Template parseTemplate(String templateFileName) throws GeneratorEngineException {
+		try {
+			VelocityEngine velocityEngine = new VelocityEngine(buildVelocityProperties());
+			velocityEngine.init();
+			Template template = velocityEngine.getTemplate(templateFileName);
+			if ( templateProfiler != null ) {
+				templateProfiler.instrument(bundleName, templateFileName, template);
+			}
+			return template ;
+		} catch (Exception e) {
+			throw new GeneratorEngineException(e);
+		}
+	}
+
+	private GenerationProfiler.Measure startMeasure() {
+		return profiler != null ? profiler.start() : null ;
+	}
+
+	private void stopMeasure(GenerationProfiler.Phase phase, GenerationProfiler.Measure measure) {
+		if ( profiler != null ) {
+			profiler.stop(phase, measure);
+		}
+	}
+
+	/**
+	 * Builds the Velocity properties ( same properties as the standard generator )
+	 * @return
+	 */
+	private Properties buildVelocityProperties() {
+		Properties properties = new Properties();
+		properties.setProperty("file.resource.loader.path", telosysToolsCfg.getTemplatesFolderAbsolutePath(bundleName));
+		properties.setProperty("userdirective", 
+				UsingDirective.class.getCanonicalName() + ","
+				+ AssertTrueDirective.class.getCanonicalName() + ","
+				+ AssertFalseDirective.class.getCanonicalName() + ","
+				+ CheckIdDirective.class.getCanonicalName() + ","
+				+ ErrorDirective.class.getCanonicalName() );
+		properties.setProperty("velocimacro.library.autoreload", "true");
+		properties.setProperty("runtime.log.logsystem.class", "org.apache.velocity.runtime.log.NullLogChute");
+		properties.setProperty("input.encoding", "UTF-8");
+		properties.setProperty("output.encoding", "UTF-8");
+		return properties ;
+	}
+
+	private VelocityContext createVelocityContext(GeneratorContext generatorContext, 
+			EmbeddedTargetsGenerator embeddedGenerator) {
+		Map<String, Object> map = new HashMap<>();
+		for ( String key : generatorContext.keySet() ) {
+			map.put(key, generatorContext.get(key));
+		}
+		map.put(GENERATOR, embeddedGenerator);
+		VelocityContext velocityContext = new VelocityContext(map);
+		GeneratorEvents.attachEvents(velocityContext);
+		return velocityContext ;
+	}
+
+	/**
+	 * Checks the template file exists in the bundle folder
+	 * @param target
+	 * @return the template file name in the bundle
+	 * @throws GeneratorException
+	 */
+	private String checkTemplate(Target target) throws GeneratorException {
+		String bundleFolder = telosysToolsCfg.getTemplatesFolderAbsolutePath(bundleName);
+		String templateFileName = target.getTemplate();
+		if ( templateFileName == null ) {
+			throw new GeneratorException("Template file name is null !");
+		}
+		File templateFile = new File(bundleFolder, templateFileName);
+		if ( ! templateFile.isFile() ) {
+			throw new GeneratorException("Template file '" + templateFile + "' doesn't exist !");
+		}
+		return templateFileName ;
+	}
+}
@@ -0,0 +1,153 @@
+/**
+ *  Copyright (C) 2015-2017  Telosys project org. ( http://www.telosys.org/ )
+ *
+ *  Licensed under the GNU LESSER GENERAL PUBLIC LICENSE, Version 3.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *          http://www.gnu.org/licenses/lgpl.html
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.telosys.tools.cli.generation;
+
+import java.io.File;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.velocity.Template;
+
+/**
+ * Session cache of the parsed templates ( LRU cache with a maximum size ) <br>
+ * An entry is identified by the template absolute path ( several projects can have the same bundle ), <br>
+ * it is valid for a given "stamp" <br>
+ * ( template last modification time and bundle shared files last modification time ) <br>
+ * Each template is kept with its own Velocity engine ( the inline macros remain isolated as without cache ) <br>
+ * A template requested by several workers at the same time is parsed only once
+ *
+ */
+public class TemplateCache {
+
+	public static final int DEFAULT_MAX_SIZE = 256 ;
+
+	private final int maxSize ;
+
+	private final Map<String, CachedTemplate> entries ;
+
+	private final AtomicLong hits = new AtomicLong();
+
+	private final AtomicLong misses = new AtomicLong();
+
+	private final AtomicLong evictions = new AtomicLong();
+
+	private static class CachedTemplate {
+		private final String stamp ;
+		private final FutureTask<Template> future ;
+
+		private CachedTemplate(String stamp, FutureTask<Template> future) {
+			this.stamp = stamp ;
+			this.future = future ;
+		}
+	}
+
+	/**
+	 * Constructor
+	 * @param maxSize maximum number of templates kept in the cache
+	 */
+	public TemplateCache(int maxSize) {
+		super();
+		this.maxSize = maxSize > 0 ? maxSize : DEFAULT_MAX_SIZE ;
+		this.entries = new LinkedHashMap<String, CachedTemplate>(16, 0.75f, true) {
+			private static final long serialVersionUID = 1L;
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<String, CachedTemplate> eldest) {
+				if ( size() > TemplateCache.this.maxSize ) {
+					evictions.incrementAndGet();
+					return true ;
+				}
+				return false ;
+			}
+		};
+	}
+
+	/**
+	 * Returns the parsed template for the given template file <br>
+	 * ( the template is parsed with the given loader if not in the cache or if its stamp has changed )
+	 * @param templateFile the template file in the bundle folder
+	 * @param stamp
+	 * @param loader
+	 * @return
+	 * @throws Exception the exception thrown by the loader
+	 */
+	public Template getTemplate(File templateFile, String stamp, Callable<Template> loader) throws Exception {
+		String key = templateFile.getAbsolutePath() ;
+		CachedTemplate entry ;
+		boolean load = false ;
+		synchronized (entries) {
+			entry = entries.get(key);
+			if ( entry == null || ! entry.stamp.equals(stamp) ) {
+				entry = new CachedTemplate(stamp, new FutureTask<>(loader));
+				entries.put(key, entry);
+				load = true ;
+			}
+		}
+		if ( load ) {
+			misses.incrementAndGet();
+			entry.future.run();
+		}
+		else {
+			hits.incrementAndGet();
+		}
+		try {
+			return entry.future.get();
+		} catch (ExecutionException e) {
+			// parsing error : not kept in the cache
+			synchronized (entries) {
+				if ( entries.get(key) == entry ) {
+					entries.remove(key);
+				}
+			}
+			Throwable cause = e.getCause();
+			throw cause instanceof Exception ? (Exception) cause : e ;
+		}
+	}
+
+	/**
+	 * Removes all the templates
+	 */
+	public void clear() {
+		synchronized (entries) {
+			entries.clear();
+		}
+	}
+
+	public int getSize() {
+		synchronized (entries) {
+			return entries.size();
+		}
+	}
+
+	public int getMaxSize() {
+		return maxSize;
+	}
+
+	public long getHits() {
+		return hits.get();
+	}
+
+	public long getMisses() {
+		return misses.get();
+	}
+
+	public long getEvictions() {
+		return evictions.get();
+	}
+}
@@ -0,0 +1,471 @@
+/**
+ *  Copyright (C) 2015-2017  Telosys project org. ( http://www.telosys.org/ )
+ *
+ *  Licensed under the GNU LESSER GENERAL PUBLIC LICENSE, Version 3.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *          http://www.gnu.org/licenses/lgpl.html
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.telosys.tools.cli.generation;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.velocity.Template;
+import org.apache.velocity.context.InternalContextAdapter;
+import org.apache.velocity.exception.MethodInvocationException;
+import org.apache.velocity.exception.ParseErrorException;
+import org.apache.velocity.exception.ResourceNotFoundException;
+import org.apache.velocity.exception.TemplateInitException;
+import org.apache.velocity.runtime.parser.Token;
+import org.apache.velocity.runtime.parser.node.ASTBlock;
+import org.apache.velocity.runtime.parser.node.ASTComment;
+import org.apache.velocity.runtime.parser.node.ASTDirective;
+import org.apache.velocity.runtime.parser.node.ASTIfStatement;
+import org.apache.velocity.runtime.parser.node.ASTReference;
+import org.apache.velocity.runtime.parser.node.ASTSetDirective;
+import org.apache.velocity.runtime.parser.node.ASTText;
+import org.apache.velocity.runtime.parser.node.ASTprocess;
+import org.apache.velocity.runtime.parser.node.Node;
+import org.apache.velocity.runtime.parser.node.ParserVisitor;
+
+/**
+ * Hot-spot profiler of the templates rendering ( opt-in, kept for the whole session ) <br>
+ * Each statement of a parsed template ( directive, reference, text ) is wrapped by a node measuring its rendering <br>
+ * The times and the invocations are aggregated by template line and statement over all the entities <br>
+ * The "self" time of a statement excludes the time of the statements nested in it ( eg the body of a '#foreach' ) <br>
+ * The macros are measured at the calling line ( the macros bodies are not instrumented )
+ *
+ */
+public class TemplateProfiler {
+
+	private static final int LABEL_MAX_LENGTH = 40 ;
+
+	/**
+	 * Time of the nested statements being rendered by the current thread
+	 */
+	private static final ThreadLocal<long[]> NESTED_TIME = new ThreadLocal<long[]>() {
+		@Override
+		protected long[] initialValue() {
+			return new long[1];
+		}
+	};
+
+	private volatile boolean enabled = false ;
+
+	private final Map<String, TemplateStatistics> templates = new ConcurrentHashMap<>();
+
+	/**
+	 * Statistics for a template ( key : bundle name and template file name )
+	 */
+	public static class TemplateStatistics {
+		private final String bundleName ;
+		private final String templateName ;
+		private final AtomicLong renderings = new AtomicLong();
+		private final AtomicLong renderingTime = new AtomicLong();
+		private final Map<String, StatementStatistics> statements = new ConcurrentHashMap<>();
+
+		private TemplateStatistics(String bundleName, String templateName) {
+			this.bundleName = bundleName ;
+			this.templateName = templateName ;
+		}
+
+		public String getBundleName() {
+			return bundleName;
+		}
+
+		public String getTemplateName() {
+			return templateName;
+		}
+
+		public long getRenderings() {
+			return renderings.get();
+		}
+
+		/**
+		 * Returns the total rendering time in nanoseconds ( cumulated over all the workers )
+		 * @return
+		 */
+		public long getRenderingTime() {
+			return renderingTime.get();
+		}
+
+		/**
+		 * Returns the statements ranked by self time ( the slowest first )
+		 * @return
+		 */
+		public List<StatementStatistics> getRankedStatements() {
+			List<StatementStatistics> list = new ArrayList<>(statements.values());
+			Collections.sort(list, new Comparator<StatementStatistics>() {
+				@Override
+				public int compare(StatementStatistics s1, StatementStatistics s2) {
+					return Long.compare(s2.getSelfTime(), s1.getSelfTime());
+				}
+			});
+			return list ;
+		}
+
+		private StatementStatistics getStatement(int line, int column, String label) {
+			String key = line + ":" + column + ":" + label ;
+			StatementStatistics stats = statements.get(key);
+			if ( stats == null ) {
+				stats = new StatementStatistics(line, column, label);
+				StatementStatistics previous = statements.putIfAbsent(key, stats);
+				if ( previous != null ) {
+					stats = previous ;
+				}
+			}
+			return stats ;
+		}
+	}
+
+	/**
+	 * Statistics for a statement of a template ( line, column and label, eg '#foreach' or '$entity.name' )
+	 */
+	public static class StatementStatistics {
+		private final int line ;
+		private final int column ;
+		private final String label ;
+		private final AtomicLong invocations = new AtomicLong();
+		private final AtomicLong totalTime = new AtomicLong();
+		private final AtomicLong selfTime = new AtomicLong();
+
+		private StatementStatistics(int line, int column, String label) {
+			this.line = line ;
+			this.column = column ;
+			this.label = label ;
+		}
+
+		public int getLine() {
+			return line;
+		}
+
+		public int getColumn() {
+			return column;
+		}
+
+		public String getLabel() {
+			return label;
+		}
+
+		public long getInvocations() {
+			return invocations.get();
+		}
+
+		/**
+		 * Returns the total time in nanoseconds ( including the nested statements )
+		 * @return
+		 */
+		public long getTotalTime() {
+			return totalTime.get();
+		}
+
+		/**
+		 * Returns the self time in nanoseconds ( excluding the nested statements )
+		 * @return
+		 */
+		public long getSelfTime() {
+			return selfTime.get();
+		}
+
+		private void record(long total, long self) {
+			invocations.incrementAndGet();
+			totalTime.addAndGet(total);
+			selfTime.addAndGet(self);
+		}
+	}
+
+	public boolean isEnabled() {
+		return enabled;
+	}
+
+	/**
+	 * Enables or disables the profiling for the next generations ( the collected statistics are kept )
+	 * @param enabled
+	 */
+	public void setEnabled(boolean enabled) {
+		this.enabled = enabled;
+	}
+
+	/**
+	 * Removes all the collected statistics
+	 */
+	public void clear() {
+		templates.clear();
+	}
+
+	/**
+	 * Returns the names of the profiled templates for the given bundle ( sorted )
+	 * @param bundleName
+	 * @return
+	 */
+	public Set<String> getTemplates(String bundleName) {
+		Set<String> names = new TreeSet<>();
+		for ( TemplateStatistics stats : templates.values() ) {
+			if ( stats.getBundleName().equals(bundleName) ) {
+				names.add(stats.getTemplateName());
+			}
+		}
+		return names ;
+	}
+
+	/**
+	 * Returns the statistics for the given template (or null if not profiled)
+	 * @param bundleName
+	 * @param templateName
+	 * @return
+	 */
+	public TemplateStatistics getStatistics(String bundleName, String templateName) {
+		return templates.get(bundleName + "/" + templateName);
+	}
+
+	private TemplateStatistics getOrCreateStatistics(String bundleName, String templateName) {
+		String key = bundleName + "/" + templateName ;
+		TemplateStatistics stats = templates.get(key);
+		if ( stats == null ) {
+			stats = new TemplateStatistics(bundleName, templateName);
+			TemplateStatistics previous = templates.putIfAbsent(key, stats);
+			if ( previous != null ) {
+				stats = previous ;
+			}
+		}
+		return stats ;
+	}
+
+	/**
+	 * Records a complete rendering of the given template
+	 * @param bundleName
+	 * @param templateName
+	 * @param elapsedTime in nanoseconds
+	 */
+	public void recordRendering(String bundleName, String templateName, long elapsedTime) {
+		TemplateStatistics stats = getOrCreateStatistics(bundleName, templateName);
+		stats.renderings.incrementAndGet();
+		stats.renderingTime.addAndGet(elapsedTime);
+	}
+
+	/**
+	 * Instruments the given parsed template ( must be called before the template is shared by several workers )
+	 * @param bundleName
+	 * @param templateName
+	 * @param template
+	 */
+	public void instrument(String bundleName, String templateName, Template template) {
+		Object data = template.getData();
+		if ( data instanceof Node ) {
+			instrumentNode((Node) data, getOrCreateStatistics(bundleName, templateName));
+		}
+	}
+
+	private void instrumentNode(Node node, TemplateStatistics stats) {
+		boolean statements = node instanceof ASTprocess || node instanceof ASTBlock ;
+		for ( int i = 0 ; i < node.jjtGetNumChildren() ; i++ ) {
+			Node child = node.jjtGetChild(i);
+			if ( child instanceof ProfilingNode ) {
+				continue ; // already instrumented
+			}
+			instrumentNode(child, stats);
+			if ( statements && ! ( child instanceof ASTComment ) ) {
+				StatementStatistics statement = stats.getStatement(child.getLine(), child.getColumn(), getLabel(child));
+				node.jjtAddChild(new ProfilingNode(child, statement), i);
+			}
+		}
+	}
+
+	private String getLabel(Node node) {
+		String label ;
+		if ( node instanceof ASTDirective ) {
+			label = "#" + ((ASTDirective) node).getDirectiveName() ;
+		}
+		else if ( node instanceof ASTSetDirective ) {
+			label = "#set" ;
+		}
+		else if ( node instanceof ASTIfStatement ) {
+			label = "#if" ;
+		}
+		else if ( node instanceof ASTReference ) {
+			label = node.literal() ;
+		}
+		else if ( node instanceof ASTText ) {
+			label = "text" ;
+		}
+		else {
+			label = node.getClass().getSimpleName().replace("AST", "") ;
+		}
+		label = label.replace('\n', ' ').replace('\r', ' ');
+		return label.length() > LABEL_MAX_LENGTH ? label.substring(0, LABEL_MAX_LENGTH - 3) + "..." : label ;
+	}
+
+	/**
+	 * Node measuring the rendering of the wrapped statement ( all the other operations are delegated )
+	 */
+	private static class ProfilingNode implements Node {
+
+		private final Node node ;
+
+		private final StatementStatistics stats ;
+
+		private ProfilingNode(Node node, StatementStatistics stats) {
+			this.node = node ;
+			this.stats = stats ;
+		}
+
+		@Override
+		public boolean render(InternalContextAdapter context, Writer writer) throws IOException,
+				MethodInvocationException, ParseErrorException, ResourceNotFoundException {
+			long[] nested = NESTED_TIME.get();
+			long outerNested = nested[0] ;
+			nested[0] = 0 ;
+			long start = System.nanoTime();
+			try {
+				return node.render(context, writer);
+			}
+			finally {
+				long elapsed = System.nanoTime() - start ;
+				stats.record(elapsed, elapsed - nested[0]);
+				nested[0] = outerNested + elapsed ;
+			}
+		}
+
+		@Override
+		public void jjtOpen() {
+			node.jjtOpen();
+		}
+
+		@Override
+		public void jjtClose() {
+			node.jjtClose();
+		}
+
+		@Override
+		public void jjtSetParent(Node n) {
+			node.jjtSetParent(n);
+		}
+
+		@Override
+		public Node jjtGetParent() {
+			return node.jjtGetParent();
+		}
+
+		@Override
+		public void jjtAddChild(Node n, int i) {
+			node.jjtAddChild(n, i);
+		}
+
+		@Override
+		public Node jjtGetChild(int i) {
+			return node.jjtGetChild(i);
+		}
+
+		@Override
+		public int jjtGetNumChildren() {
+			return node.jjtGetNumChildren();
+		}
+
+		@Override
+		public Object jjtAccept(ParserVisitor visitor, Object data) {
+			return node.jjtAccept(visitor, data);
+		}
+
+		@Override
+		public Object childrenAccept(ParserVisitor visitor, Object data) {
+			return node.childrenAccept(visitor, data);
+		}
+
+		@Override
+		public Token getFirstToken() {
+			return node.getFirstToken();
+		}
+
+		@Override
+		public Token getLastToken() {
+			return node.getLastToken();
+		}
+
+		@Override
+		public int getType() {
+			return node.getType();
+		}
+
+		@Override
+		public Object init(InternalContextAdapter context, Object data) throws TemplateInitException {
+			return node.init(context, data);
+		}
+
+		@Override
+		public boolean evaluate(InternalContextAdapter context) throws MethodInvocationException {
+			return node.evaluate(context);
+		}
+
+		@Override
+		public Object value(InternalContextAdapter context) throws MethodInvocationException {
+			return node.value(context);
+		}
+
+		@Override
+		public Object execute(Object o, InternalContextAdapter context) throws MethodInvocationException {
+			return node.execute(o, context);
+		}
+
+		@Override
+		public void setInfo(int info) {
+			node.setInfo(info);
+		}
+
+		@Override
+		public int getInfo() {
+			return node.getInfo();
+		}
+
+		@Override
+		public String literal() {
+			return node.literal();
+		}
+
+		@Override
+		public void setInvalid() {
+			node.setInvalid();
+		}
+
+		@Override
+		public boolean isInvalid() {
+			return node.isInvalid();
+		}
+
+		@Override
+		public int getLine() {
+			return node.getLine();
+		}
+
+		@Override
+		public int getColumn() {
+			return node.getColumn();
+		}
+
+		@Override
+		public String getTemplateName() {
+			return node.getTemplateName();
+		}
+
+		@Override
+		public String toString() {
+			return node.toString();
+		}
+	}
+}
@@ -0,0 +1,121 @@
+/**
+ *  Copyright (C) 2015-2017  Telosys project org. ( http://www.telosys.org/ )
+ *
+ *  Licensed under the GNU LESSER GENERAL PUBLIC LICENSE, Version 3.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *          http://www.gnu.org/licenses/lgpl.html
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.telosys.tools.cli.observer;
+
+import java.io.PrintWriter;
+
+import org.telosys.tools.cli.generation.GenerationEvent;
+import org.telosys.tools.cli.generation.GenerationListener;
+import org.telosys.tools.commons.StrUtil;
+
+/**
+ * Generation listener printing a live progress line on the console <br>
+ * ( done/total, files per second and ETA, the line is refreshed in place )
+ *
+ */
+public class GenerationProgressObserver implements GenerationListener {
+
+	private static final long REFRESH_PERIOD = 200 ; // ms
+
+	private final PrintWriter out ;
+
+	private final int width ;
+
+	private long lastRefresh = 0 ;
+
+	private int lastLength = 0 ;
+
+	/**
+	 * Constructor
+	 * @param out the console output
+	 * @param width the terminal width ( 0 if unknown )
+	 */
+	public GenerationProgressObserver(PrintWriter out, int width) {
+		super();
+		this.out = out;
+		this.width = width;
+	}
+
+	@Override
+	public synchronized void notify(GenerationEvent event) {
+		switch ( event.getType() ) {
+		case GENERATION_STARTED :
+			lastRefresh = 0 ;
+			lastLength = 0 ;
+			break;
+		case FILE_WRITTEN :
+		case FILE_ERROR :
+			long now = System.currentTimeMillis();
+			if ( now - lastRefresh >= REFRESH_PERIOD ) {
+				lastRefresh = now ;
+				printLine(buildLine(event));
+			}
+			break;
+		case GENERATION_ENDED :
+			if ( event.getTotal() > 0 ) {
+				printLine(buildLine(event));
+				out.println();
+				out.flush();
+			}
+			break;
+		default:
+			break;
+		}
+	}
+
+	private String buildLine(GenerationEvent event) {
+		StringBuilder sb = new StringBuilder();
+		sb.append("Generated ").append(event.getDone()).append("/").append(event.getTotal()).append(" file(s)");
+		sb.append(" - ").append(String.format("%.1f", event.getFilesPerSecond())).append(" files/s");
+		if ( event.getDone() < event.getTotal() ) {
+			sb.append(" - ETA ").append(formatDuration(event.getEstimatedRemainingTime()));
+		}
+		else {
+			sb.append(" - ").append(formatDuration(event.getElapsedTime()));
+		}
+		return sb.toString();
+	}
+
+	private void printLine(String line) {
+		String s = line ;
+		if ( width > 1 && s.length() >= width ) {
+			s = s.substring(0, width - 1);
+		}
+		int padding = lastLength - s.length() ;
+		out.print("\r" + s + ( padding > 0 ? StrUtil.repeat(' ', padding) : "" ) );
+		out.flush();
+		lastLength = s.length();
+	}
+
+	/**
+	 * Formats the given duration as 'mm:ss' ( or 'h:mm:ss' )
+	 * @param millis the duration in milliseconds ( negative if unknown )
+	 * @return
+	 */
+	protected static String formatDuration(long millis) {
+		if ( millis < 0 ) {
+			return "--:--" ;
+		}
+		long seconds = millis / 1000 ;
+		long h = seconds / 3600 ;
+		long m = ( seconds % 3600 ) / 60 ;
+		long s = seconds % 60 ;
+		if ( h > 0 ) {
+			return String.format("%d:%02d:%02d", h, m, s);
+		}
+		return String.format("%02d:%02d", m, s);
+	}
+}
@@ -0,0 +1,336 @@
+/**
+ *  Copyright (C) 2015-2017  Telosys project org. ( http://www.telosys.org/ )
+ *
+ *  Licensed under the GNU LESSER GENERAL PUBLIC LICENSE, Version 3.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *          http://www.gnu.org/licenses/lgpl.html
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.telosys.tools.cli.observer;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+import org.telosys.tools.cli.generation.GenerationEvent;
+import org.telosys.tools.cli.generation.GenerationJob;
+import org.telosys.tools.cli.generation.GenerationListener;
+import org.telosys.tools.cli.generation.GenerationSummary;
+import org.telosys.tools.generator.task.ErrorReport;
+import org.telosys.tools.generator.task.GenerationTaskResult;
+
+/**
+ * Machine-readable generation report ( JSON or CSV according to the file extension ) <br>
+ * One record is written for each generated file as soon as it is written ( nothing is kept in memory ) <br>
+ * The events of each generation ( one model and one bundle ) are received by a specific listener ( see 'getListener' ) <br>
+ * and each file record has the model and the bundle ( several models or bundles in the same report ) <br>
+ * The totals and the errors details are written at the end ( see 'close' ) <br>
+ * CSV columns : record, model, bundle, entity, template, output, bytes, render_ms, write_ms, status, error_type, error_message <br>
+ * ( for the 'TOTAL' records the 'output' column is the counter name and the 'bytes' column is its value )
+ *
+ */
+public class GenerationReportObserver {
+
+	private static final String NO_ENTITY = "" ;
+
+	private static final String STATUS_ERROR = "ERROR" ;
+
+	private static final String CSV_HEADER = "record,model,bundle,entity,template,output,bytes,render_ms,write_ms,status,error_type,error_message" ;
+
+	private final File file ;
+
+	private final boolean json ;
+
+	private final Writer writer ;
+
+	private int records = 0 ;
+
+	private long elapsedTime = 0 ;
+
+	private long totalBytes = 0 ;
+
+	private IOException writeError = null ; // first write error ( thrown by 'close' )
+
+	/**
+	 * Returns true if the given file name has a supported report extension ( '.json' or '.csv' )
+	 * @param fileName
+	 * @return
+	 */
+	public static boolean isValidReportFile(String fileName) {
+		String s = fileName.toLowerCase();
+		return s.endsWith(".json") || s.endsWith(".csv") ;
+	}
+
+	/**
+	 * Constructor : creates the report file and writes the report header
+	 * @param file the report file ( '.json' or '.csv' )
+	 * @param modelNames the models of the generation
+	 * @param bundleNames the bundles of the generation
+	 * @throws IOException
+	 */
+	public GenerationReportObserver(File file, List<String> modelNames, List<String> bundleNames) throws IOException {
+		super();
+		this.file = file;
+		this.json = file.getName().toLowerCase().endsWith(".json");
+		File folder = file.getAbsoluteFile().getParentFile();
+		if ( folder != null ) {
+			folder.mkdirs();
+		}
+		this.writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(file), StandardCharsets.UTF_8));
+		if ( json ) {
+			writer.write("{\n  \"models\": " + jsonArray(modelNames) + ",\n  \"bundles\": " + jsonArray(bundleNames)
+					+ ",\n  \"date\": " + jsonString(new Date().toString()) + ",\n  \"files\": [");
+		}
+		else {
+			writer.write(CSV_HEADER + "\n");
+		}
+	}
+
+	public File getFile() {
+		return file;
+	}
+
+	/**
+	 * Returns a listener writing the events of the generation of the given model with the given bundle
+	 * @param modelName
+	 * @param bundleName
+	 * @return
+	 */
+	public GenerationListener getListener(final String modelName, final String bundleName) {
+		return new GenerationListener() {
+			@Override
+			public void notify(GenerationEvent event) {
+				GenerationReportObserver.this.notify(event, modelName, bundleName);
+			}
+		};
+	}
+
+	private synchronized void notify(GenerationEvent event, String modelName, String bundleName) {
+		if ( writeError != null ) {
+			return ;
+		}
+		try {
+			switch ( event.getType() ) {
+			case FILE_WRITTEN :
+				writeFileRecord(event, modelName, bundleName, event.getWriteStatus().name(), null);
+				if ( event.getSize() > 0 ) {
+					totalBytes += event.getSize() ;
+				}
+				break;
+			case FILE_ERROR :
+				writeFileRecord(event, modelName, bundleName, STATUS_ERROR, event.getErrorReport());
+				break;
+			case GENERATION_ENDED :
+				elapsedTime += event.getElapsedTime() ;
+				writer.flush();
+				break;
+			default:
+				break;
+			}
+		} catch (IOException e) {
+			// the report must not stop the generation ( the error is thrown by 'close' )
+			writeError = e ;
+		}
+	}
+
+	private void writeFileRecord(GenerationEvent event, String modelName, String bundleName, String status, 
+			ErrorReport errorReport) throws IOException {
+		GenerationJob job = event.getJob();
+		String entity = job.getEntity() != null ? job.getEntity().getClassName() : NO_ENTITY ;
+		String template = job.getTargetDefinition().getTemplate();
+		if ( json ) {
+			StringBuilder sb = new StringBuilder();
+			sb.append(records > 0 ? ",\n" : "\n");
+			sb.append("    { \"model\": " + jsonString(modelName) + ", \"bundle\": " + jsonString(bundleName)
+					+ ", \"entity\": " + jsonString(entity) + ", \"template\": " + jsonString(template)
+					+ ", \"output\": " + jsonString(event.getOutputFileName()) + ", \"bytes\": " + event.getSize()
+					+ ", \"renderMs\": " + millis(event.getRenderTime()) + ", \"writeMs\": " + millis(event.getWriteTime())
+					+ ", \"status\": " + jsonString(status));
+			if ( errorReport != null ) {
+				sb.append(", \"errorType\": " + jsonString(errorReport.getErrorType())
+						+ ", \"errorMessage\": " + jsonString(errorReport.getMessage()));
+			}
+			sb.append(" }");
+			writer.write(sb.toString());
+		}
+		else {
+			writer.write(csvLine("FILE", modelName, bundleName, entity, template, event.getOutputFileName(), String.valueOf(event.getSize()),
+					millis(event.getRenderTime()), millis(event.getWriteTime()), status,
+					errorReport != null ? errorReport.getErrorType() : null,
+					errorReport != null ? errorReport.getMessage() : null));
+		}
+		records++ ;
+	}
+
+	/**
+	 * Writes the totals and the errors of the given result and closes the report
+	 * @param result the generation result (or null if nothing has been generated)
+	 * @throws IOException
+	 */
+	public synchronized void close(GenerationTaskResult result) throws IOException {
+		if ( writeError != null ) {
+			writer.close();
+			throw writeError ;
+		}
+		try {
+			GenerationTaskResult r = result != null ? result : new GenerationSummary() ;
+			Map<String, Long> totals = buildTotals(r);
+			if ( json ) {
+				writer.write(( records > 0 ? "\n  ],\n" : "],\n" ) + "  \"totals\": {");
+				int i = 0 ;
+				for ( Map.Entry<String, Long> e : totals.entrySet() ) {
+					writer.write(( i++ > 0 ? "," : "" ) + "\n    " + jsonString(e.getKey()) + ": " + e.getValue());
+				}
+				writer.write("\n  },\n  \"errors\": [");
+				i = 0 ;
+				for ( ErrorReport err : r.getErrors() ) {
+					writer.write(( i++ > 0 ? "," : "" ) + "\n    " + jsonError(err));
+				}
+				writer.write(( i > 0 ? "\n  ]" : "]" ) + "\n}\n");
+			}
+			else {
+				for ( ErrorReport err : r.getErrors() ) {
+					writer.write(csvLine("ERROR", null, null, null, null, null, null, null, null, STATUS_ERROR, err.getErrorType(),
+							err.getMessage() + exceptionText(err.getException())));
+				}
+				for ( Map.Entry<String, Long> e : totals.entrySet() ) {
+					writer.write(csvLine("TOTAL", null, null, null, null, e.getKey(), String.valueOf(e.getValue()),
+							null, null, null, null, null));
+				}
+			}
+		}
+		finally {
+			writer.close();
+		}
+	}
+
+	private Map<String, Long> buildTotals(GenerationTaskResult result) {
+		Map<String, Long> totals = new LinkedHashMap<>();
+		totals.put("filesGenerated", (long) result.getNumberOfFilesGenerated());
+		if ( result instanceof GenerationSummary ) {
+			GenerationSummary summary = (GenerationSummary) result ;
+			totals.put("filesWritten", (long) summary.getNumberOfFilesWritten());
+			totals.put("filesUnchanged", (long) summary.getNumberOfFilesUnchanged());
+			totals.put("filesNew", (long) summary.getNumberOfFilesNew());
+			totals.put("filesSkipped", (long) summary.getNumberOfFilesSkipped());
+			totals.put("resourcesSkipped", (long) summary.getNumberOfResourcesSkipped());
+			totals.put("errorsNotReported", (long) summary.getNumberOfErrorsDropped());
+		}
+		totals.put("resourcesCopied", (long) result.getNumberOfResourcesCopied());
+		totals.put("generationErrors", (long) result.getNumberOfGenerationErrors());
+		totals.put("errors", (long) result.getErrors().size());
+		totals.put("bytes", totalBytes);
+		totals.put("elapsedMs", elapsedTime);
+		return totals ;
+	}
+
+	private String jsonError(ErrorReport err) {
+		StringBuilder sb = new StringBuilder();
+		sb.append("{ \"type\": " + jsonString(err.getErrorType()) + ", \"message\": " + jsonString(err.getMessage()));
+		Throwable ex = err.getException();
+		if ( ex != null ) {
+			sb.append(", \"exception\": " + jsonString(ex.getClass().getName())
+					+ ", \"exceptionMessage\": " + jsonString(ex.getMessage()) + ", \"causes\": [");
+			int i = 0 ;
+			for ( Throwable cause = ex.getCause() ; cause != null ; cause = cause.getCause() ) {
+				sb.append(( i++ > 0 ? ", " : "" ) + "{ \"exception\": " + jsonString(cause.getClass().getName())
+						+ ", \"message\": " + jsonString(cause.getMessage()) + " }");
+			}
+			sb.append("], \"stackTrace\": [");
+			i = 0 ;
+			for ( StackTraceElement element : ex.getStackTrace() ) {
+				sb.append(( i++ > 0 ? ", " : "" ) + jsonString(element.toString()));
+			}
+			sb.append("]");
+		}
+		sb.append(" }");
+		return sb.toString();
+	}
+
+	private String exceptionText(Throwable ex) {
+		StringBuilder sb = new StringBuilder();
+		for ( Throwable t = ex ; t != null ; t = t.getCause() ) {
+			sb.append(" | " + t.getClass().getSimpleName() + " : " + t.getMessage());
+		}
+		return sb.toString();
+	}
+
+	private String millis(long nanos) {
+		return String.format(Locale.ROOT, "%.3f", nanos / 1000000.0);
+	}
+
+	private String jsonArray(List<String> values) {
+		StringBuilder sb = new StringBuilder("[");
+		for ( int i = 0 ; i < values.size() ; i++ ) {
+			sb.append(( i > 0 ? ", " : "" ) + jsonString(values.get(i)));
+		}
+		return sb.append(']').toString();
+	}
+
+	private String jsonString(String s) {
+		if ( s == null ) {
+			return "null" ;
+		}
+		StringBuilder sb = new StringBuilder("\"");
+		for ( char c : s.toCharArray() ) {
+			switch ( c ) {
+			case '"' :
+				sb.append("\\\"");
+				break;
+			case '\\' :
+				sb.append("\\\\");
+				break;
+			case '\n' :
+				sb.append("\\n");
+				break;
+			case '\r' :
+				sb.append("\\r");
+				break;
+			case '\t' :
+				sb.append("\\t");
+				break;
+			default:
+				if ( c < 0x20 ) {
+					sb.append(String.format("\\u%04x", (int) c));
+				}
+				else {
+					sb.append(c);
+				}
+			}
+		}
+		return sb.append('"').toString();
+	}
+
+	private String csvLine(String... values) {
+		StringBuilder sb = new StringBuilder();
+		for ( int i = 0 ; i < values.length ; i++ ) {
+			if ( i > 0 ) {
+				sb.append(',');
+			}
+			String v = values[i] != null ? values[i] : "" ;
+			if ( v.indexOf(',') >= 0 || v.indexOf('"') >= 0 || v.indexOf('\n') >= 0 || v.indexOf('\r') >= 0 ) {
+				sb.append('"').append(v.replace("\"", "\"\"")).append('"');
+			}
+			else {
+				sb.append(v);
+			}
+		}
+		return sb.append('\n').toString();
+	}
+}
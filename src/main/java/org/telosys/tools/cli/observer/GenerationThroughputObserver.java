@@ -0,0 +1,108 @@
+/**
+ *  Copyright (C) 2015-2017  Telosys project org. ( http://www.telosys.org/ )
+ *
+ *  Licensed under the GNU LESSER GENERAL PUBLIC LICENSE, Version 3.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *          http://www.gnu.org/licenses/lgpl.html
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.telosys.tools.cli.observer;
+
+import java.io.PrintWriter;
+
+import org.telosys.tools.cli.generation.GenerationEvent;
+import org.telosys.tools.cli.generation.GenerationListener;
+
+/**
+ * Throughput logger ( one line per period, one line at the end ) <br>
+ * Used for the batch generations ( launch arguments ) <br>
+ * The events of each generation ( one model and one bundle ) are received by a specific listener ( see 'getListener' ) <br>
+ * with its own counters ( several generations can run at the same time with '-models' or '-b' )
+ *
+ */
+public class GenerationThroughputObserver {
+
+	private static final long LOG_PERIOD = 10000 ; // ms
+
+	private final PrintWriter out ;
+
+	/**
+	 * Constructor
+	 * @param out
+	 */
+	public GenerationThroughputObserver(PrintWriter out) {
+		super();
+		this.out = out;
+	}
+
+	/**
+	 * Returns a listener logging the throughput of the generation of the given model with the given bundle
+	 * @param modelName
+	 * @param bundleName
+	 * @return
+	 */
+	public GenerationListener getListener(String modelName, String bundleName) {
+		return new ThroughputListener("Model '" + modelName + "' ( bundle '" + bundleName + "' )");
+	}
+
+	private synchronized void log(String message) {
+		out.println("[GEN] " + message);
+		out.flush();
+	}
+
+	/**
+	 * Listener of a single generation
+	 */
+	private class ThroughputListener implements GenerationListener {
+
+		private final String name ;
+
+		private long lastLog = 0 ;
+
+		private int errors = 0 ;
+
+		private ThroughputListener(String name) {
+			super();
+			this.name = name;
+		}
+
+		@Override
+		public synchronized void notify(GenerationEvent event) {
+			switch ( event.getType() ) {
+			case GENERATION_STARTED :
+				lastLog = 0 ;
+				errors = 0 ;
+				log(name + " : generation started : " + event.getTotal() + " file(s) to generate");
+				break;
+			case FILE_ERROR :
+				errors++ ;
+				logPeriodically(event);
+				break;
+			case FILE_WRITTEN :
+				logPeriodically(event);
+				break;
+			case GENERATION_ENDED :
+				log(name + " : generation throughput : " + event.getDone() + " file(s) in " + event.getElapsedTime() + " ms ( "
+						+ String.format("%.1f", event.getFilesPerSecond()) + " files/s, " + errors + " error(s) )");
+				break;
+			default:
+				break;
+			}
+		}
+
+		private void logPeriodically(GenerationEvent event) {
+			if ( event.getElapsedTime() - lastLog >= LOG_PERIOD ) {
+				lastLog = event.getElapsedTime() ;
+				log(name + " : " + event.getDone() + "/" + event.getTotal() + " file(s) ( "
+						+ String.format("%.1f", event.getFilesPerSecond()) + " files/s )");
+			}
+		}
+	}
+}
@@ -0,0 +1,119 @@
+package org.telosys.tools.cli;
+
+import java.io.File;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.telosys.tools.cli.generation.HashUtil;
+import org.telosys.tools.generic.model.Entity;
+import org.telosys.tools.generic.model.Model;
+import org.telosys.tools.repository.persistence.PersistenceManagerFactory;
+
+/**
+ * Compares the standard '.dbrep' loader (DOM) with the streaming loader (StAX) on a generated database model : <br>
+ * load time ( best of several runs in the same JVM ) and minimum heap ( smallest '-Xmx' loading the model in a new JVM ) <br>
+ * The model is generated as in 'DbModelLoaderTest' ( the unit test checking that both loaders give the same entities ) <br>
+ * Not a unit test, launched with 'main' <br>
+ * Usage : DbModelLoaderBenchmark [number-of-tables] ( 10000 tables by default )
+ *
+ */
+public class DbModelLoaderBenchmark {
+
+	private static final int RUNS = 3 ;
+
+	private static final int MIN_HEAP_PRECISION = 8 ; // MB
+
+	private static final String LOAD_OPTION = "--load" ;
+
+	private static final String STANDARD = "standard" ;
+
+	private static final String STREAMING = "streaming" ;
+
+	public static void main(String[] args) throws Exception {
+		if ( args.length == 3 && LOAD_OPTION.equals(args[0]) ) {
+			// child JVM : just load the model
+			load(args[1], new File(args[2]));
+			return ;
+		}
+		int tables = args.length > 0 ? Integer.parseInt(args[0]) : 10000 ;
+		File file = File.createTempFile("benchmark", ".dbrep");
+		file.deleteOnExit();
+		DbModelLoaderTest.generateModel(file, tables);
+		System.out.println("Model file : " + tables + " tables, " + ( file.length() / 1024 ) + " KB");
+
+		Map<String, String> standard = benchmark(STANDARD, file);
+		Map<String, String> streaming = benchmark(STREAMING, file);
+		System.out.println("Same entities : " + standard.equals(streaming));
+	}
+
+	private static Model load(String loader, File file) throws Exception {
+		if ( STREAMING.equals(loader) ) {
+			return new DbModelLoader(DbModelLoader.DEFAULT_BATCH_SIZE).loadModel(file);
+		}
+		return PersistenceManagerFactory.createPersistenceManager(file).load();
+	}
+
+	/**
+	 * Prints the best load time and the minimum heap for the given loader
+	 * @param loader
+	 * @param file
+	 * @return the entities hashes ( to compare the loaders results )
+	 * @throws Exception
+	 */
+	private static Map<String, String> benchmark(String loader, File file) throws Exception {
+		long bestTime = Long.MAX_VALUE ;
+		Map<String, String> hashes = null ;
+		for ( int i = 0 ; i < RUNS ; i++ ) {
+			System.gc();
+			long start = System.nanoTime();
+			Model model = load(loader, file);
+			bestTime = Math.min(bestTime, System.nanoTime() - start);
+			hashes = new HashMap<>();
+			for ( Entity entity : model.getEntities() ) {
+				hashes.put(entity.getClassName(), HashUtil.hashEntity(entity));
+			}
+		}
+		System.out.println(String.format("%-10s : %6d ms, minimum heap %5d MB", loader, bestTime / 1000000, 
+				findMinimumHeap(loader, file)));
+		return hashes ;
+	}
+
+	/**
+	 * Returns the smallest maximum heap size (in MB) allowing to load the model in a new JVM
+	 * @param loader
+	 * @param file
+	 * @return
+	 * @throws Exception
+	 */
+	private static int findMinimumHeap(String loader, File file) throws Exception {
+		int low = 8 ; // fails
+		int high = 64 ;
+		while ( ! loadInNewJvm(loader, file, high) ) {
+			low = high ;
+			high = high * 2 ;
+		}
+		while ( high - low > MIN_HEAP_PRECISION ) {
+			int middle = ( low + high ) / 2 ;
+			if ( loadInNewJvm(loader, file, middle) ) {
+				high = middle ;
+			}
+			else {
+				low = middle ;
+			}
+		}
+		return high ;
+	}
+
+	private static boolean loadInNewJvm(String loader, File file, int heapSize) throws Exception {
+		String java = System.getProperty("java.home") + File.separator + "bin" + File.separator + "java" ;
+		Process process = new ProcessBuilder(java, "-Xmx" + heapSize + "m", 
+				"-cp", System.getProperty("java.class.path"), DbModelLoaderBenchmark.class.getName(), 
+				LOAD_OPTION, loader, file.getAbsolutePath())
+				.redirectErrorStream(true)
+				.redirectOutput(new File(file.getAbsolutePath() + ".log"))
+				.start();
+		boolean ok = process.waitFor() == 0 ;
+		new File(file.getAbsolutePath() + ".log").delete();
+		return ok ;
+	}
+}
@@ -0,0 +1,193 @@
+package org.telosys.tools.cli;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.sql.Types;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.Test;
+import org.telosys.tools.cli.generation.HashUtil;
+import org.telosys.tools.commons.TelosysToolsException;
+import org.telosys.tools.generic.model.Attribute;
+import org.telosys.tools.generic.model.Entity;
+import org.telosys.tools.generic.model.Model;
+import org.telosys.tools.repository.model.AttributeInDbModel;
+import org.telosys.tools.repository.model.EntityInDbModel;
+import org.telosys.tools.repository.model.ForeignKeyColumnInDbModel;
+import org.telosys.tools.repository.model.ForeignKeyInDbModel;
+import org.telosys.tools.repository.model.RepositoryModel;
+import org.telosys.tools.repository.persistence.PersistenceManagerFactory;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class DbModelLoaderTest {
+
+	private static final int COLUMNS = 10 ;
+
+	/**
+	 * Generates a database model file <br>
+	 * ( each table has a foreign key referencing the previous table, <br>
+	 *   and every 5 tables a composite foreign key referencing the table before the previous one )
+	 * @param file
+	 * @param tables
+	 * @throws Exception
+	 */
+	static void generateModel(File file, int tables) throws Exception {
+		RepositoryModel model = new RepositoryModel();
+		model.setDatabaseId(0);
+		model.setDatabaseName("test");
+		model.setDatabaseProductName("test");
+		model.setGenerationDate(new Date());
+		for ( int t = 0 ; t < tables ; t++ ) {
+			EntityInDbModel entity = new EntityInDbModel();
+			entity.setDatabaseTable("TABLE_" + t);
+			entity.setDatabaseType("TABLE");
+			entity.setClassName("Table" + t);
+			for ( int c = 0 ; c < COLUMNS ; c++ ) {
+				AttributeInDbModel attribute = new AttributeInDbModel(entity);
+				attribute.setDatabaseName(c == 0 ? "ID" : "COL_" + c);
+				attribute.setName(c == 0 ? "id" : "col" + c);
+				attribute.setDatabasePosition(c + 1);
+				attribute.setKeyElement(c == 0);
+				attribute.setDatabaseNotNull(c == 0);
+				if ( c < 4 ) {
+					attribute.setJdbcTypeCode(Types.INTEGER);
+					attribute.setDatabaseTypeName("INTEGER");
+					attribute.setDatabaseSize(10);
+					attribute.setModelFullType("java.lang.Integer");
+				}
+				else {
+					attribute.setJdbcTypeCode(Types.VARCHAR);
+					attribute.setDatabaseTypeName("VARCHAR");
+					attribute.setDatabaseSize(50);
+					attribute.setModelFullType("java.lang.String");
+					attribute.setMaxLength(50);
+				}
+				entity.storeAttribute(attribute);
+			}
+			if ( t > 0 ) {
+				entity.storeForeignKey(buildForeignKey("FK_" + t, t, t - 1, "COL_1"));
+			}
+			if ( t > 1 && t % 5 == 0 ) {
+				entity.storeForeignKey(buildForeignKey("FK2_" + t, t, t - 2, "COL_2", "COL_3"));
+			}
+			model.storeEntity(entity);
+		}
+		PersistenceManagerFactory.createPersistenceManager(file).save(model);
+	}
+
+	private static ForeignKeyInDbModel buildForeignKey(String name, int table, int referencedTable, String... columns) {
+		ForeignKeyInDbModel fk = new ForeignKeyInDbModel();
+		fk.setName(name);
+		for ( int i = 0 ; i < columns.length ; i++ ) {
+			ForeignKeyColumnInDbModel fkColumn = new ForeignKeyColumnInDbModel();
+			fkColumn.setTableName("TABLE_" + table);
+			fkColumn.setColumnName(columns[i]);
+			fkColumn.setSequence(i + 1);
+			fkColumn.setTableRef("TABLE_" + referencedTable);
+			fkColumn.setReferencedColumnName(i == 0 ? "ID" : "COL_" + i);
+			fk.storeForeignKeyColumn(fkColumn);
+		}
+		return fk ;
+	}
+
+	private static File createModelFile(int tables) throws Exception {
+		File file = File.createTempFile("test", ".dbrep");
+		file.deleteOnExit();
+		generateModel(file, tables);
+		return file ;
+	}
+
+	private static Map<String, String> hashEntities(Model model) {
+		Map<String, String> hashes = new HashMap<>();
+		for ( Entity entity : model.getEntities() ) {
+			hashes.put(entity.getClassName(), HashUtil.hashEntity(entity));
+		}
+		return hashes ;
+	}
+
+	private static Attribute getAttribute(Entity entity, String name) {
+		for ( Attribute attribute : entity.getAttributes() ) {
+			if ( name.equals(attribute.getName()) ) {
+				return attribute ;
+			}
+		}
+		fail("No attribute '" + name + "' in " + entity.getClassName());
+		return null ;
+	}
+
+	private static void checkSameEntities(File file, int batchSize) throws Exception {
+		Model standard = PersistenceManagerFactory.createPersistenceManager(file).load();
+		Model streaming = new DbModelLoader(batchSize).loadModel(file);
+		Map<String, String> standardHashes = hashEntities(standard);
+		Map<String, String> streamingHashes = hashEntities(streaming);
+		assertEquals(standard.getEntities().size(), standardHashes.size());
+		for ( Map.Entry<String, String> e : standardHashes.entrySet() ) {
+			assertEquals("entity " + e.getKey(), e.getValue(), streamingHashes.get(e.getKey()));
+		}
+		assertEquals(standardHashes.size(), streamingHashes.size());
+	}
+
+	@Test
+	public void testSameEntitiesSeveralBatches() throws Exception {
+		// foreign keys referencing tables converted in a previous batch
+		File file = createModelFile(23);
+		checkSameEntities(file, 4);
+		checkSameEntities(file, 1);
+	}
+
+	@Test
+	public void testSameEntitiesSingleBatch() throws Exception {
+		checkSameEntities(createModelFile(23), DbModelLoader.DEFAULT_BATCH_SIZE);
+	}
+
+	@Test
+	public void testForeignKeysInformation() throws Exception {
+		Model model = new DbModelLoader(4).loadModel(createModelFile(12));
+		assertEquals(12, model.getEntities().size());
+
+		Entity table0 = model.getEntityByClassName("Table0");
+		assertNotNull(table0);
+		assertEquals(0, table0.getDatabaseForeignKeys().size());
+		assertFalse(getAttribute(table0, "col1").isFK());
+
+		Entity table7 = model.getEntityByClassName("Table7");
+		assertEquals(1, table7.getDatabaseForeignKeys().size());
+		assertTrue(getAttribute(table7, "col1").isFK());
+		assertTrue(getAttribute(table7, "col1").isFKSimple());
+		assertFalse(getAttribute(table7, "col2").isFK());
+
+		Entity table10 = model.getEntityByClassName("Table10");
+		assertEquals(2, table10.getDatabaseForeignKeys().size());
+		assertTrue(getAttribute(table10, "col2").isFKComposite());
+		assertTrue(getAttribute(table10, "col3").isFKComposite());
+		assertFalse(getAttribute(table10, "col4").isFK());
+	}
+
+	@Test
+	public void testEmptyModel() throws Exception {
+		checkSameEntities(createModelFile(0), DbModelLoader.DEFAULT_BATCH_SIZE);
+		assertEquals(0, new DbModelLoader(4).loadModel(createModelFile(0)).getEntities().size());
+	}
+
+	@Test
+	public void testInvalidFile() throws IOException {
+		File file = File.createTempFile("invalid", ".dbrep");
+		file.deleteOnExit();
+		Files.write(file.toPath(), "<root><tableList>".getBytes(StandardCharsets.UTF_8));
+		try {
+			new DbModelLoader(4).loadModel(file);
+			fail("TelosysToolsException expected");
+		} catch (TelosysToolsException e) {
+			// expected : invalid XML
+		}
+	}
+}
@@ -0,0 +1,67 @@
+package org.telosys.tools.cli.generation;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class GenerationChangesTest {
+
+	private static final Collection<String> TEMPLATES = Arrays.asList("bean.vm", "dao.vm");
+
+	private static File createBundle() throws IOException {
+		File bundleFolder = Files.createTempDirectory("bundle").toFile();
+		bundleFolder.deleteOnExit();
+		return bundleFolder ;
+	}
+
+	private static GenerationChanges buildChanges(File bundleFolder, String... fileNames) {
+		Path bundlePath = bundleFolder.toPath().toAbsolutePath();
+		Path[] paths = new Path[fileNames.length];
+		for ( int i = 0 ; i < fileNames.length ; i++ ) {
+			paths[i] = bundlePath.resolve(fileNames[i]);
+		}
+		return new GenerationChanges(Arrays.asList(paths), new File(bundleFolder.getParentFile(), "test.model"), null,
+				bundleFolder, TEMPLATES);
+	}
+
+	@Test
+	public void testTemplateChanged() throws IOException {
+		GenerationChanges changes = buildChanges(createBundle(), "dao.vm");
+		assertFalse(changes.isFullGeneration());
+		assertEquals(Collections.singleton("dao.vm"), changes.getTemplates());
+	}
+
+	@Test
+	public void testSharedFileChanged() throws IOException {
+		File bundleFolder = createBundle();
+		File macros = new File(bundleFolder, "macros.vm");
+		Files.write(macros.toPath(), "#macro(m)#end".getBytes());
+		macros.deleteOnExit();
+		assertTrue(buildChanges(bundleFolder, "macros.vm").isFullGeneration());
+	}
+
+	@Test
+	public void testSharedFileDeleted() throws IOException {
+		// the file doesn't exist anymore : still a change for all the templates
+		GenerationChanges changes = buildChanges(createBundle(), "include/header.vm");
+		assertTrue(changes.isFullGeneration());
+		assertFalse(changes.isEmpty());
+	}
+
+	@Test
+	public void testTemporaryFiles() throws IOException {
+		GenerationChanges changes = buildChanges(createBundle(), ".bean.vm.swx", "bean.vm~", "macros.vm.swp", "#dao.vm#~");
+		assertFalse(changes.isFullGeneration());
+		assertTrue(changes.isEmpty());
+	}
+}
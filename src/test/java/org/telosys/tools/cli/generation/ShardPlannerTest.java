@@ -0,0 +1,115 @@
+package org.telosys.tools.cli.generation;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.junit.Test;
+import org.telosys.tools.commons.bundles.TargetDefinition;
+import org.telosys.tools.repository.model.AttributeInDbModel;
+import org.telosys.tools.repository.model.EntityInDbModel;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class ShardPlannerTest {
+
+	private static File createBundle(int templates) throws IOException {
+		File bundleFolder = Files.createTempDirectory("bundle").toFile();
+		bundleFolder.deleteOnExit();
+		for ( int t = 0 ; t < templates ; t++ ) {
+			File template = new File(bundleFolder, "t" + t + ".vm");
+			Files.write(template.toPath(), new byte[100 + t * 150]);
+			template.deleteOnExit();
+		}
+		return bundleFolder ;
+	}
+
+	private static List<GenerationJob> createJobs(int entities, int templates) {
+		List<GenerationJob> jobs = new ArrayList<>();
+		for ( int e = 0 ; e < entities ; e++ ) {
+			EntityInDbModel entity = new EntityInDbModel();
+			entity.setClassName("Entity" + e);
+			entity.setDatabaseTable("ENTITY_" + e);
+			for ( int a = 0 ; a <= e % 7 ; a++ ) {
+				AttributeInDbModel attribute = new AttributeInDbModel(entity);
+				attribute.setDatabaseName("COL_" + a);
+				attribute.setName("col" + a);
+				entity.storeAttribute(attribute);
+			}
+			for ( int t = 0 ; t < templates ; t++ ) {
+				jobs.add(new GenerationJob(entity,
+						new TargetDefinition("t" + t, "${BEANNAME}" + t + ".java", "src", "t" + t + ".vm", "*")));
+			}
+		}
+		jobs.add(new GenerationJob(new TargetDefinition("once", "all.txt", "doc", "t0.vm", "1")));
+		return jobs ;
+	}
+
+	@Test
+	public void testShardsDisjointAndComplete() throws IOException {
+		List<GenerationJob> jobs = createJobs(20, 4);
+		ShardPlanner planner = new ShardPlanner(createBundle(4));
+		for ( int count = 1 ; count <= 5 ; count++ ) {
+			Set<GenerationJob> union = new HashSet<>();
+			int total = 0 ;
+			for ( int i = 1 ; i <= count ; i++ ) {
+				List<GenerationJob> shard = planner.getShard(jobs, i, count);
+				total += shard.size() ;
+				union.addAll(shard);
+			}
+			// each job in one shard only
+			assertEquals(jobs.size(), total);
+			assertEquals(new HashSet<>(jobs), union);
+		}
+	}
+
+	@Test
+	public void testShardsKeepJobsOrder() throws IOException {
+		List<GenerationJob> jobs = createJobs(10, 3);
+		List<GenerationJob> shard = new ShardPlanner(createBundle(3)).getShard(jobs, 2, 3);
+		int previous = -1 ;
+		for ( GenerationJob job : shard ) {
+			int index = jobs.indexOf(job);
+			assertTrue(index > previous);
+			previous = index ;
+		}
+	}
+
+	@Test
+	public void testSamePlanForSameInput() throws IOException {
+		File bundleFolder = createBundle(4);
+		// same jobs built twice ( new objects ) and planned by two planners
+		List<GenerationJob> jobs1 = createJobs(30, 4);
+		List<GenerationJob> jobs2 = createJobs(30, 4);
+		for ( int i = 1 ; i <= 3 ; i++ ) {
+			assertEquals(toStrings(new ShardPlanner(bundleFolder).getShard(jobs1, i, 3)),
+					toStrings(new ShardPlanner(bundleFolder).getShard(jobs2, i, 3)));
+		}
+	}
+
+	@Test
+	public void testBalancedShards() throws IOException {
+		List<ShardPlanner.Shard> shards = new ShardPlanner(createBundle(4)).plan(createJobs(40, 4), 4);
+		long min = Long.MAX_VALUE ;
+		long max = 0 ;
+		for ( ShardPlanner.Shard shard : shards ) {
+			assertTrue( ! shard.getJobs().isEmpty() );
+			min = Math.min(min, shard.getWeight());
+			max = Math.max(max, shard.getWeight());
+		}
+		assertTrue("weights " + min + " / " + max, max - min <= max / 10 );
+	}
+
+	private static List<String> toStrings(List<GenerationJob> jobs) {
+		List<String> list = new ArrayList<>();
+		for ( GenerationJob job : jobs ) {
+			list.add(job.toString() + " -> " + job.getTargetDefinition().getFile());
+		}
+		return list ;
+	}
+}
@@ -0,0 +1,117 @@
+package org.telosys.tools.cli.generation;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Map;
+import java.util.TreeMap;
+
+import org.junit.Test;
+import org.telosys.tools.generator.GeneratorException;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.fail;
+
+public class StagingAreaTest {
+
+	private static File createDestination() throws IOException {
+		File destination = Files.createTempDirectory("destination").toFile();
+		write(new File(destination, "src/Car.java"), "class Car {}");
+		write(new File(destination, "src/Driver.java"), "class Driver {}");
+		write(new File(destination, "doc"), "a file where the generation expects a folder");
+		return destination ;
+	}
+
+	private static void write(File file, String content) throws IOException {
+		file.getParentFile().mkdirs();
+		Files.write(file.toPath(), content.getBytes());
+	}
+
+	/**
+	 * Returns all the files of the given folder with their content ( relative path -> content )
+	 */
+	private static Map<String, byte[]> snapshot(File folder) throws IOException {
+		final Path root = folder.toPath();
+		final Map<String, byte[]> files = new TreeMap<>();
+		Files.walkFileTree(root, new SimpleFileVisitor<Path>() {
+			@Override
+			public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) {
+				files.put(root.relativize(dir).toString() + "/", new byte[0]);
+				return FileVisitResult.CONTINUE;
+			}
+			@Override
+			public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
+				files.put(root.relativize(file).toString(), Files.readAllBytes(file));
+				return FileVisitResult.CONTINUE;
+			}
+		});
+		return files ;
+	}
+
+	private static void assertSameFiles(Map<String, byte[]> expected, Map<String, byte[]> actual) {
+		assertEquals(expected.keySet(), actual.keySet());
+		for ( Map.Entry<String, byte[]> e : expected.entrySet() ) {
+			assertArrayEquals(e.getKey(), e.getValue(), actual.get(e.getKey()));
+		}
+	}
+
+	private static void writeStaged(OutputWriter outputWriter, File destination) throws GeneratorException {
+		// main target and embedded target ( '$generator' ) : same output stage
+		outputWriter.write(new File(destination, "src/Car.java").getPath(), "class Car { int id; }".getBytes());
+		outputWriter.write(new File(destination, "src/CarDao.java").getPath(), "class CarDao {}".getBytes());
+		outputWriter.write(new File(destination, "src/Driver.java").getPath(), "class Driver {}".getBytes());
+	}
+
+	@Test
+	public void testDiscardedGeneration() throws IOException, GeneratorException {
+		File destination = createDestination();
+		Map<String, byte[]> before = snapshot(destination);
+		StagingArea stagingArea = new StagingArea(destination);
+		OutputWriter outputWriter = new OutputWriter(stagingArea);
+		writeStaged(outputWriter, destination);
+		assertSameFiles(before, snapshot(destination));
+		// generation error : the staged files are discarded
+		stagingArea.discard();
+		assertSameFiles(before, snapshot(destination));
+		assertFalse(stagingArea.getStagingFolder().exists());
+	}
+
+	@Test
+	public void testFailedCommit() throws IOException, GeneratorException {
+		File destination = createDestination();
+		Map<String, byte[]> before = snapshot(destination);
+		StagingArea stagingArea = new StagingArea(destination);
+		OutputWriter outputWriter = new OutputWriter(stagingArea);
+		writeStaged(outputWriter, destination);
+		// 'doc' is a file in the destination : the folder 'doc/api' cannot be created in the copy phase
+		outputWriter.write(new File(destination, "doc/api/index.html").getPath(), "<html/>".getBytes());
+		try {
+			stagingArea.commit();
+			fail("StagingException expected");
+		} catch (StagingArea.StagingException e) {
+			// expected : destination folder not modified
+		}
+		assertSameFiles(before, snapshot(destination));
+		assertFalse(stagingArea.getStagingFolder().exists());
+	}
+
+	@Test
+	public void testCommit() throws IOException, GeneratorException {
+		File destination = createDestination();
+		StagingArea stagingArea = new StagingArea(destination);
+		OutputWriter outputWriter = new OutputWriter(stagingArea);
+		writeStaged(outputWriter, destination);
+		// unchanged file not staged
+		assertEquals(2, stagingArea.commit());
+		Map<String, byte[]> after = snapshot(destination);
+		assertArrayEquals("class Car { int id; }".getBytes(), after.get("src" + File.separator + "Car.java"));
+		assertArrayEquals("class CarDao {}".getBytes(), after.get("src" + File.separator + "CarDao.java"));
+		assertEquals(6, after.size()); // root, 'src', 3 sources and 'doc'
+	}
+}
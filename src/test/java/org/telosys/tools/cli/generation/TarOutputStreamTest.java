@@ -0,0 +1,167 @@
+package org.telosys.tools.cli.generation;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class TarOutputStreamTest {
+
+	private static final int BLOCK_SIZE = 512 ;
+
+	private static String repeat(char c, int n) {
+		StringBuilder sb = new StringBuilder();
+		for ( int i = 0 ; i < n ; i++ ) {
+			sb.append(c);
+		}
+		return sb.toString();
+	}
+
+	private static byte[] buildTar(Map<String, String> files) throws IOException {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		try ( TarOutputStream tar = new TarOutputStream(bytes) ) {
+			for ( Map.Entry<String, String> e : files.entrySet() ) {
+				byte[] content = e.getValue().getBytes(StandardCharsets.UTF_8);
+				tar.putEntry(e.getKey(), content.length, 1500000000000L);
+				tar.write(content);
+			}
+		}
+		return bytes.toByteArray();
+	}
+
+	private static String readString(byte[] tar, int offset, int length) {
+		int end = offset ;
+		while ( end < offset + length && tar[end] != 0 ) {
+			end++ ;
+		}
+		return new String(tar, offset, end - offset, StandardCharsets.UTF_8);
+	}
+
+	private static long readOctal(byte[] tar, int offset, int length) {
+		return Long.parseLong(readString(tar, offset, length).trim(), 8);
+	}
+
+	private static void checkChecksum(byte[] tar, int offset) {
+		long checksum = 0 ;
+		for ( int i = 0 ; i < BLOCK_SIZE ; i++ ) {
+			checksum += ( i >= 148 && i < 156 ) ? ' ' : tar[offset + i] & 0xFF ;
+		}
+		assertEquals("checksum", checksum, readOctal(tar, offset + 148, 8));
+	}
+
+	private static int blocks(long size) {
+		return (int) ( ( size + BLOCK_SIZE - 1 ) / BLOCK_SIZE ) ;
+	}
+
+	/**
+	 * Reads the tar archive ( ustar and GNU long names )
+	 * @param tar
+	 * @return the files content by name
+	 */
+	private static Map<String, String> readTar(byte[] tar) {
+		assertEquals("archive size", 0, tar.length % BLOCK_SIZE);
+		Map<String, String> files = new LinkedHashMap<>();
+		String longName = null ;
+		int offset = 0 ;
+		while ( tar[offset] != 0 ) {
+			checkChecksum(tar, offset);
+			assertEquals("ustar", readString(tar, offset + 257, 6));
+			long size = readOctal(tar, offset + 124, 12);
+			char type = (char) tar[offset + 156] ;
+			int data = offset + BLOCK_SIZE ;
+			if ( type == 'L' ) {
+				assertEquals("././@LongLink", readString(tar, offset, 100));
+				longName = readString(tar, data, (int) size);
+			}
+			else {
+				assertEquals('0', type);
+				String prefix = readString(tar, offset + 345, 155);
+				String name = readString(tar, offset, 100);
+				if ( longName != null ) {
+					name = longName ;
+					longName = null ;
+				}
+				else if ( ! prefix.isEmpty() ) {
+					name = prefix + "/" + name ;
+				}
+				assertEquals("mtime", 1500000000L, readOctal(tar, offset + 136, 12));
+				files.put(name, new String(tar, data, (int) size, StandardCharsets.UTF_8));
+			}
+			// content padded to a full block
+			for ( int i = data + (int) size ; i < data + blocks(size) * BLOCK_SIZE ; i++ ) {
+				assertEquals("padding", 0, tar[i]);
+			}
+			offset = data + blocks(size) * BLOCK_SIZE ;
+		}
+		// end of archive : two empty blocks
+		assertEquals("end of archive", offset + 2 * BLOCK_SIZE, tar.length);
+		for ( int i = offset ; i < tar.length ; i++ ) {
+			assertEquals(0, tar[i]);
+		}
+		return files ;
+	}
+
+	@Test
+	public void testShortNames() throws IOException {
+		Map<String, String> files = new LinkedHashMap<>();
+		files.put("a.txt", "aaa");
+		files.put("src/main/Car.java", "class Car {}\n");
+		files.put("empty.txt", "");
+		files.put("block.txt", repeat('b', BLOCK_SIZE));
+		files.put("block-plus-one.txt", repeat('c', BLOCK_SIZE + 1));
+		byte[] tar = buildTar(files);
+		// 5 headers + 1 + 1 + 0 + 1 + 2 content blocks + 2 end blocks
+		assertEquals(12 * BLOCK_SIZE, tar.length);
+		assertEquals(files, readTar(tar));
+	}
+
+	@Test
+	public void testPrefixSplit() throws IOException {
+		String folder = repeat('d', 60) + "/" + repeat('e', 60) ;
+		String name = folder + "/" + repeat('f', 90) + ".txt" ;
+		assertTrue(name.length() > 100);
+		Map<String, String> files = new LinkedHashMap<>();
+		files.put(name, "prefix");
+		byte[] tar = buildTar(files);
+		// no long name entry : the name is split in the ustar prefix
+		assertEquals(folder, readString(tar, 345, 155));
+		assertEquals(repeat('f', 90) + ".txt", readString(tar, 0, 100));
+		assertEquals(files, readTar(tar));
+	}
+
+	@Test
+	public void testLongName() throws IOException {
+		String name1 = repeat('g', 120) + ".txt" ; // no folder
+		String name2 = "dir/" + repeat('h', 150) + ".txt" ; // file name too long for the ustar name
+		String name3 = repeat('i', 200) + "/file.txt" ; // folder too long for the ustar prefix
+		Map<String, String> files = new LinkedHashMap<>();
+		files.put(name1, "1");
+		files.put(name2, "2");
+		files.put(name3, "3");
+		files.put("short.txt", "after long names");
+		byte[] tar = buildTar(files);
+		assertEquals("././@LongLink", readString(tar, 0, 100));
+		assertEquals('L', (char) tar[156]);
+		assertEquals(files, readTar(tar));
+	}
+
+	@Test
+	public void testInvalidSize() throws IOException {
+		TarOutputStream tar = new TarOutputStream(new ByteArrayOutputStream());
+		tar.putEntry("a.txt", 10, 0);
+		tar.write(new byte[5]);
+		try {
+			tar.closeEntry();
+			fail("IOException expected");
+		} catch (IOException e) {
+			// expected : 5 bytes written, 10 expected
+		}
+	}
+}